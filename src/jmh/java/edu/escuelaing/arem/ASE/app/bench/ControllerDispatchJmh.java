@@ -0,0 +1,116 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.Controller.GreetingController;
+import edu.escuelaing.arem.ASE.app.Controller.MathController;
+import edu.escuelaing.arem.ASE.app.annotation.RequestParam;
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.Request;
+import edu.escuelaing.arem.ASE.app.http.RequestParser;
+import edu.escuelaing.arem.ASE.app.http.Response;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Invocación de los métodos {@code @GetMapping} registrados por
+ * {@code loadComponents}: el servicio registrado (tabla generada o
+ * invocador precompilado), frente a {@link Method#invoke} con los parámetros
+ * resueltos por reflexión en cada petición, como hacía la versión original.
+ * {@code dispatchAdd} mide además el camino completo de
+ * {@link HttpServer#dispatch(Request)}: enrutamiento, controlador y métricas.
+ * {@code /add} y {@code /greeting} se registran con la caché de respuestas;
+ * aquí se desactiva para medir la ejecución del controlador en cada
+ * operación y no un acierto de la caché.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerDispatchJmh {
+
+    private Request addRequest;
+    private Request greetingRequest;
+    private BiFunction<Request, Response, Response> addService;
+    private BiFunction<Request, Response, Response> greetingService;
+    private Method addMethod;
+    private Method greetingMethod;
+
+    @Setup
+    public void setUp() throws Exception {
+        HttpServer.responseCache(0, 0);
+        HttpServer.loadComponents(new String[0]);
+        HttpServer server = new HttpServer();
+        addService = server.getGetServices().get("/add");
+        greetingService = server.getGetServices().get("/greeting");
+        addMethod = MathController.class.getMethod("add", int.class, int.class);
+        greetingMethod = GreetingController.class.getMethod("greeting", String.class);
+        addRequest = request("GET /add?a=5&b=3 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        greetingRequest = request("GET /greeting?name=Andres HTTP/1.1\r\nHost: localhost\r\n\r\n");
+    }
+
+    @Benchmark
+    public Response registeredAdd() {
+        return addService.apply(addRequest, null);
+    }
+
+    @Benchmark
+    public Response registeredGreeting() {
+        return greetingService.apply(greetingRequest, null);
+    }
+
+    @Benchmark
+    public Response reflectiveAdd() throws Exception {
+        return invokeReflectively(addMethod, addRequest);
+    }
+
+    @Benchmark
+    public Response reflectiveGreeting() throws Exception {
+        return invokeReflectively(greetingMethod, greetingRequest);
+    }
+
+    @Benchmark
+    public Response dispatchAdd() {
+        return HttpServer.dispatch(addRequest);
+    }
+
+    /**
+     * Camino original: getParameters, getAnnotation y Method.invoke en cada
+     * petición, con la conversión a int que antes hacía el controlador.
+     */
+    private static Response invokeReflectively(Method method, Request req) throws Exception {
+        Parameter[] parameters = method.getParameters();
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            String value = req.getQueryParam(parameters[i].getAnnotation(RequestParam.class).value());
+            args[i] = parameters[i].getType() == int.class ? (Object) Integer.parseInt(value) : value;
+        }
+        Object result = method.invoke(null, args);
+        return new Response.Builder()
+                .withStatus(200)
+                .withBody(result != null ? result.toString() : "")
+                .build();
+    }
+
+    static Request request(String raw) {
+        RequestParser parser = new RequestParser();
+        ByteBuffer buffer = ByteBuffer.wrap(raw.getBytes(StandardCharsets.US_ASCII));
+        parser.reset(buffer, 0);
+        parser.parse(buffer.limit());
+        return new Request.Builder().withHead(parser.head()).build();
+    }
+}
@@ -0,0 +1,113 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.NioHttpServer;
+import edu.escuelaing.arem.ASE.app.http.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Camino caliente completo de {@code GET /pi} sobre una conexión keep-alive
+ * al transporte NIO: parseo, despacho, servicio, serialización de la
+ * respuesta y el viaje por el socket de loopback. Complementa a
+ * {@link ResponseBytesJmh}, que mide solo la serialización.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeepAliveRoundTripJmh {
+
+    private static final byte[] REQUEST = ("GET /pi HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private NioHttpServer server;
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private final byte[] buffer = new byte[4096];
+
+    @Setup
+    public void setUp() throws IOException {
+        // Mismo servicio que App, sin el log por petición
+        HttpServer.get("/pi", (req, res) -> new Response.Builder()
+                .withContentType("text/plain")
+                .withBody(String.valueOf(Math.PI))
+                .build());
+        HttpServer.maxRequestsPerConnection(Integer.MAX_VALUE);
+
+        server = new NioHttpServer(0, 1);
+        server.start();
+        socket = new Socket("localhost", server.getLocalPort());
+        socket.setTcpNoDelay(true);
+        out = socket.getOutputStream();
+        in = socket.getInputStream();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        socket.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public int pi() throws IOException {
+        out.write(REQUEST);
+        out.flush();
+        return readResponse();
+    }
+
+    /**
+     * Lee una respuesta completa: cabecera hasta la línea en blanco y luego
+     * Content-Length bytes.
+     *
+     * @return longitud del cuerpo
+     */
+    private int readResponse() throws IOException {
+        int length = 0;
+        int headEnd = -1;
+        while (headEnd < 0) {
+            int n = in.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                throw new IOException("Conexión cerrada");
+            }
+            length += n;
+            for (int i = 3; i < length; i++) {
+                if (buffer[i - 3] == '\r' && buffer[i - 2] == '\n' && buffer[i - 1] == '\r' && buffer[i] == '\n') {
+                    headEnd = i + 1;
+                    break;
+                }
+            }
+        }
+        String head = new String(buffer, 0, headEnd, StandardCharsets.US_ASCII);
+        int index = head.indexOf("Content-Length: ") + 16;
+        int bodyLength = Integer.parseInt(head.substring(index, head.indexOf("\r\n", index)));
+        int remaining = headEnd + bodyLength - length;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (n < 0) {
+                throw new IOException("Conexión cerrada");
+            }
+            remaining -= n;
+        }
+        return bodyLength;
+    }
+}
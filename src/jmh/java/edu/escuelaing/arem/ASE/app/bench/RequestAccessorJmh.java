@@ -0,0 +1,65 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.http.Request;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Acceso a los datos de la petición que usan los servicios:
+ * {@link Request#getQueryParam(String)} sobre una cabecera parseada (primer y
+ * último parámetro, y uno con escapes) y {@link Request#getJsonValue(String)}
+ * sobre el cuerpo de POST /app/hello.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestAccessorJmh {
+
+    private Request query;
+    private Request json;
+
+    @Setup
+    public void setUp() throws Exception {
+        query = ControllerDispatchJmh.request("GET /app/hello?name=Andres&lang=es&sort=asc&page=2&q=caf%C3%A9+con+leche"
+                + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        json = new Request.Builder()
+                .withMethod("POST")
+                .withUri(new URI("/app/hello"))
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"id\": \"7\", \"name\": \"Andres\"}")
+                .build();
+    }
+
+    @Benchmark
+    public String queryParamFirst() {
+        return query.getQueryParam("name");
+    }
+
+    @Benchmark
+    public String queryParamLast() {
+        return query.getQueryParam("page");
+    }
+
+    @Benchmark
+    public String queryParamEncoded() {
+        return query.getQueryParam("q");
+    }
+
+    @Benchmark
+    public String jsonValue() {
+        return json.getJsonValue("name");
+    }
+}
@@ -0,0 +1,90 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.http.RequestHead;
+import edu.escuelaing.arem.ASE.app.http.RequestParser;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parseo de la línea de petición y los headers tal como lo hace
+ * {@code handleClient}: {@link RequestParser} sobre el buffer de la conexión,
+ * frente al camino anterior con readLine/split/new URI como referencia.
+ *
+ * Con {@code -prof gc} la métrica {@code gc.alloc.rate.norm} da los bytes
+ * asignados por petición.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestParsingJmh {
+
+    private static final byte[] REQUEST = ("POST /app/hello?name=Andres HTTP/1.1\r\n"
+            + "Host: localhost:35000\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64)\r\n"
+            + "Accept: application/json\r\n"
+            + "Accept-Encoding: gzip, deflate\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Content-Length: 18\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private RequestParser parser;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        parser = new RequestParser();
+        buffer = ByteBuffer.wrap(REQUEST);
+    }
+
+    /**
+     * Camino actual: offsets sobre el buffer; solo se materializa la ruta.
+     */
+    @Benchmark
+    public long requestParser() {
+        parser.reset(buffer, 0);
+        parser.parse(buffer.limit());
+        RequestHead head = parser.head();
+        return head.path().length() + head.method().length() + head.contentLength() + (head.isKeepAlive() ? 1 : 0);
+    }
+
+    /**
+     * Camino anterior: BufferedReader, split de la línea de petición, new URI
+     * y split/toLowerCase por header.
+     */
+    @Benchmark
+    public long legacyReadLine() throws IOException, URISyntaxException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(REQUEST)));
+        String[] requestLine = in.readLine().split(" ");
+        URI uri = new URI(requestLine[1]);
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            String[] parts = line.split(":", 2);
+            headers.put(parts[0].trim().toLowerCase(), parts[1].trim());
+        }
+        return uri.getPath().length() + requestLine[0].length() + Integer.parseInt(headers.get("content-length"));
+    }
+}
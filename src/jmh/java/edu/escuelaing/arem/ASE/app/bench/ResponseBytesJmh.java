@@ -0,0 +1,67 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.http.Response;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialización de respuestas con {@link Response#toBytes()}: el texto de
+ * /pi, el JSON de /app/hello con un header adicional y un cuerpo de 4 KB. Se
+ * construye la respuesta en cada operación, como hace un servicio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBytesJmh {
+
+    private static final String PI = String.valueOf(Math.PI);
+
+    private byte[] large;
+
+    @Setup
+    public void setUp() {
+        large = new byte[4096];
+        Arrays.fill(large, (byte) 'x');
+    }
+
+    @Benchmark
+    public byte[] plainText() {
+        return new Response.Builder()
+                .withContentType("text/plain")
+                .withBody(PI)
+                .build()
+                .toBytes();
+    }
+
+    @Benchmark
+    public byte[] jsonWithHeader() {
+        return new Response.Builder()
+                .withStatus(200)
+                .addHeader("Cache-Control", "no-cache")
+                .withBody("{\"message\": \"Hola Andres\"}")
+                .build()
+                .toBytes();
+    }
+
+    @Benchmark
+    public byte[] body4k() {
+        return new Response.Builder()
+                .withContentType("application/octet-stream")
+                .withBodyBytes(large)
+                .build()
+                .toBytes();
+    }
+}
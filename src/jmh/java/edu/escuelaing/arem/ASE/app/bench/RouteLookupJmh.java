@@ -0,0 +1,84 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.http.Router;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Búsqueda de rutas en el {@link Router} que respalda {@code getServices}:
+ * acierto literal, fallo (que termina sirviendo un archivo estático) y
+ * plantilla con parámetro, con las rutas de la aplicación más {@code routes}
+ * rutas de relleno. Como referencia, la búsqueda exacta en un {@link HashMap}
+ * (el esquema anterior de getServices), que no puede expresar plantillas.
+ *
+ * Cada búsqueda usa una copia nueva de la ruta, como ocurre con una petición
+ * real, para no aprovechar el hash ya calculado del String.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteLookupJmh {
+
+    private static final String[] APP_ROUTES = {"/app/hello", "/pi", "/e", "/greeting", "/hello", "/add"};
+
+    @Param({"6", "1000", "10000"})
+    public int routes;
+
+    private Router<String> router;
+    private Map<String, String> map;
+
+    @Setup
+    public void setUp() {
+        router = new Router<>();
+        map = new HashMap<>();
+        for (String route : APP_ROUTES) {
+            router.add(route, route);
+            map.put(route, route);
+        }
+        for (int i = APP_ROUTES.length; i < routes; i++) {
+            router.add("/api/v1/resource" + i + "/items", "filler");
+            map.put("/api/v1/resource" + i + "/items", "filler");
+        }
+        router.add("/users/{id}/orders", "orders");
+    }
+
+    @Benchmark
+    public Object literalHit() {
+        return router.find(new String("/app/hello"));
+    }
+
+    @Benchmark
+    public Object miss() {
+        return router.find(new String("/index.html"));
+    }
+
+    @Benchmark
+    public Object hashMapHit() {
+        return map.get(new String("/app/hello"));
+    }
+
+    @Benchmark
+    public Object hashMapMiss() {
+        return map.get(new String("/index.html"));
+    }
+
+    @Benchmark
+    public Object templateParam() {
+        return router.find(new String("/users/42/orders")).params();
+    }
+}
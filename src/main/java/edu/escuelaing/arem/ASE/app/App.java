@@ -1,7 +1,10 @@
 package edu.escuelaing.arem.ASE.app;
 
+import edu.escuelaing.arem.ASE.app.http.AccessLog;
 import edu.escuelaing.arem.ASE.app.http.Response;
 import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.UserStore;
+import java.nio.file.Paths;
 
 /**
  * Clase principal de la aplicación que configura e inicia el servidor HTTP.
@@ -17,6 +20,11 @@ import edu.escuelaing.arem.ASE.app.http.HttpServer;
  */
 public class App {
 
+    /**
+     * Vigencia en la caché de respuestas de los endpoints de constantes.
+     */
+    private static final long CONSTANT_TTL_MILLIS = 60_000;
+
     /**
      * Método principal que inicia la aplicación.
      * 
@@ -31,14 +39,33 @@ public class App {
         // Configurar directorio de archivos estáticos
         HttpServer.staticfiles("/");
 
+        // Registro de accesos asíncrono: las peticiones no escriben en consola
+        HttpServer.accessLog(new AccessLog.Builder(Paths.get("logs", "access.log")).build());
+
+        // Usuarios persistidos en data/users: sobreviven a los reinicios
+        HttpServer.userStore(new UserStore.Builder(Paths.get("data", "users")).build());
+
+        registerServices();
+        try {
+            HttpServer.startServer(args);
+        } catch (Exception e) {
+            System.err.println("Error al iniciar el servidor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registra los endpoints legacy de la aplicación. Separado de
+     * {@link #main} para que otras herramientas (p. ej. el generador de
+     * carga) levanten el servidor con los mismos servicios.
+     */
+    public static void registerServices() {
         // Endpoint GET /app/hello - Saluda al usuario si está registrado, de lo
         // contrario indica que no lo está
         HttpServer.get("/app/hello", (req, res) -> {
-            System.out.println("registrando o ejecutando app hello");
             String name = req.getQueryParam("name");
 
             if (name != null && !name.isEmpty()) {
-                boolean userExists = HttpServer.getUsers().containsValue(name);
+                boolean userExists = HttpServer.getUserRegistry().containsName(name);
                 String message = userExists
                         ? "Hola " + name
                         : "No estás registrado en el sistema.";
@@ -55,23 +82,22 @@ public class App {
             }
         });
 
-        // Endpoint GET /pi - Devuelve el valor de la constante matemática PI
+        // Endpoint GET /pi - Devuelve el valor de la constante matemática PI (cacheado)
         HttpServer.get("/pi", (req, res) -> {
-            System.out.println("registrando o ejecutando pi");
             return new Response.Builder()
                     .withContentType("text/plain")
                     .withBody(String.valueOf(Math.PI))
                     .build();
-        });
+        }, CONSTANT_TTL_MILLIS);
 
         // Endpoint GET /e - Devuelve el valor de la constante matemática e (número de
-        // Euler)
+        // Euler, cacheado)
         HttpServer.get("/e", (req, res) -> {
             return new Response.Builder()
                     .withContentType("text/plain")
                     .withBody(String.valueOf(Math.E))
                     .build();
-        });
+        }, CONSTANT_TTL_MILLIS);
 
         // Endpoint POST /app/hello - Registra un usuario si se envía un JSON válido con
         // el campo "name"
@@ -106,10 +132,5 @@ public class App {
                         .build();
             }
         });
-        try {
-            HttpServer.startServer(args);
-        } catch (Exception e) {
-            System.err.println("Error al iniciar el servidor: " + e.getMessage());
-        }
     }
 }
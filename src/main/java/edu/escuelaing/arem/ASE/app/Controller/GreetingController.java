@@ -28,7 +28,7 @@ public class GreetingController {
      * @param name Nombre del usuario (parámetro de consulta)
      * @return Mensaje de saludo
      */
-    @GetMapping("/greeting")
+    @GetMapping(value = "/greeting", cacheTtl = 60_000)
     public static String greeting(@RequestParam String name) {
         return "Hola Mundo!";
     }
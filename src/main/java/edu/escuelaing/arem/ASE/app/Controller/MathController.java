@@ -22,21 +22,17 @@ import edu.escuelaing.arem.ASE.app.annotation.RestController;
 @RestController
 public class MathController {
     /**
-     * Endpoint con múltiples parámetros GET /add?a=5&b=3 -> "Result: 8"
+     * Endpoint con múltiples parámetros GET /add?a=5&b=3 -> "Result: 8". Los
+     * parámetros se convierten a int al recibir la petición; un valor que no
+     * es un entero responde 400.
      * 
      * @param a
      * @param b
      * @return result of the sum operation
      */
-    @GetMapping("/add")
-    public static String add(@RequestParam("a") String a, @RequestParam("b") String b) {
-        try {
-            int numA = Integer.parseInt(a);
-            int numB = Integer.parseInt(b);
-            return "Result: " + (numA + numB);
-        } catch (NumberFormatException e) {
-            return "Error: Invalid numbers";
-        }
+    @GetMapping(value = "/add", cacheTtl = 60_000)
+    public static String add(@RequestParam("a") int a, @RequestParam("b") int b) {
+        return "Result: " + (a + b);
     }
 
 }
@@ -17,4 +17,11 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface GetMapping {
     public String value();
+
+    /**
+     * Vigencia en milisegundos de las respuestas en la caché de respuestas;
+     * 0 (por defecto) no cachea. Solo para métodos cuyo resultado depende
+     * únicamente de sus {@code @RequestParam}.
+     */
+    public long cacheTtl() default 0;
 }
@@ -18,8 +18,18 @@ import java.lang.annotation.Target;
 @Target(ElementType.PARAMETER)
 public @interface RequestParam {
 
+    /**
+     * Marca de {@link #defaultValue()} sin valor por defecto (ninguna query
+     * real la contiene).
+     */
+    public static final String NONE = "\n\t\t\n\t\t\n\uE000\uE001\uE002\n\t\t\t\t\n";
+
     public String value() default "default";
 
-    public String defaultValue() default "Default";
+    /**
+     * Valor usado si el parámetro falta o llega vacío. Se convierte al tipo
+     * del parámetro una sola vez, al registrar la ruta.
+     */
+    public String defaultValue() default NONE;
 
 }
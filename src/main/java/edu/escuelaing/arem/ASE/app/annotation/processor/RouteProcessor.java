@@ -0,0 +1,328 @@
+package edu.escuelaing.arem.ASE.app.annotation.processor;
+
+import edu.escuelaing.arem.ASE.app.annotation.GetMapping;
+import edu.escuelaing.arem.ASE.app.annotation.RequestParam;
+import edu.escuelaing.arem.ASE.app.annotation.RestController;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Procesador de anotaciones que genera la tabla de rutas en tiempo de
+ * compilación.
+ *
+ * Recorre las clases {@code @RestController} y, por cada método
+ * {@code @GetMapping}, genera en {@code GeneratedRouteRegistry} un adaptador
+ * que convierte los {@code @RequestParam} de la query a su tipo (con un
+ * {@code ParamBinder} elegido al registrar la ruta) y llama directamente al
+ * método, sin reflexión. Al arrancar, el servidor carga esa clase en lugar de
+ * escanear el classpath. Las rutas con {@code cacheTtl} se registran con la
+ * caché de respuestas.
+ *
+ * Los métodos o clases que no son públicos, los controladores de instancia
+ * sin constructor público sin argumentos y los {@code defaultValue} que no se
+ * pueden convertir al tipo de su parámetro se reportan como error de
+ * compilación.
+ *
+ * @author jgamb
+ */
+@SupportedAnnotationTypes("edu.escuelaing.arem.ASE.app.annotation.RestController")
+public class RouteProcessor extends AbstractProcessor {
+
+    private static final String REGISTRY_PACKAGE = "edu.escuelaing.arem.ASE.app.http";
+    private static final String REGISTRY_NAME = "GeneratedRouteRegistry";
+
+    /**
+     * Tipos (además de primitivos y enums) que {@code ParamBinder} sabe
+     * convertir.
+     */
+    private static final Set<String> SIMPLE_TYPES = Set.of("java.lang.String", "java.lang.Integer",
+            "java.lang.Long", "java.lang.Short", "java.lang.Byte", "java.lang.Double", "java.lang.Float",
+            "java.lang.Boolean", "java.lang.Character");
+
+    private boolean generated;
+    private int binderCount;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (generated || annotations.isEmpty()) {
+            return false;
+        }
+
+        List<TypeElement> controllers = new ArrayList<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(RestController.class)) {
+            if (element.getKind() == ElementKind.CLASS && validController((TypeElement) element)) {
+                controllers.add((TypeElement) element);
+            }
+        }
+
+        try {
+            writeRegistry(controllers);
+            generated = true;
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "No se pudo generar " + REGISTRY_NAME + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    private boolean validController(TypeElement controller) {
+        if (!controller.getModifiers().contains(Modifier.PUBLIC)) {
+            error(controller, "@RestController debe ser una clase pública");
+            return false;
+        }
+        boolean valid = true;
+        for (ExecutableElement method : mappedMethods(controller)) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+                error(method, "@GetMapping debe estar en un método público");
+                valid = false;
+            }
+        }
+        if (needsInstance(controller) && !hasPublicNoArgConstructor(controller)) {
+            error(controller, "el controlador necesita un constructor público sin argumentos");
+            valid = false;
+        }
+        return valid;
+    }
+
+    private void writeRegistry(List<TypeElement> controllers) throws IOException {
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                REGISTRY_PACKAGE + "." + REGISTRY_NAME, controllers.toArray(new Element[0]));
+
+        try (Writer out = file.openWriter()) {
+            out.write("package " + REGISTRY_PACKAGE + ";\n\n");
+            out.write("/**\n * Generado por RouteProcessor. No editar.\n */\n");
+            out.write("public final class " + REGISTRY_NAME + " implements RouteRegistry {\n");
+
+            for (int c = 0; c < controllers.size(); c++) {
+                TypeElement controller = controllers.get(c);
+                if (needsInstance(controller)) {
+                    String type = controller.getQualifiedName().toString();
+                    out.write("\n    private final " + type + " controller" + c + " = new " + type + "();\n");
+                }
+            }
+
+            out.write("\n    @Override\n    public void registerRoutes() {\n");
+            for (int c = 0; c < controllers.size(); c++) {
+                TypeElement controller = controllers.get(c);
+                for (ExecutableElement method : mappedMethods(controller)) {
+                    writeRoute(out, controller, method, "controller" + c);
+                }
+            }
+            out.write("    }\n}\n");
+        }
+    }
+
+    private void writeRoute(Writer out, TypeElement controller, ExecutableElement method, String instance)
+            throws IOException {
+        GetMapping mapping = method.getAnnotation(GetMapping.class);
+        String close = mapping.cacheTtl() > 0 ? "        }, " + mapping.cacheTtl() + "L);\n" : "        });\n";
+
+        // Conversores creados una vez al registrar; la lambda solo los aplica
+        StringBuilder binders = new StringBuilder();
+        StringBuilder args = new StringBuilder();
+        for (VariableElement parameter : method.getParameters()) {
+            RequestParam param = parameter.getAnnotation(RequestParam.class);
+            Binding binding = param != null ? binding(parameter.asType()) : null;
+            if (binding == null) {
+                String name = param != null ? param.value() : parameter.getSimpleName().toString();
+                out.write("        HttpServer.get(" + literal(mapping.value()) + ", (req, res) -> {\n");
+                out.write("            return ControllerInvoker.unsupported(" + literal(name) + ");\n" + close);
+                return;
+            }
+            String defaultValue = param.defaultValue().equals(RequestParam.NONE) ? null : param.defaultValue();
+            if (defaultValue != null && !validDefault(binding.content(), defaultValue)) {
+                error(parameter, "defaultValue \"" + defaultValue + "\" no es válido para " + binding.content());
+                return;
+            }
+            String binder = "param" + binderCount++;
+            binders.append("        ParamBinder ").append(binder).append(" = ParamBinder.of(")
+                    .append(literal(param.value())).append(", ").append(binding.typeLiteral()).append(", ")
+                    .append(binding.optional()).append(", ")
+                    .append(defaultValue != null ? literal(defaultValue) : "null").append(");\n");
+            if (args.length() > 0) {
+                args.append(", ");
+            }
+            args.append(binder).append('.').append(binding.accessor());
+        }
+
+        String receiver = method.getModifiers().contains(Modifier.STATIC)
+                ? controller.getQualifiedName().toString()
+                : instance;
+        String call = receiver + "." + method.getSimpleName() + "(" + args + ")";
+
+        out.write(binders.toString());
+        out.write("        HttpServer.get(" + literal(mapping.value()) + ", (req, res) -> {\n");
+        out.write("            try {\n");
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            out.write("                " + call + ";\n");
+            out.write("                return ControllerInvoker.ok(null);\n");
+        } else {
+            out.write("                return ControllerInvoker.ok(" + call + ");\n");
+        }
+        if (binders.length() > 0) {
+            out.write("            } catch (ParamBinder.InvalidParamException e) {\n");
+            out.write("                return ControllerInvoker.badRequest(e);\n");
+        }
+        out.write("            } catch (Exception e) {\n");
+        out.write("                return ControllerInvoker.error(e);\n");
+        out.write("            }\n");
+        out.write(close);
+    }
+
+    /**
+     * Conversión de un parámetro: literal de clase para
+     * {@code ParamBinder.of}, si es {@code Optional} y la llamada que
+     * obtiene el valor (sin boxing para int, long, double y boolean).
+     */
+    private record Binding(TypeMirror content, String typeLiteral, boolean optional, String accessor) {
+    }
+
+    /**
+     * @return la conversión del tipo, o null si {@code ParamBinder} no lo
+     * soporta
+     */
+    private Binding binding(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            String accessor = switch (type.getKind()) {
+                case INT -> "bindInt(req)";
+                case LONG -> "bindLong(req)";
+                case DOUBLE -> "bindDouble(req)";
+                case BOOLEAN -> "bindBoolean(req)";
+                default -> "<" + processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName()
+                        + ">bind(req)";
+            };
+            return new Binding(type, type + ".class", false, accessor);
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declared = (DeclaredType) type;
+        TypeElement element = (TypeElement) declared.asElement();
+        String name = element.getQualifiedName().toString();
+        if (name.equals("java.util.Optional")) {
+            Binding content = declared.getTypeArguments().size() == 1
+                    ? binding(declared.getTypeArguments().get(0))
+                    : null;
+            return content == null || content.optional() || content.content().getKind().isPrimitive()
+                    ? null
+                    : new Binding(content.content(), content.typeLiteral(), true, "<" + type + ">bind(req)");
+        }
+        if (SIMPLE_TYPES.contains(name) || element.getKind() == ElementKind.ENUM) {
+            return new Binding(type, name + ".class", false, "<" + name + ">bind(req)");
+        }
+        return null;
+    }
+
+    /**
+     * Comprueba en compilación que el {@code defaultValue} se puede
+     * convertir, para no fallar al registrar la ruta.
+     */
+    private static boolean validDefault(TypeMirror type, String value) {
+        String name = type.getKind().isPrimitive()
+                ? type.toString()
+                : ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        try {
+            switch (name) {
+                case "int", "java.lang.Integer" -> Integer.parseInt(value);
+                case "long", "java.lang.Long" -> Long.parseLong(value);
+                case "short", "java.lang.Short" -> Short.parseShort(value);
+                case "byte", "java.lang.Byte" -> Byte.parseByte(value);
+                case "double", "java.lang.Double", "float", "java.lang.Float" -> Double.parseDouble(value);
+                case "boolean", "java.lang.Boolean" -> {
+                    return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false");
+                }
+                case "char", "java.lang.Character" -> {
+                    return value.length() == 1;
+                }
+                case "java.lang.String" -> {
+                    return true;
+                }
+                default -> {
+                    for (Element constant : ((DeclaredType) type).asElement().getEnclosedElements()) {
+                        if (constant.getKind() == ElementKind.ENUM_CONSTANT
+                                && constant.getSimpleName().contentEquals(value)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static List<ExecutableElement> mappedMethods(TypeElement controller) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (Element member : controller.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD && member.getAnnotation(GetMapping.class) != null) {
+                methods.add((ExecutableElement) member);
+            }
+        }
+        return methods;
+    }
+
+    private static boolean needsInstance(TypeElement controller) {
+        for (ExecutableElement method : mappedMethods(controller)) {
+            if (!method.getModifiers().contains(Modifier.STATIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasPublicNoArgConstructor(TypeElement controller) {
+        for (Element member : controller.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && member.getModifiers().contains(Modifier.PUBLIC)
+                    && ((ExecutableElement) member).getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char ch : value.toCharArray()) {
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,403 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de accesos asíncrono.
+ *
+ * Los hilos que atienden peticiones no escriben: copian los datos de la
+ * petición a una ranura de un buffer circular de tamaño fijo, reservada con
+ * un CAS sobre el contador de escritura, sin cerrojos. Un hilo en segundo
+ * plano recorre las ranuras publicadas, las formatea y escribe el lote al
+ * archivo de una vez; el archivo rota al superar su tamaño máximo. Si el
+ * buffer está lleno la entrada se descarta y se cuenta, en lugar de bloquear
+ * la petición.
+ *
+ * Con muestreo solo se registra una fracción de las peticiones; las
+ * respuestas 5xx se registran siempre.
+ *
+ * @author jgamb
+ */
+public final class AccessLog implements AutoCloseable {
+
+    /**
+     * Formato de las líneas del registro.
+     */
+    public enum Format {
+        /**
+         * Common Log Format de Apache más la duración en microsegundos:
+         * {@code 127.0.0.1 - - [10/Oct/2026:13:55:36 +0000] "GET / HTTP/1.1" 200 2326 512}
+         */
+        COMMON,
+        /**
+         * Un objeto JSON por línea.
+         */
+        JSON
+    }
+
+    private static final DateTimeFormatter COMMON_TIME = DateTimeFormatter
+            .ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ROOT)
+            .withZone(ZoneId.systemDefault());
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Ranura del buffer circular. {@code sequence} indica de quién es el
+     * turno: igual a la posición de escritura si está libre, una más si ya
+     * fue publicada para el escritor.
+     */
+    private static final class Slot {
+
+        volatile long sequence;
+        long timestamp;
+        InetAddress remote;
+        String method;
+        String target;
+        String version;
+        int status;
+        long bytes;
+        long micros;
+    }
+
+    private final Path file;
+    private final Format format;
+    private final double sampleRate;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private OutputStream out;
+    private long fileBytes;
+    private final StringBuilder batch = new StringBuilder(16 * 1024);
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private AccessLog(Builder builder) throws IOException {
+        this.file = builder.file;
+        this.format = builder.format;
+        this.sampleRate = builder.sampleRate;
+        this.maxFileBytes = builder.maxFileBytes;
+        this.maxFiles = builder.maxFiles;
+        int capacity = Integer.highestOneBit(Math.max(2, builder.capacity - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        openFile();
+        this.writer = Thread.ofPlatform().name("http-access-log").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Registra una petición atendida sin bloquear. Debe llamarse mientras la
+     * cabecera sigue siendo válida (antes de reutilizar el buffer de lectura).
+     *
+     * @param remote dirección del cliente, o null
+     * @param head cabecera de la petición
+     * @param status código de estado de la respuesta
+     * @param bytes bytes del cuerpo de la respuesta
+     * @param nanos duración de la petición
+     */
+    public void log(InetAddress remote, RequestHead head, int status, long bytes, long nanos) {
+        if (status < 500 && sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        Slot slot;
+        long pos = tail.get();
+        while (true) {
+            slot = slots[(int) pos & mask];
+            long diff = slot.sequence - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // El escritor no ha liberado la ranura: buffer lleno
+                dropped.increment();
+                return;
+            } else {
+                pos = tail.get();
+            }
+        }
+        slot.timestamp = System.currentTimeMillis();
+        slot.remote = remote;
+        slot.method = head.method();
+        slot.target = head.target();
+        slot.version = head.version();
+        slot.status = status;
+        slot.bytes = bytes;
+        slot.micros = nanos / 1000;
+        slot.sequence = pos + 1;
+    }
+
+    /**
+     * Detiene el escritor tras vaciar las entradas pendientes y cierra el
+     * archivo. Las entradas posteriores se descartan.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (running) {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            drain();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * Formatea las entradas publicadas y las escribe en un solo lote.
+     *
+     * @return número de entradas escritas
+     */
+    private int drain() {
+        int count = 0;
+        batch.setLength(0);
+        while (true) {
+            Slot slot = slots[(int) head & mask];
+            if (slot.sequence != head + 1) {
+                break;
+            }
+            appendEntry(slot);
+            slot.remote = null;
+            slot.method = null;
+            slot.target = null;
+            slot.version = null;
+            slot.sequence = head + slots.length;
+            head++;
+            count++;
+        }
+        if (count > 0) {
+            try {
+                byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+                if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+                    roll();
+                }
+                out.write(bytes);
+                out.flush();
+                fileBytes += bytes.length;
+                written.add(count);
+            } catch (IOException e) {
+                errors.increment();
+                dropped.add(count);
+            }
+        }
+        return count;
+    }
+
+    private void appendEntry(Slot slot) {
+        String remote = slot.remote != null ? slot.remote.getHostAddress() : "-";
+        if (format == Format.JSON) {
+            batch.append("{\"time\":\"").append(Instant.ofEpochMilli(slot.timestamp))
+                    .append("\",\"remote\":\"").append(remote)
+                    .append("\",\"method\":\"");
+            appendJson(slot.method);
+            batch.append("\",\"target\":\"");
+            appendJson(slot.target);
+            batch.append("\",\"version\":\"");
+            appendJson(slot.version);
+            batch.append("\",\"status\":").append(slot.status)
+                    .append(",\"bytes\":").append(slot.bytes)
+                    .append(",\"micros\":").append(slot.micros)
+                    .append("}\n");
+        } else {
+            batch.append(remote).append(" - - [")
+                    .append(COMMON_TIME.format(Instant.ofEpochMilli(slot.timestamp)))
+                    .append("] \"").append(slot.method).append(' ').append(slot.target)
+                    .append(' ').append(slot.version).append("\" ")
+                    .append(slot.status).append(' ');
+            if (slot.bytes > 0) {
+                batch.append(slot.bytes);
+            } else {
+                batch.append('-');
+            }
+            batch.append(' ').append(slot.micros).append('\n');
+        }
+    }
+
+    private void appendJson(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                batch.append('\\').append(c);
+            } else if (c < 0x20) {
+                batch.append(String.format("\\u%04x", (int) c));
+            } else {
+                batch.append(c);
+            }
+        }
+    }
+
+    /**
+     * Rota los archivos: {@code access.log} pasa a {@code access.log.1},
+     * este a {@code .2} y así hasta {@code maxFiles}, que se descarta.
+     */
+    private void roll() throws IOException {
+        out.close();
+        for (int i = maxFiles; i >= 1; i--) {
+            Path source = i == 1 ? file : rolledFile(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rolledFile(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles == 0) {
+            Files.deleteIfExists(file);
+        }
+        openFile();
+    }
+
+    private Path rolledFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return entradas escritas al archivo
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * @return entradas descartadas por buffer lleno, registro cerrado o
+     * error de escritura
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return entradas omitidas por el muestreo
+     */
+    public long getSampledOut() {
+        return sampledOut.sum();
+    }
+
+    /**
+     * @return errores de E/S del escritor
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Builder para configurar el registro de accesos.
+     */
+    public static class Builder {
+
+        private final Path file;
+        private Format format = Format.COMMON;
+        private double sampleRate = 1;
+        private int capacity = 8192;
+        private long maxFileBytes = 64L * 1024 * 1024;
+        private int maxFiles = 5;
+
+        /**
+         * @param file archivo del registro; se crea con sus directorios si no
+         * existe y se agrega al final si existe
+         */
+        public Builder(Path file) {
+            this.file = file;
+        }
+
+        public Builder withFormat(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * @param rate fracción de peticiones registradas (0 a 1)
+         */
+        public Builder withSampleRate(double rate) {
+            this.sampleRate = Math.max(0, Math.min(1, rate));
+            return this;
+        }
+
+        /**
+         * @param entries entradas del buffer circular (se redondea a potencia
+         * de 2)
+         */
+        public Builder withCapacity(int entries) {
+            this.capacity = Math.max(2, entries);
+            return this;
+        }
+
+        /**
+         * @param maxFileBytes tamaño a partir del cual rota el archivo
+         * @param maxFiles archivos rotados que se conservan
+         */
+        public Builder withRolling(long maxFileBytes, int maxFiles) {
+            this.maxFileBytes = Math.max(1, maxFileBytes);
+            this.maxFiles = Math.max(0, maxFiles);
+            return this;
+        }
+
+        /**
+         * Abre el archivo y arranca el hilo escritor.
+         *
+         * @return el registro
+         * @throws IOException Si no se puede abrir el archivo
+         */
+        public AccessLog build() throws IOException {
+            return new AccessLog(this);
+        }
+    }
+}
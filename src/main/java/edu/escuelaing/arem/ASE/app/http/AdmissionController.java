@@ -0,0 +1,140 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de admisión de peticiones.
+ *
+ * Limita el número de peticiones en ejecución simultánea y la cantidad de
+ * peticiones que pueden esperar turno. Cuando ambos límites están llenos, o
+ * la espera supera el tiempo máximo de cola, la petición se rechaza de
+ * inmediato con una respuesta {@code 503 Service Unavailable} con
+ * {@code Retry-After} serializada una sola vez, en lugar de dejar crecer la
+ * latencia sin límite.
+ *
+ * @author jgamb
+ */
+public final class AdmissionController {
+
+    private final int maxConcurrency;
+    private final int maxQueue;
+    private final long queueTimeoutMillis;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final byte[] serviceUnavailable;
+
+    /**
+     * @param maxConcurrency peticiones en ejecución simultánea (mínimo 1)
+     * @param maxQueue peticiones que pueden esperar un turno (mínimo 0)
+     * @param queueTimeoutMillis tiempo máximo de espera en cola
+     * @param retryAfterSeconds valor del header Retry-After en el 503
+     */
+    public AdmissionController(int maxConcurrency, int maxQueue, long queueTimeoutMillis, int retryAfterSeconds) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.queueTimeoutMillis = Math.max(0, queueTimeoutMillis);
+        this.permits = new Semaphore(this.maxConcurrency);
+
+        Response response = new Response.Builder()
+                .withStatus(503)
+                .withBody("{\"error\": \"Service Unavailable\"}")
+                .addHeader("Retry-After", String.valueOf(retryAfterSeconds))
+                .addHeader("Connection", "close")
+                .build();
+        this.serviceUnavailable = response.toBytes();
+    }
+
+    /**
+     * Solicita un turno de ejecución, esperando en cola si hay espacio.
+     *
+     * @return true si la petición fue admitida; debe llamarse a
+     * {@link #release()} al terminar
+     */
+    public boolean acquire() {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                admitted.increment();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Solicita un turno sin esperar. Lo usan los event loops NIO, que no
+     * pueden bloquearse.
+     *
+     * @return true si la petición fue admitida
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Libera el turno de una petición admitida.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * @return respuesta 503 pre-serializada (no debe modificarse)
+     */
+    public byte[] serviceUnavailable() {
+        return serviceUnavailable;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    /**
+     * @return peticiones en ejecución en este momento
+     */
+    public int getInFlight() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return peticiones esperando turno en este momento
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
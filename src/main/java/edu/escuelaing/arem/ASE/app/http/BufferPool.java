@@ -0,0 +1,269 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de buffers de E/S de tamaño fijo para las conexiones.
+ *
+ * Los buffers son porciones ({@link ByteBuffer#slice(int, int)}) de bloques
+ * grandes que se reservan bajo demanda y no se liberan nunca, de modo que
+ * abrir y cerrar conexiones no genera basura: el buffer de lectura de la
+ * petición y los de escritura de la respuesta vuelven al pool al cerrarse la
+ * conexión. Un pool directo usa memoria fuera del heap, que el transporte NIO
+ * lee del socket sin copia intermedia; uno en el heap sirve a los streams del
+ * transporte bloqueante, que necesitan un arreglo.
+ *
+ * Cada hilo de plataforma (los event loops) guarda unos pocos buffers libres
+ * en una caché propia y solo toca la cola compartida cuando esta se vacía o
+ * se llena. Los hilos virtuales, uno por conexión, no tienen caché: sus
+ * buffers quedarían varados al terminar el hilo.
+ *
+ * Si el pool alcanza su máximo se entrega un buffer suelto, que recoge el GC.
+ * Un buffer que nunca se devuelve se detecta cuando su {@link Lease} deja de
+ * ser alcanzable: se cuenta como fuga y se recupera para el pool.
+ *
+ * @author jgamb
+ */
+public final class BufferPool {
+
+    /**
+     * Tamaño por defecto de cada buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final int BUFFERS_PER_SLAB = 128;
+    private static final int THREAD_CACHE_SIZE = 16;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int bufferSize;
+    private final long maxBytes;
+    private final boolean direct;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ArrayDeque<ByteBuffer>> threadCache = ThreadLocal.withInitial(ArrayDeque::new);
+    private int slabs;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder unpooled = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * @param bufferSize tamaño de cada buffer en bytes
+     * @param maxBytes memoria máxima reservada en bloques
+     * @param direct true para memoria fuera del heap
+     */
+    public BufferPool(int bufferSize, long maxBytes, boolean direct) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize debe ser positivo");
+        }
+        this.bufferSize = bufferSize;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.direct = direct;
+    }
+
+    /**
+     * Buffer prestado por el pool. Debe devolverse una sola vez con
+     * {@link #release()}; después no debe usarse.
+     */
+    public static final class Lease {
+
+        private final ByteBuffer buffer;
+        private final Slot slot;
+        private final Cleaner.Cleanable cleanable;
+
+        private Lease(ByteBuffer buffer, Slot slot) {
+            this.buffer = buffer;
+            this.slot = slot;
+            this.cleanable = slot != null ? CLEANER.register(this, slot) : null;
+        }
+
+        /**
+         * @return el buffer, vacío (posición 0 y límite en la capacidad) al
+         * prestarse
+         */
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        /**
+         * Devuelve el buffer al pool. Llamadas repetidas no tienen efecto.
+         */
+        public void release() {
+            if (slot != null && slot.release()) {
+                slot.pool.recycle(buffer, true);
+                cleanable.clean();
+            }
+        }
+    }
+
+    /**
+     * Estado de un préstamo compartido con el {@link Cleaner}: si el
+     * {@link Lease} se recoge sin haberse devuelto, cuenta la fuga y recupera
+     * el buffer.
+     */
+    private static final class Slot implements Runnable {
+
+        private final BufferPool pool;
+        private final ByteBuffer buffer;
+        private boolean released;
+
+        Slot(BufferPool pool, ByteBuffer buffer) {
+            this.pool = pool;
+            this.buffer = buffer;
+        }
+
+        synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (release()) {
+                pool.leaks.increment();
+                pool.recycle(buffer, false);
+            }
+        }
+    }
+
+    /**
+     * Presta un buffer: de la caché del hilo, de la cola compartida, de un
+     * bloque nuevo o, si el pool está lleno, uno suelto.
+     *
+     * @return el préstamo
+     */
+    public Lease acquire() {
+        ArrayDeque<ByteBuffer> cache = Thread.currentThread().isVirtual() ? null : threadCache.get();
+        ByteBuffer buffer = cache != null ? cache.pollLast() : null;
+        if (buffer == null) {
+            buffer = free.poll();
+        }
+        if (buffer == null) {
+            buffer = allocateSlab();
+        }
+        if (buffer == null) {
+            unpooled.increment();
+            return new Lease(direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize), null);
+        }
+        acquired.increment();
+        buffer.clear();
+        return new Lease(buffer, new Slot(this, buffer));
+    }
+
+    /**
+     * Devuelve a la cola compartida los buffers de la caché del hilo actual.
+     * Los hilos de plataforma que terminan (p. ej. un event loop al detenerse)
+     * deben llamarlo para no dejar buffers varados.
+     */
+    public void flushThreadCache() {
+        ArrayDeque<ByteBuffer> cache = threadCache.get();
+        ByteBuffer buffer;
+        while ((buffer = cache.poll()) != null) {
+            free.offer(buffer);
+        }
+        threadCache.remove();
+    }
+
+    private void recycle(ByteBuffer buffer, boolean useThreadCache) {
+        released.increment();
+        if (useThreadCache && !Thread.currentThread().isVirtual()) {
+            ArrayDeque<ByteBuffer> cache = threadCache.get();
+            if (cache.size() < THREAD_CACHE_SIZE) {
+                cache.addLast(buffer);
+                return;
+            }
+        }
+        free.offer(buffer);
+    }
+
+    /**
+     * Reserva un bloque nuevo si cabe en el máximo, lo reparte en buffers y
+     * se queda con el primero.
+     */
+    private synchronized ByteBuffer allocateSlab() {
+        // Otro hilo pudo reservar un bloque mientras se esperaba el cerrojo
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        long slabBytes = (long) bufferSize * BUFFERS_PER_SLAB;
+        if ((slabs + 1) * slabBytes > maxBytes) {
+            return null;
+        }
+        ByteBuffer slab = direct
+                ? ByteBuffer.allocateDirect((int) slabBytes)
+                : ByteBuffer.allocate((int) slabBytes);
+        slabs++;
+        for (int i = 1; i < BUFFERS_PER_SLAB; i++) {
+            free.offer(slab.slice(i * bufferSize, bufferSize));
+        }
+        return slab.slice(0, bufferSize);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return buffers reservados en bloques (prestados o libres)
+     */
+    public synchronized int getCapacity() {
+        return slabs * BUFFERS_PER_SLAB;
+    }
+
+    /**
+     * @return bytes reservados en bloques
+     */
+    public synchronized long getReservedBytes() {
+        return (long) slabs * BUFFERS_PER_SLAB * bufferSize;
+    }
+
+    /**
+     * @return buffers del pool prestados en este momento
+     */
+    public long getInUse() {
+        return acquired.sum() - released.sum();
+    }
+
+    /**
+     * @return fracción de la capacidad prestada (0 a 1)
+     */
+    public double getUtilization() {
+        int capacity = getCapacity();
+        return capacity == 0 ? 0 : (double) getInUse() / capacity;
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    public long getReleased() {
+        return released.sum();
+    }
+
+    /**
+     * @return buffers sueltos entregados porque el pool estaba lleno
+     */
+    public long getUnpooled() {
+        return unpooled.sum();
+    }
+
+    /**
+     * @return préstamos recogidos por el GC sin haberse devuelto
+     */
+    public long getLeaks() {
+        return leaks.sum();
+    }
+}
@@ -0,0 +1,168 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Peticiones parciales ({@code Range}) sobre archivos estáticos.
+ *
+ * Un rango único se responde con 206 y {@code Content-Range}; varios rangos
+ * con 206 y {@code multipart/byteranges}. Los bytes se toman del cuerpo en
+ * caché si está en memoria o se envían como regiones del archivo con
+ * {@code FileChannel.transferTo}, de modo que solo se leen los bytes pedidos.
+ * Los rangos solapados o contiguos se fusionan; si la petición pide más de
+ * {@link #MAX_RANGES} rangos se ignora y se responde el archivo completo,
+ * como permite RFC 9110.
+ *
+ * @author jgamb
+ */
+final class ByteRanges {
+
+    /**
+     * Máximo de rangos (ya fusionados) que se atienden en una petición.
+     */
+    static final int MAX_RANGES = 16;
+
+    private ByteRanges() {
+    }
+
+    /**
+     * Interpreta un header {@code Range: bytes=...}.
+     *
+     * @param header valor del header
+     * @param length tamaño del recurso
+     * @return pares {inicio, fin} inclusivos, ordenados y fusionados; lista
+     * vacía si ningún rango es satisfacible; null si el header no es válido o
+     * se debe ignorar
+     */
+    static List<long[]> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : value.substring(6).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long start;
+            long end;
+            try {
+                if (dash == 0) {
+                    // Sufijo: los últimos N bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    long last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                    if (start < 0 || last < start) {
+                        // Rango mal formado: se ignora el header completo
+                        return null;
+                    }
+                    end = Math.min(last, length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start < length) {
+                ranges.add(new long[]{start, end});
+            }
+        }
+        List<long[]> merged = merge(ranges);
+        return merged.size() > MAX_RANGES ? null : merged;
+    }
+
+    private static List<long[]> merge(List<long[]> ranges) {
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Construye la respuesta parcial de un archivo estático.
+     *
+     * @param entry entrada de la caché del archivo
+     * @param file archivo, usado si el cuerpo no está en memoria
+     * @param range valor del header Range
+     * @param ifRange valor del header If-Range o null
+     * @return respuesta 206 o 416, o null si se debe servir el archivo
+     * completo
+     */
+    static Response respond(StaticFileCache.Entry entry, Path file, String range, String ifRange) {
+        if (!entry.rangeApplies(ifRange)) {
+            return null;
+        }
+        List<long[]> ranges = parse(range, entry.length);
+        if (ranges == null) {
+            return null;
+        }
+        if (ranges.isEmpty()) {
+            return new Response.Builder()
+                    .withStatus(416)
+                    .withContentType(entry.contentType)
+                    .addHeader("Content-Range", "bytes */" + entry.length)
+                    .build();
+        }
+        if (ranges.size() == 1) {
+            long[] r = ranges.get(0);
+            String head = "HTTP/1.1 206 Partial Content\r\n"
+                    + "Content-Type: " + entry.contentType + "\r\n"
+                    + "Content-Length: " + (r[1] - r[0] + 1) + "\r\n"
+                    + "Content-Range: " + contentRange(r, entry.length) + "\r\n"
+                    + entry.validators;
+            return Response.preserialized(206, entry.contentType,
+                    head.getBytes(StandardCharsets.ISO_8859_1), List.of(part(entry, file, r)));
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<Response.Part> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        long length = 0;
+        for (long[] r : ranges) {
+            byte[] partHead = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + entry.contentType + "\r\n"
+                    + "Content-Range: " + contentRange(r, entry.length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            parts.add(Response.Part.bytes(partHead));
+            parts.add(part(entry, file, r));
+            length += partHead.length + r[1] - r[0] + 1;
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        parts.add(Response.Part.bytes(end));
+        length += end.length;
+
+        String contentType = "multipart/byteranges; boundary=" + boundary;
+        String head = "HTTP/1.1 206 Partial Content\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + length + "\r\n"
+                + entry.validators;
+        return Response.preserialized(206, contentType, head.getBytes(StandardCharsets.ISO_8859_1), parts);
+    }
+
+    private static Response.Part part(StaticFileCache.Entry entry, Path file, long[] range) {
+        long length = range[1] - range[0] + 1;
+        return entry.inMemory()
+                ? Response.Part.bytes(entry.body, (int) range[0], (int) length)
+                : Response.Part.file(file, range[0], length);
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+}
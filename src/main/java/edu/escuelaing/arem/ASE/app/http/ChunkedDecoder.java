@@ -0,0 +1,237 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodificador incremental de cuerpos {@code Transfer-Encoding: chunked}.
+ *
+ * Recorre el framing (tamaño en hexadecimal, extensiones, CRLF y trailers)
+ * byte a byte y conserva su estado entre llamadas, así que los bytes pueden
+ * llegar en cualquier partición. Los datos de cada chunk no se copian: el
+ * llamador los toma directamente de su buffer según
+ * {@link #dataRemaining()}. Acepta también finales de línea LF sin CR.
+ *
+ * @author jgamb
+ */
+final class ChunkedDecoder {
+
+    private enum State {
+        SIZE, EXTENSION, SIZE_LF, DATA, DATA_CR, DATA_LF, TRAILER_START, TRAILER, TRAILER_LF, END_LF, DONE
+    }
+
+    /**
+     * Un tamaño de chunk con más dígitos hexadecimales desbordaría un long.
+     */
+    private static final int MAX_SIZE_DIGITS = 15;
+
+    private final long maxBytes;
+    private State state = State.SIZE;
+    private long size;
+    private int sizeDigits;
+    private long chunkRemaining;
+    private long total;
+
+    /**
+     * @param maxBytes máximo de bytes de datos decodificados
+     */
+    ChunkedDecoder(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Avanza sobre el framing hasta llegar a datos de un chunk, al fin del
+     * cuerpo o al final de los bytes disponibles.
+     *
+     * @param b buffer (se lee con índices absolutos, sin mover su posición)
+     * @param pos primera posición sin consumir
+     * @param end fin de los bytes disponibles
+     * @return posición tras el framing consumido
+     * @throws IOException Si el framing no es válido
+     * @throws PayloadTooLargeException Si los datos superan el máximo
+     */
+    int skipFraming(ByteBuffer b, int pos, int end) throws IOException {
+        while (pos < end && state != State.DATA && state != State.DONE) {
+            byte c = b.get(pos++);
+            switch (state) {
+                case SIZE -> {
+                    int digit = Character.digit(c, 16);
+                    if (digit >= 0) {
+                        if (++sizeDigits > MAX_SIZE_DIGITS) {
+                            throw malformed();
+                        }
+                        size = size * 16 + digit;
+                    } else if (sizeDigits == 0) {
+                        throw malformed();
+                    } else if (c == ';' || c == ' ' || c == '\t') {
+                        state = State.EXTENSION;
+                    } else if (c == '\r') {
+                        state = State.SIZE_LF;
+                    } else if (c == '\n') {
+                        startChunk();
+                    } else {
+                        throw malformed();
+                    }
+                }
+                case EXTENSION -> {
+                    // Las extensiones se ignoran
+                    if (c == '\r') {
+                        state = State.SIZE_LF;
+                    } else if (c == '\n') {
+                        startChunk();
+                    }
+                }
+                case SIZE_LF -> {
+                    expect(c, '\n');
+                    startChunk();
+                }
+                case DATA_CR -> {
+                    if (c == '\n') {
+                        state = State.SIZE;
+                    } else {
+                        expect(c, '\r');
+                        state = State.DATA_LF;
+                    }
+                }
+                case DATA_LF -> {
+                    expect(c, '\n');
+                    state = State.SIZE;
+                }
+                case TRAILER_START -> {
+                    // Una línea vacía cierra el cuerpo; cualquier otra es un trailer
+                    if (c == '\r') {
+                        state = State.END_LF;
+                    } else if (c == '\n') {
+                        state = State.DONE;
+                    } else {
+                        state = State.TRAILER;
+                    }
+                }
+                case TRAILER -> {
+                    if (c == '\r') {
+                        state = State.TRAILER_LF;
+                    } else if (c == '\n') {
+                        state = State.TRAILER_START;
+                    }
+                }
+                case TRAILER_LF -> {
+                    expect(c, '\n');
+                    state = State.TRAILER_START;
+                }
+                case END_LF -> {
+                    expect(c, '\n');
+                    state = State.DONE;
+                }
+                default ->
+                    throw new IllegalStateException(state.name());
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Recorre framing y datos sin copiarlos, para saber dónde termina el
+     * cuerpo dentro de un buffer.
+     *
+     * @param b buffer
+     * @param pos primera posición sin consumir
+     * @param end fin de los bytes disponibles
+     * @return posición tras lo consumido
+     * @throws IOException Si el framing no es válido o se supera el máximo
+     */
+    int scan(ByteBuffer b, int pos, int end) throws IOException {
+        while (pos < end && state != State.DONE) {
+            if (state == State.DATA) {
+                int n = (int) Math.min(chunkRemaining, end - pos);
+                pos += n;
+                consumeData(n);
+            } else {
+                pos = skipFraming(b, pos, end);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Extrae los datos de un cuerpo chunked completo ya validado con
+     * {@link #scan}.
+     *
+     * @param b buffer
+     * @param from inicio del cuerpo
+     * @param total bytes de datos (ver {@link #total()})
+     * @return los datos decodificados
+     * @throws IOException Si el framing no es válido
+     */
+    static byte[] decode(ByteBuffer b, int from, long total) throws IOException {
+        byte[] data = new byte[(int) total];
+        ChunkedDecoder decoder = new ChunkedDecoder(total);
+        int pos = from;
+        int written = 0;
+        while (!decoder.isDone()) {
+            int n = (int) decoder.dataRemaining();
+            if (n > 0) {
+                b.get(pos, data, written, n);
+                pos += n;
+                written += n;
+                decoder.consumeData(n);
+            } else {
+                pos = decoder.skipFraming(b, pos, b.capacity());
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return bytes de datos pendientes del chunk actual (0 si se está en
+     * el framing)
+     */
+    long dataRemaining() {
+        return state == State.DATA ? chunkRemaining : 0;
+    }
+
+    /**
+     * Registra {@code n} bytes de datos consumidos por el llamador.
+     */
+    void consumeData(long n) {
+        chunkRemaining -= n;
+        if (chunkRemaining == 0) {
+            state = State.DATA_CR;
+        }
+    }
+
+    boolean isDone() {
+        return state == State.DONE;
+    }
+
+    /**
+     * @return bytes de datos declarados hasta ahora
+     */
+    long total() {
+        return total;
+    }
+
+    private void startChunk() throws PayloadTooLargeException {
+        if (size == 0) {
+            state = State.TRAILER_START;
+            return;
+        }
+        total += size;
+        if (total > maxBytes) {
+            throw new PayloadTooLargeException(maxBytes);
+        }
+        chunkRemaining = size;
+        size = 0;
+        sizeDigits = 0;
+        state = State.DATA;
+    }
+
+    private static void expect(byte c, char expected) throws IOException {
+        if (c != expected) {
+            throw malformed();
+        }
+    }
+
+    private static IOException malformed() {
+        return new IOException("Malformed chunked body");
+    }
+}
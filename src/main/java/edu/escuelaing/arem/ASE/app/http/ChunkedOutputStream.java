@@ -0,0 +1,102 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codifica lo escrito con {@code Transfer-Encoding: chunked}.
+ *
+ * Acumula hasta {@code chunkSize} bytes y los emite como un chunk
+ * ({@code tamaño-hex CRLF datos CRLF}), vaciando el stream subyacente para que
+ * el cliente reciba los datos en cuanto están listos. {@link #flush()} emite
+ * de inmediato lo acumulado. {@link #close()} escribe el chunk final
+ * {@code 0 CRLF CRLF} pero no cierra el stream subyacente, que sigue siendo
+ * la conexión.
+ *
+ * @author jgamb
+ */
+final class ChunkedOutputStream extends OutputStream {
+
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    private boolean closed;
+
+    ChunkedOutputStream(OutputStream out, int chunkSize) {
+        this.out = out;
+        this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            emit();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == 0 && len >= buffer.length) {
+                // Bloque grande: se emite directamente sin copiarlo
+                writeChunk(b, off, len);
+                return;
+            }
+            int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == buffer.length) {
+                emit();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        emit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        emit();
+        closed = true;
+        out.write(LAST_CHUNK);
+        out.flush();
+    }
+
+    private void emit() throws IOException {
+        if (count > 0) {
+            writeChunk(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeChunk(byte[] b, int off, int len) throws IOException {
+        out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+        out.flush();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream cerrado");
+        }
+    }
+}
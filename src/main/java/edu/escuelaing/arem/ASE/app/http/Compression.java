@@ -0,0 +1,125 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Negociación de compresión gzip.
+ *
+ * Los archivos estáticos se comprimen una sola vez al entrar en
+ * {@link StaticFileCache} y se guardan junto al original. Los cuerpos
+ * dinámicos se comprimen al vuelo en {@link HttpServer#dispatch(Request)} si
+ * superan el umbral configurado, su tipo es texto y el cliente acepta gzip.
+ * Toda respuesta comprimible lleva {@code Vary: Accept-Encoding}.
+ *
+ * @author jgamb
+ */
+final class Compression {
+
+    private Compression() {
+    }
+
+    /**
+     * Interpreta {@code Accept-Encoding}, incluidos los valores q.
+     *
+     * @param acceptEncoding valor del header o null
+     * @return true si el cliente acepta gzip
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            boolean accepted = quality(parts) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @param contentType tipo de contenido de la respuesta
+     * @return true si es texto y vale la pena comprimirlo
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/")
+                || type.contains("json")
+                || type.contains("javascript")
+                || type.contains("xml")
+                || type.contains("svg");
+    }
+
+    /**
+     * Comprime con gzip.
+     *
+     * @param data bytes originales
+     * @param level nivel de {@link Deflater}
+     * @return bytes comprimidos
+     */
+    static byte[] gzip(byte[] data, int level) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 3));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Comprime al vuelo una respuesta dinámica si corresponde.
+     *
+     * @param req petición con su Accept-Encoding
+     * @param response respuesta del servicio
+     * @param threshold tamaño mínimo del cuerpo a comprimir
+     */
+    static void apply(Request req, Response response, int threshold) {
+        if (response.isPreserialized() || response.getBodyParts() != null || response.isStreaming()
+                || !isCompressible(response.getContentType())
+                || response.hasHeader("Content-Encoding")) {
+            return;
+        }
+        response.addHeader("Vary", "Accept-Encoding");
+        byte[] body = response.getBodyBytes();
+        if (body.length < threshold || !acceptsGzip(req.getHeader("accept-encoding"))) {
+            return;
+        }
+        byte[] compressed = gzip(body, Deflater.DEFAULT_COMPRESSION);
+        if (compressed.length < body.length) {
+            response.setBodyBytes(compressed);
+            response.addHeader("Content-Encoding", "gzip");
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import edu.escuelaing.arem.ASE.app.annotation.RequestParam;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Invocador precompilado de un método {@code @GetMapping}.
+ *
+ * Toda la reflexión (parámetros, anotaciones {@code @RequestParam}, acceso al
+ * método) se resuelve una sola vez al registrar la ruta, incluido el
+ * {@link ParamBinder} que convierte cada parámetro a su tipo. Para métodos de hasta
+ * dos parámetros se genera con {@link LambdaMetafactory} una implementación
+ * de {@link Supplier}, {@link Function} o {@link BiFunction} que llama
+ * directamente al método; para más parámetros se usa un {@link MethodHandle}
+ * con los argumentos esparcidos desde un arreglo. En cada petición solo se
+ * convierten los parámetros de la query según el plan precalculado y se
+ * invoca; un parámetro que no se puede convertir responde 400.
+ *
+ * @author jgamb
+ */
+final class ControllerInvoker implements BiFunction<Request, Response, Response> {
+
+    /**
+     * Tipo de los mensajes de error, que son texto y no JSON.
+     */
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    /**
+     * Llamada directa al método del controlador.
+     */
+    @FunctionalInterface
+    private interface Target {
+
+        Object call(Object[] args) throws Throwable;
+    }
+
+    private final Target target;
+    private final ParamBinder[] binders;
+    private final String unsupportedParam;
+
+    private ControllerInvoker(Target target, ParamBinder[] binders, String unsupportedParam) {
+        this.target = target;
+        this.binders = binders;
+        this.unsupportedParam = unsupportedParam;
+    }
+
+    /**
+     * Compila el invocador para un método de controlador.
+     *
+     * @param method Método anotado con {@code @GetMapping}
+     * @param controller Instancia del controlador, o null si el método es
+     * estático
+     * @return invocador listo para registrarse como servicio GET
+     * @throws ReflectiveOperationException Si el método no es accesible
+     * @throws IllegalArgumentException Si un {@code defaultValue} no se puede
+     * convertir al tipo de su parámetro
+     */
+    static ControllerInvoker forMethod(Method method, Object controller) throws ReflectiveOperationException {
+        Parameter[] parameters = method.getParameters();
+        ParamBinder[] binders = new ParamBinder[parameters.length];
+        String unsupported = null;
+
+        // Plan de extracción: conversor del parámetro de query por posición
+        for (int i = 0; i < parameters.length; i++) {
+            RequestParam param = parameters[i].getAnnotation(RequestParam.class);
+            binders[i] = param != null ? binder(parameters[i], param) : null;
+            if (binders[i] == null && unsupported == null) {
+                unsupported = param != null ? param.value() : parameters[i].getName();
+            }
+        }
+
+        return new ControllerInvoker(compile(method, controller), binders, unsupported);
+    }
+
+    /**
+     * @return el conversor del parámetro, o null si su tipo no está soportado
+     */
+    private static ParamBinder binder(Parameter parameter, RequestParam param) {
+        Class<?> type = parameter.getType();
+        boolean optional = type == Optional.class;
+        if (optional) {
+            Type generic = parameter.getParameterizedType();
+            Type content = generic instanceof ParameterizedType parameterized
+                    ? parameterized.getActualTypeArguments()[0]
+                    : null;
+            type = content instanceof Class<?> contentClass ? contentClass : null;
+        }
+        if (type == null || !ParamBinder.supports(type)) {
+            return null;
+        }
+        String defaultValue = RequestParam.NONE.equals(param.defaultValue()) ? null : param.defaultValue();
+        return ParamBinder.of(param.value(), type, optional, defaultValue);
+    }
+
+    @Override
+    public Response apply(Request req, Response res) {
+        if (unsupportedParam != null) {
+            return unsupported(unsupportedParam);
+        }
+
+        Object[] args = new Object[binders.length];
+        try {
+            for (int i = 0; i < args.length; i++) {
+                args[i] = binders[i].bind(req);
+            }
+        } catch (ParamBinder.InvalidParamException e) {
+            return badRequest(e);
+        }
+
+        try {
+            return ok(target.call(args));
+        } catch (Throwable e) {
+            return error(e);
+        }
+    }
+
+    /**
+     * Respuesta 200 con el resultado del controlador como cuerpo. También la
+     * usan los adaptadores generados por el procesador de anotaciones.
+     *
+     * @param result Valor devuelto por el método (puede ser null)
+     * @return Respuesta 200
+     */
+    static Response ok(Object result) {
+        return new Response.Builder()
+                .withStatus(200)
+                .withBody(result != null ? result.toString() : "")
+                .build();
+    }
+
+    /**
+     * @param e Error lanzado por el método del controlador
+     * @return Respuesta 500
+     */
+    static Response error(Throwable e) {
+        return new Response.Builder()
+                .withStatus(500)
+                .withContentType(TEXT)
+                .withBody("Error: " + e.getMessage())
+                .build();
+    }
+
+    /**
+     * @param e Parámetro ausente o no convertible
+     * @return Respuesta 400 con el motivo
+     */
+    static Response badRequest(ParamBinder.InvalidParamException e) {
+        return new Response.Builder()
+                .withStatus(400)
+                .withContentType(TEXT)
+                .withBody(e.getMessage())
+                .build();
+    }
+
+    /**
+     * @param paramName Parámetro sin {@code @RequestParam} o de un tipo sin
+     * conversor
+     * @return Respuesta 400
+     */
+    static Response unsupported(String paramName) {
+        return new Response.Builder()
+                .withStatus(400)
+                .withContentType(TEXT)
+                .withBody("Parámetro no soportado: " + paramName)
+                .build();
+    }
+
+    private static Target compile(Method method, Object controller) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        MethodHandle handle = lookup.unreflect(method);
+
+        Target direct = isStatic ? tryLambda(lookup, method, handle) : null;
+        if (direct != null) {
+            return direct;
+        }
+
+        if (!isStatic) {
+            handle = handle.bindTo(controller);
+        }
+        MethodHandle spread = handle
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        return args -> (Object) spread.invokeExact(args);
+    }
+
+    /**
+     * Genera con LambdaMetafactory una interfaz funcional que llama al método
+     * estático sin reflexión ni MethodHandle intermedio.
+     *
+     * @return el invocador, o null si la aridad o el acceso no lo permiten
+     */
+    @SuppressWarnings("unchecked")
+    private static Target tryLambda(MethodHandles.Lookup lookup, Method method, MethodHandle handle) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType.isPrimitive() || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return null;
+        }
+        try {
+            // Los parámetros primitivos llegan como envoltorios y se desenvuelven en la llamada
+            MethodType instantiated = handle.type().wrap();
+            switch (method.getParameterCount()) {
+                case 0 -> {
+                    Supplier<Object> fn = (Supplier<Object>) metafactory(lookup, handle, Supplier.class, "get",
+                            MethodType.methodType(Object.class), instantiated);
+                    return args -> fn.get();
+                }
+                case 1 -> {
+                    Function<Object, Object> fn = (Function<Object, Object>) metafactory(lookup, handle, Function.class, "apply",
+                            MethodType.methodType(Object.class, Object.class), instantiated);
+                    return args -> fn.apply(args[0]);
+                }
+                case 2 -> {
+                    BiFunction<Object, Object, Object> fn = (BiFunction<Object, Object, Object>) metafactory(lookup, handle, BiFunction.class, "apply",
+                            MethodType.methodType(Object.class, Object.class, Object.class), instantiated);
+                    return args -> fn.apply(args[0], args[1]);
+                }
+                default -> {
+                    return null;
+                }
+            }
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static Object metafactory(MethodHandles.Lookup lookup, MethodHandle handle, Class<?> functionalInterface,
+            String methodName, MethodType erased, MethodType instantiated) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(lookup, methodName,
+                MethodType.methodType(functionalInterface), erased, handle, instantiated);
+        return site.getTarget().invoke();
+    }
+}
@@ -0,0 +1,166 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer reutilizable en el que se serializa la cabecera de una respuesta.
+ *
+ * Cada conexión tiene el suyo y lo reinicia en cada respuesta, así que
+ * escribir la cabecera no asigna memoria: las líneas de estado y los nombres
+ * de los headers son constantes precalculadas, los valores ASCII se copian
+ * carácter a carácter y los números se escriben dígito a dígito. Los cuerpos
+ * pequeños se copian a continuación para enviar la respuesta con una sola
+ * escritura. El buffer suele ser un préstamo de un {@link BufferPool}; solo
+ * se cambia por un arreglo propio si una cabecera no cabe.
+ *
+ * @author jgamb
+ */
+final class HeadWriter {
+
+    static final byte[] CRLF = ascii("\r\n");
+    static final byte[] CONTENT_TYPE = ascii("Content-Type: ");
+    static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    static final byte[] CHUNKED = ascii("Transfer-Encoding: chunked\r\n");
+    static final byte[] KEEP_ALIVE = ascii("Connection: keep-alive\r\n");
+    static final byte[] CLOSE = ascii("Connection: close\r\n");
+    private static final byte[] SEPARATOR = ascii(": ");
+
+    /**
+     * Línea de estado completa ("HTTP/1.1 200 OK\r\n") de cada código.
+     */
+    private static final byte[][] STATUS_LINES = new byte[600][];
+
+    static {
+        for (int status = 100; status < STATUS_LINES.length; status++) {
+            STATUS_LINES[status] = ascii("HTTP/1.1 " + status + " " + Response.statusText(status) + "\r\n");
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] bytes;
+    private int base;
+    private int end;
+    private int count;
+    private ByteBuffer view;
+
+    HeadWriter() {
+        this(ByteBuffer.allocate(INITIAL_CAPACITY));
+    }
+
+    /**
+     * @param buffer buffer en el heap donde escribir (p. ej. de un
+     * {@link BufferPool}); si una cabecera no cabe se pasa a un arreglo propio
+     */
+    HeadWriter(ByteBuffer buffer) {
+        bytes = buffer.array();
+        base = buffer.arrayOffset();
+        end = base + buffer.capacity();
+        count = base;
+        view = buffer.duplicate();
+    }
+
+    HeadWriter reset() {
+        count = base;
+        return this;
+    }
+
+    HeadWriter statusLine(int status) {
+        if (status >= 100 && status < STATUS_LINES.length) {
+            return put(STATUS_LINES[status]);
+        }
+        return putAscii("HTTP/1.1 ").putLong(status).putAscii(" " + Response.statusText(status)).put(CRLF);
+    }
+
+    HeadWriter header(String name, String value) {
+        return putAscii(name).put(SEPARATOR).putAscii(value).put(CRLF);
+    }
+
+    HeadWriter put(byte[] b) {
+        return put(b, 0, b.length);
+    }
+
+    HeadWriter put(byte[] b, int offset, int length) {
+        ensure(length);
+        System.arraycopy(b, offset, bytes, count, length);
+        count += length;
+        return this;
+    }
+
+    /**
+     * Copia un texto ASCII sin pasar por un arreglo intermedio; si tiene
+     * otros caracteres se codifica en UTF-8.
+     */
+    HeadWriter putAscii(String s) {
+        int length = s.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                return put(s.getBytes(StandardCharsets.UTF_8));
+            }
+            bytes[count + i] = (byte) c;
+        }
+        count += length;
+        return this;
+    }
+
+    HeadWriter putLong(long value) {
+        if (value < 0) {
+            ensure(1);
+            bytes[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = count + digits - 1; i >= count; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    int size() {
+        return count - base;
+    }
+
+    /**
+     * @return vista de lo escrito, lista para enviarse; se reutiliza en cada
+     * llamada y deja de ser válida con el siguiente {@link #reset()}
+     */
+    ByteBuffer buffer() {
+        view.clear().limit(size());
+        return view;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, base, size());
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOfRange(bytes, base, count);
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > end) {
+            int size = size();
+            bytes = Arrays.copyOfRange(bytes, base, base + Math.max((end - base) * 2, size + extra));
+            base = 0;
+            end = bytes.length;
+            count = size;
+            view = ByteBuffer.wrap(bytes);
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,81 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Fechas HTTP (RFC 1123).
+ *
+ * El header {@code Date} de las respuestas se formatea como mucho una vez
+ * por segundo y se comparte ya serializado entre todos los hilos: el camino
+ * caliente solo compara el segundo actual con el de la copia en caché.
+ *
+ * @author jgamb
+ */
+final class HttpDate {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    /**
+     * Header Date serializado para un segundo concreto. Es inmutable, así
+     * que se publica entre hilos con una sola escritura volatile.
+     */
+    private static final class Cached {
+
+        final long second;
+        final byte[] header;
+
+        Cached(long second, byte[] header) {
+            this.second = second;
+            this.header = header;
+        }
+    }
+
+    private static volatile Cached cached = new Cached(-1, null);
+
+    private HttpDate() {
+    }
+
+    /**
+     * @param epochSecond segundos desde epoch
+     * @return la fecha en formato HTTP
+     */
+    static String format(long epochSecond) {
+        return FORMAT.format(Instant.ofEpochSecond(epochSecond));
+    }
+
+    /**
+     * @param date fecha HTTP (RFC 1123)
+     * @return segundos desde epoch, o -1 si la fecha no es válida
+     */
+    static long parse(String date) {
+        try {
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return la línea {@code Date: ...\r\n} del segundo actual; el arreglo
+     * es compartido y no debe modificarse
+     */
+    static byte[] header() {
+        long now = System.currentTimeMillis() / 1000;
+        Cached current = cached;
+        if (current.second != now) {
+            // Varios hilos pueden formatear a la vez en el cambio de segundo;
+            // todos obtienen el mismo valor
+            current = new Cached(now, ("Date: " + format(now) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            cached = current;
+        }
+        return current.header;
+    }
+}
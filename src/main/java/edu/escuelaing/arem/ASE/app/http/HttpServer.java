@@ -5,14 +5,14 @@ package edu.escuelaing.arem.ASE.app.http;
  * @author jgamb
  */
 import edu.escuelaing.arem.ASE.app.annotation.GetMapping;
-import edu.escuelaing.arem.ASE.app.annotation.RequestParam;
 import edu.escuelaing.arem.ASE.app.annotation.RestController;
 import java.net.*;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.nio.file.Files;
+import java.lang.reflect.Modifier;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
@@ -20,12 +20,17 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.reflections.Reflections;
 
 /**
  * Servidor HTTP básico que maneja peticiones GET y POST.
@@ -43,12 +48,43 @@ import org.reflections.Reflections;
  */
 public class HttpServer {
 
+    /**
+     * Transportes de red disponibles para el servidor.
+     */
+    public enum Transport {
+        /**
+         * ServerSocket bloqueante, una conexión por hilo.
+         */
+        BLOCKING,
+        /**
+         * Selector NIO no bloqueante con N event loops.
+         */
+        NIO
+    }
+
     static public int port = 35000;
-    private static final HashMap<String, String> users = new HashMap<>();
-    private static Map<String, BiFunction<Request, Response, Response>> getServices = new HashMap<>();
-    private static Map<String, BiFunction<Request, Response, Response>> postServices = new HashMap<>();
+    private static final UserRegistry users = new UserRegistry();
+    private static final Router<BiFunction<Request, Response, Response>> getServices = new Router<>();
+    private static final Router<BiFunction<Request, Response, Response>> postServices = new Router<>();
     private static String staticFilesDirectory = "";
-    private static int idCounter = 1;
+    private static volatile StaticFiles staticFiles;
+    private static int compressionThreshold = 1024;
+    private static StaticFileCache staticCache = new StaticFileCache(64L * 1024 * 1024, 1024 * 1024);
+    private static volatile ResponseCache responseCache = new ResponseCache(16L * 1024 * 1024, 256 * 1024);
+    private static boolean virtualThreads = true;
+    private static int workerThreads = Runtime.getRuntime().availableProcessors() * 2;
+    private static Transport transport = Transport.BLOCKING;
+    private static int eventLoops = Runtime.getRuntime().availableProcessors();
+    private static int maxRequestsPerConnection = 100;
+    private static int keepAliveTimeout = 5000;
+    private static long maxBodySize = 10L * 1024 * 1024;
+    static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static AdmissionController admission = new AdmissionController(256, 1024, 1000, 1);
+    private static BufferPool directBuffers = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, 64L * 1024 * 1024, true);
+    private static BufferPool heapBuffers = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, 64L * 1024 * 1024, false);
+    private static volatile AccessLog accessLog;
+    private static final Metrics metrics = new Metrics();
+    private static volatile String metricsPath = "/metrics";
 
     /**
      * Método principal que inicia el servidor HTTP.
@@ -63,7 +99,23 @@ public class HttpServer {
     public static void startServer(String[] args) throws IOException, Exception {
         loadInitialData();
         loadComponents(args);
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
+
+        if (transport == Transport.NIO) {
+            NioHttpServer nioServer = new NioHttpServer(port, eventLoops);
+            try {
+                nioServer.start();
+            } catch (IOException e) {
+                System.err.println("No se pudo iniciar el servidor en el puerto: " + port);
+                System.exit(1);
+            }
+            System.out.println("Servidor NIO escuchando en el puerto " + port + " con " + eventLoops + " event loops");
+            nioServer.join();
+            return;
+        }
+
+        // Socket respaldado por un canal: permite enviar archivos con transferTo
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(port))) {
+            ServerSocket serverSocket = serverChannel.socket();
 
             System.out.println("Servidor escuchando en el puerto " + port);
 
@@ -76,69 +128,103 @@ public class HttpServer {
         }
     }
 
+    /**
+     * Selecciona el transporte de red usado por {@link #startServer}.
+     *
+     * @param selected transporte bloqueante (por defecto) o NIO
+     */
+    public static void transport(Transport selected) {
+        transport = selected;
+    }
+
+    /**
+     * Configura el número de event loops del transporte NIO.
+     *
+     * @param loops número de event loops (mínimo 1)
+     */
+    public static void eventLoops(int loops) {
+        eventLoops = Math.max(1, loops);
+    }
+
     public static void loadComponents(String args[]) {
+        if (loadGeneratedRoutes()) {
+            return;
+        }
+        // Respaldo: sin tabla generada (p. ej. compilado sin el procesador) se escanea el classpath
         try {
             // Buscar todas las clases anotadas con @RestController
             Set<Class<?>> controllers = findRestControllers("edu.escuelaing.arem.ASE.app");
 
             for (Class<?> c : controllers) {
                 System.out.println("clase controller: " + c.getName());
-                Method[] methods = c.getDeclaredMethods();
-                for (Method m : methods) {
-                    if (m.isAnnotationPresent(GetMapping.class)) {
-                        String mapping = m.getAnnotation(GetMapping.class).value();
-                        System.out.println("nombre de metodo registrado: " + m.getName());
-                        get(mapping, (req, res) -> {
-                            try {
-                                System.out.println("retristrando metodo: " + mapping);
-                                Parameter[] parameters = m.getParameters();
-                                Object[] methodArgs = new Object[parameters.length];
-
-                                // Procesar parámetros anotados con @RequestParam
-                                for (int i = 0; i < parameters.length; i++) {
-                                    Parameter param = parameters[i];
-
-                                    if (param.isAnnotationPresent(RequestParam.class)) {
-                                        String paramName = param.getAnnotation(RequestParam.class).value();
-                                        String paramValue = req.getQueryParam(paramName);
-                                        methodArgs[i] = paramValue; // Solo String, sin conversiones
-                                    } else {
-                                        return new Response.Builder()
-                                                .withStatus(400)
-                                                .withBody("Parámetro no soportado: " + param.getName())
-                                                .build();
-                                    }
-                                }
-
-                                Object result = m.invoke(null, methodArgs);
-                                return new Response.Builder()
-                                        .withStatus(200)
-                                        .withBody(result != null ? result.toString() : "")
-                                        .build();
-
-                            } catch (IllegalAccessException | InvocationTargetException e) {
-                                return new Response.Builder()
-                                        .withStatus(500)
-                                        .withBody("Error: " + e.getMessage())
-                                        .build();
-                            }
-                        });
-                    }
-                }
+                registerController(c);
             }
         } catch (SecurityException ex) {
             Logger.getLogger(HttpServer.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
+    /**
+     * Registra por reflexión los métodos {@code @GetMapping} de un
+     * controlador. Lo usa el escaneo del classpath de
+     * {@link #loadComponents}; sirve también para controladores que el
+     * procesador de anotaciones no vio (p. ej. los de las pruebas).
+     *
+     * @param c Clase del controlador
+     */
+    public static void registerController(Class<?> c) {
+        Object instance = null;
+        Method[] methods = c.getDeclaredMethods();
+        for (Method m : methods) {
+            if (m.isAnnotationPresent(GetMapping.class)) {
+                GetMapping mapping = m.getAnnotation(GetMapping.class);
+                System.out.println("nombre de metodo registrado: " + m.getName());
+                try {
+                    // Los métodos de instancia comparten una única instancia del controlador
+                    if (instance == null && !Modifier.isStatic(m.getModifiers())) {
+                        instance = c.getDeclaredConstructor().newInstance();
+                    }
+                    // Binding y conversores resueltos una sola vez: sin reflexión por petición
+                    get(mapping.value(), ControllerInvoker.forMethod(m, instance), mapping.cacheTtl());
+                } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                    System.err.println("No se pudo registrar " + mapping.value() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Registra las rutas desde la tabla generada en compilación por
+     * {@code RouteProcessor}, evitando escanear el classpath al arrancar.
+     *
+     * @return true si la tabla existe y se registró
+     */
+    private static boolean loadGeneratedRoutes() {
+        try {
+            Class<?> registry = Class.forName(RouteRegistry.GENERATED_CLASS);
+            ((RouteRegistry) registry.getDeclaredConstructor().newInstance()).registerRoutes();
+            System.out.println("Rutas cargadas desde " + registry.getSimpleName());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            System.err.println("No se pudo cargar la tabla de rutas generada: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Carga datos iniciales de usuarios en el sistema.
      *
      * Este método se ejecuta al iniciar el servidor y registra tres usuarios
-     * por defecto: Andres, Maria y Carlos. Este metodo es solo de prueba para
-     * cargar usuarios antes de cargar el servidor.
+     * por defecto: Andres, Maria y Carlos, solo si el registro está vacío;
+     * con un {@link UserStore} los usuarios persistidos se conservan y no se
+     * vuelven a sembrar en cada arranque.
      */
     public static void loadInitialData() {
+        if (users.size() > 0) {
+            return;
+        }
         addUser("Andres");
         addUser("Maria");
         addUser("Carlos");
@@ -148,102 +234,611 @@ public class HttpServer {
      * Registra un nuevo usuario en el sistema.
      *
      * Genera automáticamente un ID único para el usuario y lo almacena en el
-     * mapa de usuarios. Este metodo es solo de prueba para cargar usuarios
-     * antes de cargar el servidor.
+     * registro de usuarios. Es seguro llamarlo desde varias peticiones a la
+     * vez.
      *
      * @param name Nombre del usuario a registrar
      */
     public static void addUser(String name) {
-        String id = String.valueOf(idCounter++);
-        users.put(id, name);
+        users.add(name);
     }
 
     /**
      * Ejecuta el bucle principal del servidor.
      *
      * Mantiene el servidor en ejecución, aceptando conexiones de clientes de
-     * forma continua hasta que se detenga el servidor.
+     * forma continua hasta que se cierre el socket del servidor. Cada conexión
+     * aceptada se entrega a un ejecutor concurrente (hilos virtuales o un pool
+     * acotado de hilos de plataforma, según la configuración), de modo que un
+     * cliente lento no bloquea a los demás.
      *
      * @param serverSocket El socket del servidor que escucha las conexiones
      */
     public static void runServer(ServerSocket serverSocket) {
 
-        Boolean running = true;
-        while (running) {
-
-            System.out.println("Listo para recibir ...");
+        try (ExecutorService executor = newConnectionExecutor()) {
+            while (!serverSocket.isClosed()) {
 
-            try (Socket clientSocket = serverSocket.accept()) {
-                handleClient(clientSocket);
+                Socket clientSocket;
+                try {
+                    clientSocket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) {
+                        break;
+                    }
+                    System.err.println("Error al aceptar el cliente: " + e.getMessage());
+                    continue;
+                }
 
-            } catch (IOException e) {
-                System.err.println("Error al procesar el cliente: " + e.getMessage());
+                try {
+                    executor.execute(() -> serveConnection(clientSocket));
+                } catch (RejectedExecutionException e) {
+                    rejectConnection(clientSocket);
+                }
             }
         }
     }
 
+    /**
+     * Configura el modo de ejecución concurrente de las conexiones.
+     *
+     * @param enabled {@code true} para atender cada conexión en un hilo
+     * virtual; {@code false} para usar un pool acotado de hilos de plataforma
+     */
+    public static void virtualThreads(boolean enabled) {
+        virtualThreads = enabled;
+    }
+
+    /**
+     * Configura el tamaño del pool de hilos de plataforma usado cuando los
+     * hilos virtuales están deshabilitados.
+     *
+     * @param threads número máximo de hilos de trabajo (mínimo 1)
+     */
+    public static void workerThreads(int threads) {
+        workerThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Crea el ejecutor que atiende las conexiones aceptadas.
+     *
+     * @return ejecutor de hilos virtuales o pool fijo de hilos de plataforma
+     */
+    private static ExecutorService newConnectionExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-conn-", 0).factory());
+        }
+        // Pool acotado: la cola de conexiones en espera también tiene límite
+        return new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, admission.getMaxQueue())),
+                Thread.ofPlatform().name("http-worker-", 0).factory());
+    }
+
+    /**
+     * Configura el control de admisión: peticiones en ejecución simultánea y
+     * peticiones en espera. Por encima de esos límites el servidor responde de
+     * inmediato 503 con Retry-After.
+     *
+     * @param maxConcurrency máximo de peticiones en ejecución
+     * @param maxQueue máximo de peticiones esperando turno
+     */
+    public static void admissionControl(int maxConcurrency, int maxQueue) {
+        admissionControl(maxConcurrency, maxQueue, 1000, 1);
+    }
+
+    /**
+     * Configura el control de admisión.
+     *
+     * @param maxConcurrency máximo de peticiones en ejecución
+     * @param maxQueue máximo de peticiones esperando turno
+     * @param queueTimeoutMillis espera máxima en cola antes de rechazar
+     * @param retryAfterSeconds valor del header Retry-After del 503
+     */
+    public static void admissionControl(int maxConcurrency, int maxQueue, long queueTimeoutMillis, int retryAfterSeconds) {
+        admission = new AdmissionController(maxConcurrency, maxQueue, queueTimeoutMillis, retryAfterSeconds);
+    }
+
+    /**
+     * @return el control de admisión activo (límites y contadores)
+     */
+    public static AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    /**
+     * Configura la caché de archivos estáticos.
+     *
+     * @param maxBytes bytes totales que puede ocupar (0 la desactiva)
+     * @param maxEntryBytes tamaño máximo de un archivo cacheable
+     */
+    public static void staticCache(long maxBytes, long maxEntryBytes) {
+        StaticFileCache previous = staticCache;
+        staticCache = new StaticFileCache(maxBytes, maxEntryBytes, previous.getCacheControl());
+        previous.close();
+    }
+
+    /**
+     * Configura el header Cache-Control de los archivos estáticos (por
+     * defecto {@code no-cache}: el navegador revalida con ETag y recibe 304).
+     *
+     * @param cacheControl valor del header, p. ej. {@code public, max-age=3600},
+     * o null para omitirlo
+     */
+    public static void staticCacheControl(String cacheControl) {
+        StaticFileCache previous = staticCache;
+        staticCache = new StaticFileCache(previous.getMaxBytes(), previous.getMaxEntryBytes(), cacheControl);
+        previous.close();
+    }
+
+    /**
+     * @return la caché de archivos estáticos activa (tamaño y contadores)
+     */
+    public static StaticFileCache getStaticFileCache() {
+        return staticCache;
+    }
+
+    /**
+     * Configura la caché de respuestas de las rutas GET registradas con TTL.
+     *
+     * @param maxBytes bytes totales que puede ocupar (0 la desactiva)
+     * @param maxEntryBytes tamaño máximo de una respuesta cacheable
+     */
+    public static void responseCache(long maxBytes, long maxEntryBytes) {
+        responseCache = new ResponseCache(maxBytes, maxEntryBytes);
+    }
+
+    /**
+     * @return la caché de respuestas activa (tamaño y contadores)
+     */
+    public static ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Configura la compresión gzip de las respuestas dinámicas.
+     *
+     * @param thresholdBytes tamaño mínimo del cuerpo a comprimir; un valor
+     * negativo desactiva la compresión al vuelo
+     */
+    public static void compression(int thresholdBytes) {
+        compressionThreshold = thresholdBytes;
+    }
+
+    /**
+     * Rechaza una conexión que no cabe en el pool de trabajo escribiendo la
+     * respuesta 503 pre-serializada y cerrando el socket.
+     *
+     * @param socket Conexión rechazada
+     */
+    private static void rejectConnection(Socket socket) {
+        try (Socket s = socket) {
+            s.getOutputStream().write(admission.serviceUnavailable());
+        } catch (IOException e) {
+            // El cliente ya cerró
+        }
+    }
+
+    /**
+     * Atiende una conexión y garantiza el cierre del socket al terminar.
+     *
+     * @param clientSocket Socket de conexión con el cliente
+     */
+    private static void serveConnection(Socket clientSocket) {
+        try (Socket socket = clientSocket) {
+            handleClient(socket);
+        } catch (IOException e) {
+            System.err.println("Error al procesar el cliente: " + e.getMessage());
+        }
+    }
+
     /**
      * Maneja la conexión de un cliente específico.
      *
-     * Procesa la petición HTTP del cliente, determina el método HTTP (GET o
-     * POST) y enruta la petición al manejador correspondiente. Finalmente envía
-     * la respuesta al cliente.
+     * Procesa las peticiones HTTP del cliente sobre una conexión persistente
+     * (HTTP/1.1 keep-alive): lee la línea de petición y los headers, enruta la
+     * petición al manejador correspondiente y escribe la respuesta, repitiendo
+     * mientras el cliente no pida {@code Connection: close}, no se supere el
+     * máximo de peticiones por conexión ni el tiempo de inactividad. Las
+     * peticiones encadenadas (pipelining) se responden en orden y las
+     * respuestas se vacían al socket solo cuando no quedan peticiones en cola.
      *
      * @param clientSocket Socket de conexión con el cliente
      */
     public static void handleClient(Socket clientSocket) {
-        try (OutputStream out = clientSocket.getOutputStream(); BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()))) {
-
-            String inputLine;
-            boolean isFirstLine = true;
-            byte[] responseBytes = "HTTP/1.1 400 Bad Request\r\n\r\n".getBytes(StandardCharsets.UTF_8);
-
-            while ((inputLine = in.readLine()) != null) {
-                System.out.println("Received: " + inputLine);
-
-                if (isFirstLine) {
-                    // Ejemplo de primera línea: "GET /index.html HTTP/1.1"
-                    String[] header = inputLine.split(" ");
-
-                    String method = header[0];
-                    URI requestUri = new URI(header[1]);
-
-                    // Seleccionar el manejador según el método HTTP
-                    responseBytes = switch (method) {
-                        case "GET" ->
-                            handleGetRequest(requestUri);
-                        case "POST" ->
-                            handlePostRequest(requestUri, in);
-                        default ->
-                            new Response.Builder().withStatus(405).withBody("Method Not Allowed").build().toBytes();
-                    };
-
-                    System.out.println("Path: " + requestUri.getPath());
-                    isFirstLine = false;
-                }
-                // Si no hay más datos en el request, salir del bucle
-                if (!in.ready()) {
+        // Buffers de la conexión prestados por el pool y devueltos al cerrarla
+        BufferPool pool = heapBuffers;
+        BufferPool.Lease headLease = pool.acquire();
+        RequestReader reader = null;
+        try (OutputStream out = new PooledOutputStream(clientSocket.getOutputStream(), pool.acquire())) {
+
+            clientSocket.setSoTimeout(keepAliveTimeout);
+            reader = new RequestReader(clientSocket.getInputStream(), pool.acquire());
+            HeadWriter responseHead = new HeadWriter(headLease.buffer());
+            int served = 0;
+            boolean keepAlive = true;
+
+            while (keepAlive) {
+                RequestParser.Result result = reader.readHead();
+                if (result == RequestParser.Result.INCOMPLETE) {
+                    // El cliente cerró la conexión
                     break;
                 }
-            }
 
-            out.write(responseBytes);
+                long start = System.nanoTime();
+                Response response;
+                if (result == RequestParser.Result.ERROR) {
+                    keepAlive = false;
+                    response = badRequest(reader.error());
+                } else {
+                    RequestHead head = reader.head();
+
+                    Response invalid = checkBodyFraming(head);
+                    if (invalid != null) {
+                        // El cuerpo no se lee: la conexión no se puede reutilizar
+                        keepAlive = false;
+                        response = invalid;
+                    } else {
+                        AdmissionController admitted = admission;
+                        if (!admitted.acquire()) {
+                            // Sobrecarga: 503 inmediato y cierre de la conexión
+                            out.write(admitted.serviceUnavailable());
+                            break;
+                        }
+                        try {
+                            served++;
+                            keepAlive = head.isKeepAlive() && served < maxRequestsPerConnection;
+                            // El 100 Continue se envía solo si el servicio lee el cuerpo
+                            RequestReader.BodyStream body = reader.body(maxBodySize,
+                                    head.expectsContinue() ? () -> writeContinue(out) : null);
+                            try {
+                                response = dispatch(new Request.Builder()
+                                        .withHead(head)
+                                        .withBody(new RequestBody(body))
+                                        .build());
+                            } catch (UncheckedIOException e) {
+                                keepAlive = false;
+                                response = bodyError(e);
+                            } catch (RuntimeException e) {
+                                // Fallo del servicio: 500 y la conexión sigue
+                                response = serverError(e);
+                            }
+                            if (keepAlive && !body.finish()) {
+                                keepAlive = false;
+                            }
+                        } finally {
+                            admitted.release();
+                        }
+                    }
+                }
+
+                response.writeTo(out, clientSocket.getChannel(), responseHead, keepAlive);
+                if (result == RequestParser.Result.COMPLETE) {
+                    logAccess(clientSocket.getInetAddress(), reader.head(), response, start);
+                }
+                reader.finishRequest();
+
+                // Con pipelining, agrupar respuestas mientras haya peticiones en cola
+                if (!reader.hasBufferedData()) {
+                    out.flush();
+                }
+            }
             out.flush();
+        } catch (SocketTimeoutException e) {
+            // Conexión inactiva: se cierra sin respuesta
         } catch (IOException e) {
             System.err.println("Error I/O con el cliente: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error inesperado: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+            headLease.release();
+        }
+    }
+
+    private static void writeContinue(OutputStream out) throws IOException {
+        out.write(CONTINUE);
+        out.flush();
+    }
+
+    /**
+     * Construye una respuesta 400 para una petición malformada.
+     *
+     * @param message Descripción del error
+     * @return Respuesta 400
+     */
+    static Response badRequest(String message) {
+        return new Response.Builder()
+                .withStatus(400)
+                .withBody("{\"error\": \"" + message + "\"}")
+                .build();
+    }
+
+    /**
+     * @param e Excepción lanzada por el servicio
+     * @return Respuesta 500 con el mensaje de la excepción
+     */
+    static Response serverError(RuntimeException e) {
+        return new Response.Builder()
+                .withStatus(500)
+                .withBody("{\"error\": \"Server Error: " + e.getMessage() + "\"}")
+                .build();
+    }
+
+    /**
+     * @return Respuesta 413 para un cuerpo mayor que {@link #maxBodySize}
+     */
+    static Response payloadTooLarge() {
+        return new Response.Builder()
+                .withStatus(413)
+                .withBody("{\"error\": \"Request body exceeds " + maxBodySize + " bytes\"}")
+                .build();
+    }
+
+    /**
+     * Valida cómo se delimita el cuerpo antes de leerlo: solo se admite
+     * {@code chunked} como Transfer-Encoding, no junto a Content-Length, y un
+     * Content-Length no puede superar {@link #maxBodySize}.
+     *
+     * @param head Cabecera de la petición
+     * @return la respuesta de error (400, 413 o 501), o null si el cuerpo se
+     * puede leer
+     */
+    static Response checkBodyFraming(RequestHead head) {
+        String transferEncoding = head.header("transfer-encoding");
+        long contentLength = head.contentLength();
+        if (transferEncoding != null) {
+            if (!transferEncoding.trim().equalsIgnoreCase("chunked")) {
+                return new Response.Builder()
+                        .withStatus(501)
+                        .withBody("{\"error\": \"Unsupported Transfer-Encoding\"}")
+                        .build();
+            }
+            return contentLength == -1 ? null : badRequest("Both Content-Length and Transfer-Encoding");
+        }
+        if (contentLength < -1) {
+            return badRequest("Invalid Content-Length header");
+        }
+        return contentLength > maxBodySize ? payloadTooLarge() : null;
+    }
+
+    /**
+     * @return la respuesta para un error al leer el cuerpo desde un servicio:
+     * 413 si superó el máximo y 400 si estaba incompleto o mal formado
+     */
+    static Response bodyError(UncheckedIOException e) {
+        return e.getCause() instanceof PayloadTooLargeException
+                ? payloadTooLarge()
+                : badRequest("Invalid request body");
+    }
+
+    /**
+     * Lee los headers de la petición hasta la línea en blanco.
+     *
+     * @param in Lector posicionado después de la línea de petición
+     * @return Headers con nombres en minúsculas
+     * @throws IOException Si falla la lectura
+     */
+    private static Map<String, String> readHeaders(BufferedReader in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Lee {@code contentLength} bytes del cuerpo desde un lector. El lector
+     * entrega caracteres ya decodificados, así que los bytes se estiman
+     * recodificando cada uno en UTF-8; la cuenta solo es exacta si el lector
+     * decodificó UTF-8 válido.
+     *
+     * @param in Lector posicionado al inicio del cuerpo
+     * @param contentLength Longitud declarada del cuerpo
+     * @return Cuerpo leído (vacío si no hay)
+     * @throws IOException Si falla la lectura
+     */
+    private static String readBody(BufferedReader in, int contentLength) throws IOException {
+        if (contentLength <= 0) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        int bytes = 0;
+        while (bytes < contentLength) {
+            int c = in.read();
+            if (c < 0) {
+                break;
+            }
+            body.append((char) c);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate((char) c)) {
+                // El par sustituto completo ocupa 4 bytes
+                bytes += 4;
+                int low = in.read();
+                if (low >= 0) {
+                    body.append((char) low);
+                }
+            } else {
+                bytes += 3;
+            }
+        }
+        return body.toString();
+    }
+
+    /**
+     * Configura el número máximo de peticiones atendidas por conexión
+     * persistente antes de cerrarla.
+     *
+     * @param max máximo de peticiones (mínimo 1)
+     */
+    public static void maxRequestsPerConnection(int max) {
+        maxRequestsPerConnection = Math.max(1, max);
+    }
+
+    /**
+     * Configura el tiempo máximo de inactividad de una conexión persistente.
+     *
+     * @param millis milisegundos de espera por la siguiente petición
+     */
+    public static void keepAliveTimeout(int millis) {
+        keepAliveTimeout = Math.max(1, millis);
+    }
+
+    /**
+     * Configura el tamaño máximo del cuerpo de una petición. Un
+     * Content-Length mayor se rechaza con 413 antes de leer el cuerpo (y sin
+     * enviar {@code 100 Continue}); un cuerpo chunked se corta al superarlo.
+     *
+     * @param bytes tamaño máximo en bytes
+     */
+    public static void maxBodySize(long bytes) {
+        maxBodySize = Math.max(0, bytes);
+    }
+
+    public static long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * Configura los pools de buffers de E/S de las conexiones. Cada pool
+     * reserva memoria en bloques hasta su máximo; por encima se entregan
+     * buffers sueltos. Solo afecta a las conexiones que se abran después.
+     *
+     * @param directMaxBytes memoria fuera del heap para las lecturas NIO
+     * @param heapMaxBytes memoria en el heap para el transporte bloqueante y
+     * las cabeceras de respuesta
+     */
+    public static void bufferPools(long directMaxBytes, long heapMaxBytes) {
+        directBuffers = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, directMaxBytes, true);
+        heapBuffers = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, heapMaxBytes, false);
+    }
+
+    /**
+     * @return el pool de buffers directos (utilización y fugas)
+     */
+    public static BufferPool getDirectBufferPool() {
+        return directBuffers;
+    }
+
+    /**
+     * @return el pool de buffers en el heap (utilización y fugas)
+     */
+    public static BufferPool getHeapBufferPool() {
+        return heapBuffers;
+    }
+
+    /**
+     * Activa el registro de accesos, cerrando el anterior si lo había.
+     *
+     * @param log registro de accesos, o null para desactivarlo
+     */
+    public static void accessLog(AccessLog log) {
+        AccessLog previous = accessLog;
+        accessLog = log;
+        if (previous != null) {
+            previous.close();
         }
     }
 
+    /**
+     * @return el registro de accesos activo, o null si está desactivado
+     */
+    public static AccessLog getAccessLog() {
+        return accessLog;
+    }
+
+    /**
+     * Persiste el registro de usuarios en un almacén durable: carga los
+     * usuarios recuperados (reemplazando los que hubiera en memoria) y
+     * escribe en él las altas siguientes. Cierra el almacén anterior.
+     *
+     * @param store almacén abierto, o null para volver a solo memoria
+     */
+    public static void userStore(UserStore store) {
+        UserStore previous = users.getStore();
+        users.attach(store);
+        if (previous != null && previous != store) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Registra una petición atendida en el registro de accesos, si está
+     * activo. Debe llamarse antes de descartar la cabecera.
+     *
+     * @param remote dirección del cliente
+     * @param head cabecera de la petición
+     * @param response respuesta enviada
+     * @param startNanos {@link System#nanoTime()} al recibir la petición
+     */
+    static void logAccess(InetAddress remote, RequestHead head, Response response, long startNanos) {
+        AccessLog log = accessLog;
+        if (log != null) {
+            log.log(remote, head, response.getStatus(), response.getBodyLength(), System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Configura la ruta del endpoint de métricas en formato Prometheus (por
+     * defecto {@code /metrics}). Un servicio GET registrado en la misma ruta
+     * tiene prioridad.
+     *
+     * @param path ruta del endpoint, o null para no exponerlo
+     */
+    public static void metricsEndpoint(String path) {
+        metricsPath = path;
+    }
+
+    /**
+     * @return las métricas por ruta del servidor
+     */
+    public static Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registra en las métricas una petición despachada.
+     *
+     * @param req petición, con la ruta que la atendió
+     * @param status código de estado de la respuesta
+     * @param bytesOut bytes del cuerpo de la respuesta
+     * @param startNanos {@link System#nanoTime()} al empezar a despacharla
+     */
+    private static void recordMetrics(Request req, int status, long bytesOut, long startNanos) {
+        String method = req.getMethod();
+        if (!method.equals("GET") && !method.equals("POST")) {
+            // Métodos arbitrarios del cliente no deben crear series nuevas
+            method = "OTHER";
+        }
+        metrics.record(method, req.getRoute(), status, req.getReceivedBodyLength(), bytesOut,
+                System.nanoTime() - startNanos);
+    }
+
+    static int getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    static int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
     /**
      * Maneja las peticiones HTTP GET.
      *
      * Procesa las solicitudes GET de dos maneras: 1. Si la ruta coincide con un
-     * servicio registrado en {@code getServices}, ejecuta su lógica. 2. Si no
-     * coincide, intenta devolver un archivo estático desde el directorio
-     * configurado. En caso de no encontrarlo, retorna un error 404. Si ocurre
-     * un problema interno, retorna 500.
+     * servicio registrado en {@code getServices} (plantillas como
+     * {@code /users/{id}} incluidas), ejecuta su lógica. 2. Si no coincide,
+     * busca la ruta en el índice de archivos estáticos y la sirve desde la
+     * caché en memoria. En caso de no encontrarlo, retorna un error 404 sin
+     * acceder al disco. Si ocurre un problema interno, retorna 500.
      *
      * @param uriReq URI de la petición que incluye la ruta solicitada y
      * posibles parámetros
@@ -251,48 +846,86 @@ public class HttpServer {
      * cuerpo)
      */
     public static byte[] handleGetRequest(URI uriReq) {
+        long start = System.nanoTime();
+        Request req = new Request.Builder().withMethod("GET").withUri(uriReq).build();
+        Response response = handleGet(req);
+        recordMetrics(req, response.getStatus(), response.getBodyLength(), start);
+        return response.toBytes();
+    }
+
+    /**
+     * Despacha una petición GET ya construida hacia el servicio registrado o
+     * hacia los archivos estáticos.
+     *
+     * @param req Petición GET
+     * @return Respuesta HTTP generada
+     */
+    static Response handleGet(Request req) {
 
-        String path = uriReq.getPath();
+        String path = req.getPath();
 
-        if (getServices.containsKey(path)) {
+        Router.Match<BiFunction<Request, Response, Response>> route = getServices.find(path);
+        if (route != null) {
+            req.setPathParams(route.params());
+            req.setRoute(route.template());
             //plantilla de referencia para el lambda
             Response res = new Response.Builder().build();
-            Request req = new Request.Builder().withUri(uriReq).build();
-            Response response = getServices.get(path).apply(req, res);
-            return response.toBytes();
+            return route.handler().apply(req, res);
+        }
+        if (path.equals(metricsPath)) {
+            req.setRoute(metricsPath);
+            return new Response.Builder()
+                    .withContentType("text/plain; version=0.0.4; charset=utf-8")
+                    .withBody(metrics.toPrometheus())
+                    .build();
         }
         try {
-            File file = resolveStaticFile(path);
-
-            if (file == null || !file.exists() || file.isDirectory()) {
-                Response res = new Response.Builder()
-                        .withStatus(404)
-                        .withBody("{\"error\": \"Endpoint get not found\"}")
-                        .build();
+            Path file = staticFiles().find(path);
 
-                return res.toBytes();
+            if (file == null) {
+                return notFound();
             }
+            req.setRoute(Metrics.STATIC_ROUTE);
 
-            String contentType = Files.probeContentType(file.toPath());
-            byte[] fileBytes = Files.readAllBytes(file.toPath());
-
-            Response res = new Response.Builder()
-                    .withContentType(contentType != null ? contentType : "application/octet-stream")
-                    .withBodyBytes(fileBytes)
-                    .build();
-
-            return res.toBytes();
+            StaticFileCache.Entry entry = staticCache.get(file);
+            boolean gzip = entry.hasGzip() && Compression.acceptsGzip(req.getHeader("accept-encoding"));
+            if (entry.notModified(req.getHeader("if-none-match"), req.getHeader("if-modified-since"))) {
+                return Response.notModified(entry.contentType,
+                        gzip ? entry.gzipNotModifiedHead : entry.notModifiedHead);
+            }
+            String range = req.getHeader("range");
+            if (range != null) {
+                // Los rangos se sirven siempre sobre la representación sin comprimir
+                Response partial = ByteRanges.respond(entry, file, range, req.getHeader("if-range"));
+                if (partial != null) {
+                    return partial;
+                }
+            }
+            if (gzip) {
+                return Response.preserialized(entry.contentType, entry.gzipHead, entry.gzipBody);
+            }
+            return entry.inMemory()
+                    ? Response.preserialized(entry.contentType, entry.head, entry.body)
+                    : Response.preserialized(entry.contentType, entry.head, file, entry.length);
 
+        } catch (NoSuchFileException e) {
+            // Borrado después de indexar
+            return notFound();
         } catch (IOException e) {
-            Response res = new Response.Builder()
+            return new Response.Builder()
                     .withStatus(500)
                     .withBody("500 - Server Error: " + e.getMessage())
                     .build();
-
-            return res.toBytes();
         }
     }
 
+    private static Response notFound() {
+        return new Response.Builder()
+                .withStatus(404)
+                .withBody("{\"error\": \"Endpoint get not found\"}")
+                .build();
+    }
+
     /**
      * Maneja las peticiones HTTP POST.
      *
@@ -302,61 +935,47 @@ public class HttpServer {
      * un objeto {@code Request} con la información obtenida. 4. Si la ruta
      * solicitada está registrada en {@code postServices}, ejecuta el servicio
      * asociado. 5. Si no existe un servicio para la ruta, devuelve un error
-     * 404. En caso de error de E/S se devuelve 500, y si Content-Length no es
-     * válido se devuelve 400.
+     * 404. En caso de error de E/S se devuelve 500, si Content-Length no es
+     * válido se devuelve 400 y si supera {@link #maxBodySize}, 413.
+     *
+     * El lector ya decodificó los bytes, así que el cuerpo se mide estimando
+     * su longitud en UTF-8: si el lector no decodifica UTF-8, o el cuerpo trae
+     * secuencias inválidas, la cantidad leída y el límite son aproximados.
+     * Los transportes leen la conexión con {@link RequestReader}, que cuenta
+     * los bytes recibidos.
      *
      * @param uriReq URI de la petición que incluye la ruta solicitada
      * @param in BufferedReader para leer los encabezados y el cuerpo de la
      * petición
      * @return Array de bytes con la respuesta HTTP completa (encabezados +
      * cuerpo)
+     * @deprecated Cuenta el cuerpo sobre caracteres decodificados; los
+     * transportes usan {@link #dispatch(Request)} con el cuerpo leído por
+     * {@link RequestReader}
      */
+    @Deprecated
     public static byte[] handlePostRequest(URI uriReq, BufferedReader in) {
 
+        long start = System.nanoTime();
         try {
-            Map<String, String> headers = new HashMap<>();
-            String line;
-            int contentLength = 0;
-            // Leer el Content-Length del encabezado para saber cuántos caracteres esperar en el cuerpo
-            while ((line = in.readLine()) != null && !line.isEmpty()) {
-                if (line.contains(":")) {
-                    String[] parts = line.split(":", 2);
-                    String headerName = parts[0].trim().toLowerCase();
-                    String headerValue = parts[1].trim();
-                    headers.put(headerName, headerValue);
-
-                    if (headerName.equals("content-length")) {
-                        contentLength = Integer.parseInt(headerValue);
-                    }
-                }
-            }
-
-            String body = "";
-            if (contentLength > 0) {
-                char[] bodyChars = new char[contentLength];
-                in.read(bodyChars, 0, contentLength);
-                body = new String(bodyChars);
+            Map<String, String> headers = readHeaders(in);
+            // Leer el Content-Length del encabezado para saber cuántos bytes esperar en el cuerpo
+            long contentLength = contentLength(headers);
+            if (contentLength > Math.min(maxBodySize, Integer.MAX_VALUE)) {
+                return payloadTooLarge().toBytes();
             }
+            String body = readBody(in, (int) contentLength);
 
             Request req = new Request.Builder()
+                    .withMethod("POST")
                     .withUri(uriReq)
                     .withBody(body)
                     .withHeaders(headers)
                     .build();
 
-            String path = uriReq.getPath();
-
-            // Verificar si existe un servicio POST registrado para esta ruta
-            if (postServices.containsKey(path)) {
-                Response res = new Response.Builder().build();
-                Response response = postServices.get(path).apply(req, res);
-                return response.toBytes();
-            }
-
-            return new Response.Builder()
-                    .withStatus(404)
-                    .withBody("{\"error\": \"Endpoint not found\"}")
-                    .build().toBytes();
+            Response response = handlePost(req);
+            recordMetrics(req, response.getStatus(), response.getBodyLength(), start);
+            return response.toBytes();
 
         } catch (IOException e) {
             Response res = new Response.Builder()
@@ -375,78 +994,209 @@ public class HttpServer {
         }
     }
 
+    /**
+     * @return Content-Length declarado, o 0 si no hay
+     * @throws NumberFormatException Si no es un número no negativo
+     */
+    private static long contentLength(Map<String, String> headers) {
+        String length = headers.get("content-length");
+        long contentLength = length != null ? Long.parseLong(length) : 0;
+        if (contentLength < 0) {
+            throw new NumberFormatException("Content-Length negativo");
+        }
+        return contentLength;
+    }
+
+    /**
+     * Despacha una petición POST ya construida hacia el servicio registrado.
+     * Si no existe un servicio para la ruta, devuelve un error 404.
+     *
+     * @param req Petición POST con headers y cuerpo
+     * @return Respuesta HTTP generada
+     */
+    static Response handlePost(Request req) {
+        Router.Match<BiFunction<Request, Response, Response>> route = postServices.find(req.getPath());
+
+        // Verificar si existe un servicio POST registrado para esta ruta
+        if (route != null) {
+            req.setPathParams(route.params());
+            req.setRoute(route.template());
+            Response res = new Response.Builder().build();
+            return route.handler().apply(req, res);
+        }
+
+        return new Response.Builder()
+                .withStatus(404)
+                .withBody("{\"error\": \"Endpoint not found\"}")
+                .build();
+    }
+
+    /**
+     * Enruta una petición según su método HTTP. Es el punto de entrada común
+     * a todos los transportes (bloqueante y NIO). Las respuestas dinámicas de
+     * texto se comprimen con gzip si el cliente lo acepta. Un cuerpo en
+     * streaming se acumula en memoria si el cliente es HTTP/1.0, que no
+     * admite chunked. Cada petición se registra en las métricas de su ruta;
+     * si el servicio lanza una excepción cuenta como 500.
+     *
+     * @param req Petición completa (método, URI, headers y cuerpo)
+     * @return Respuesta HTTP generada
+     */
+    public static Response dispatch(Request req) {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = switch (req.getMethod()) {
+                case "GET" ->
+                    handleGet(req);
+                case "POST" ->
+                    handlePost(req);
+                default ->
+                    new Response.Builder()
+                            .withStatus(405)
+                            .addHeader("Allow", "GET, POST")
+                            .withBody("Method Not Allowed")
+                            .build();
+            };
+        } catch (RuntimeException e) {
+            recordMetrics(req, 500, 0, start);
+            throw e;
+        }
+        if (response.isStreaming() && !req.isHttp11()) {
+            response.bufferBody();
+        }
+        if (compressionThreshold >= 0) {
+            Compression.apply(req, response, compressionThreshold);
+        }
+        recordMetrics(req, response.getStatus(), response.getBodyLength(), start);
+        return response;
+    }
+
     /**
      * Obtiene el mapa de usuarios registrados.
      *
-     * @return HashMap con los usuarios registrados (ID -> Nombre)
+     * @return vista del registro de usuarios (ID -> Nombre)
+     */
+    public static Map<String, String> getUsers() {
+        return users.asMap();
+    }
+
+    /**
+     * @return el registro de usuarios, con búsqueda por nombre en O(1)
      */
-    public static HashMap<String, String> getUsers() {
+    public static UserRegistry getUserRegistry() {
         return users;
     }
 
+    /**
+     * Registra un servicio GET. La ruta puede ser literal o una plantilla con
+     * parámetros ({@code /users/{id}}) o comodín final ({@code /files/*}); los
+     * valores capturados se leen con {@link Request#getPathParam(String)}.
+     *
+     * @param path Ruta o plantilla
+     * @param handler Lógica del servicio
+     */
     public static void get(String path, BiFunction<Request, Response, Response> handler) {
-        getServices.put(path, handler);
+        getServices.add(path, handler);
+    }
+
+    /**
+     * Registra un servicio GET idempotente cuyas respuestas se guardan en la
+     * {@link ResponseCache}: mientras dure el TTL, la misma ruta y query se
+     * responden con los bytes ya serializados sin ejecutar el servicio. El
+     * resultado debe depender solo de la ruta y la query.
+     *
+     * @param path Ruta o plantilla
+     * @param handler Lógica del servicio
+     * @param ttlMillis vigencia de cada respuesta; 0 o menos no cachea
+     */
+    public static void get(String path, BiFunction<Request, Response, Response> handler, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            get(path, handler);
+            return;
+        }
+        // Las entradas llevan el servicio como dueño: las de uno anterior en la ruta no se sirven
+        get(path, (req, res) -> cached(req, res, handler, ttlMillis));
     }
 
+    private static Response cached(Request req, Response res, BiFunction<Request, Response, Response> handler,
+            long ttlMillis) {
+        ResponseCache cache = responseCache;
+        if (!cache.isEnabled()) {
+            // Caché desactivada: ni clave ni búsqueda
+            return handler.apply(req, res);
+        }
+        boolean gzip = compressionThreshold >= 0 && Compression.acceptsGzip(req.getHeader("accept-encoding"));
+        String key = ResponseCache.key(req, gzip);
+        ResponseCache.Entry entry = cache.get(key, handler);
+        if (entry != null) {
+            return entry.toResponse();
+        }
+        Response response = handler.apply(req, res);
+        // Se guarda la representación final, comprimida si corresponde
+        if (compressionThreshold >= 0) {
+            Compression.apply(req, response, compressionThreshold);
+        }
+        cache.put(key, handler, response, ttlMillis);
+        return response;
+    }
+
+    /**
+     * Registra un servicio POST. Acepta las mismas plantillas que
+     * {@link #get(String, BiFunction)}.
+     *
+     * @param path Ruta o plantilla
+     * @param handler Lógica del servicio
+     */
     public static void post(String path, BiFunction<Request, Response, Response> handler) {
-        postServices.put(path, handler);
+        postServices.add(path, handler);
     }
 
     /**
      * Configura la carpeta base donde buscar ficheros estáticos. Ej:
      * staticfiles("/webroot") -> buscará en target/classes/webroot
      *
+     * La carpeta se indexa en este momento; los archivos añadidos después no
+     * se sirven hasta volver a llamar a este método.
+     *
      * @param dir directorio donde se ubican los archivos estáticos
      */
     public static void staticfiles(String dir) {
         if (dir == null || dir.isBlank()) {
             staticFilesDirectory = "";
-            return;
-        }
-        String d = dir.startsWith("/") ? dir : "/" + dir;
-        if (d.endsWith("/")) {
-            d = d.substring(0, d.length() - 1);
+        } else {
+            String d = dir.startsWith("/") ? dir : "/" + dir;
+            if (d.endsWith("/")) {
+                d = d.substring(0, d.length() - 1);
+            }
+            staticFilesDirectory = d;
         }
-        staticFilesDirectory = d;
+        staticFiles = StaticFiles.index(staticFilesDirectory);
     }
 
     /**
-     * Resuelve la ruta de un archivo estático solicitado.
-     *
-     * Decodifica la URI, sirve index.html si la ruta es raíz y previene ataques
-     * de path traversal asegurando que el archivo esté dentro del directorio
-     * base configurado.
-     *
-     * @param requestPath Ruta solicitada en la petición
-     * @return Archivo solicitado o {@code null} si es acceso no permitido
-     * @throws IOException Si falla la resolución de rutas
+     * @return el índice de archivos estáticos, construyéndolo sobre el
+     * directorio por defecto si aún no se configuró
      */
-    private static File resolveStaticFile(String requestPath) throws IOException {
-        // decodifica %20 y similares
-        String decoded = java.net.URLDecoder.decode(requestPath, StandardCharsets.UTF_8.name());
-
-        // si la petición es raíz, servir index.html
-        if (decoded.equals("/") || decoded.isEmpty()) {
-            decoded = "/index.html";
-        }
-
-        // usar ClassLoader para buscar en target/classes (lo que Maven genera)
-        String resourcePath = (staticFilesDirectory + decoded).replaceFirst("^/", "");
-        java.net.URL resourceUrl = HttpServer.class.getClassLoader().getResource(resourcePath);
-
-        if (resourceUrl == null) {
-            return null; // recurso no encontrado
+    private static StaticFiles staticFiles() {
+        StaticFiles index = staticFiles;
+        if (index == null) {
+            synchronized (HttpServer.class) {
+                if (staticFiles == null) {
+                    staticFiles = StaticFiles.index(staticFilesDirectory);
+                }
+                index = staticFiles;
+            }
         }
-
-        return new File(resourceUrl.getFile());
+        return index;
     }
 
     public Map<String, BiFunction<Request, Response, Response>> getGetServices() {
-        return getServices;
+        return getServices.asMap();
     }
 
     public Map<String, BiFunction<Request, Response, Response>> getPostServices() {
-        return postServices;
+        return postServices.asMap();
     }
 
 
@@ -0,0 +1,364 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas por ruta: peticiones, respuestas por clase de estado, bytes
+ * recibidos y enviados e histograma de latencias.
+ *
+ * Cada ruta (método y plantilla registrada) tiene un {@link RouteStats} que
+ * se busca en un {@link ConcurrentHashMap} por la misma instancia de la
+ * plantilla, sin cerrojos; solo la primera petición de una ruta lo crea. Los
+ * contadores son {@link LongAdder}, que reparten la contención entre celdas
+ * por hilo, así que registrar una petición nunca bloquea.
+ *
+ * El histograma es log-lineal al estilo HDR: cada potencia de 2 de
+ * microsegundos se divide en {@value #SUB_BUCKETS} sub-buckets, con un error
+ * relativo máximo del 25% entre 1 µs y ~70 min. Para Prometheus se agregan
+ * en los límites {@code le} estándar.
+ *
+ * @author jgamb
+ */
+public final class Metrics {
+
+    /**
+     * Ruta de las peticiones servidas desde los archivos estáticos.
+     */
+    public static final String STATIC_ROUTE = "<static>";
+    /**
+     * Ruta de las peticiones que no coinciden con ningún servicio ni archivo.
+     */
+    public static final String UNMATCHED_ROUTE = "<unmatched>";
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 32;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    /**
+     * Límites {@code le} exportados, en segundos.
+     */
+    private static final double[] EXPORTED_BOUNDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+        0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final String[] EXPORTED_LABELS = new String[EXPORTED_BOUNDS.length];
+
+    static {
+        for (int i = 0; i < EXPORTED_BOUNDS.length; i++) {
+            EXPORTED_LABELS[i] = "le=\"" + BigDecimal.valueOf(EXPORTED_BOUNDS[i]).stripTrailingZeros().toPlainString() + "\"";
+        }
+    }
+
+    private final Map<String, Map<String, RouteStats>> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Contadores de una ruta.
+     */
+    public static final class RouteStats {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder[] statusClasses = new LongAdder[STATUS_CLASSES.length];
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder latencyMicros = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        RouteStats() {
+            for (int i = 0; i < statusClasses.length; i++) {
+                statusClasses[i] = new LongAdder();
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(int status, long in, long out, long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            requests.increment();
+            int statusClass = status / 100 - 1;
+            if (statusClass >= 0 && statusClass < statusClasses.length) {
+                statusClasses[statusClass].increment();
+            }
+            bytesIn.add(in);
+            bytesOut.add(out);
+            latencyMicros.add(micros);
+            buckets[bucket(micros)].increment();
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        /**
+         * @param statusClass clase de estado (1 a 5)
+         * @return respuestas con ese código {@code Nxx}
+         */
+        public long getResponses(int statusClass) {
+            return statusClass >= 1 && statusClass <= statusClasses.length
+                    ? statusClasses[statusClass - 1].sum()
+                    : 0;
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        /**
+         * @param quantile cuantil entre 0 y 1 (p. ej. 0.99)
+         * @return límite superior en microsegundos del bucket que contiene
+         * el cuantil, o 0 si no hay peticiones
+         */
+        public long getLatencyPercentile(double quantile) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(Math.max(0, Math.min(1, quantile)) * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, rank)) {
+                    return upperBound(i) - 1;
+                }
+            }
+            return upperBound(counts.length - 1) - 1;
+        }
+    }
+
+    /**
+     * Registra una petición atendida.
+     *
+     * @param method método HTTP
+     * @param route plantilla de la ruta, {@link #STATIC_ROUTE} o
+     * {@link #UNMATCHED_ROUTE}
+     * @param status código de estado
+     * @param bytesIn bytes del cuerpo recibido
+     * @param bytesOut bytes del cuerpo enviado
+     * @param nanos duración
+     */
+    public void record(String method, String route, int status, long bytesIn, long bytesOut, long nanos) {
+        route(method, route).record(status, bytesIn, bytesOut, nanos);
+    }
+
+    /**
+     * @return los contadores de la ruta, creándolos si no existen
+     */
+    public RouteStats route(String method, String route) {
+        Map<String, RouteStats> byRoute = routes.get(method);
+        if (byRoute == null) {
+            byRoute = routes.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        }
+        RouteStats stats = byRoute.get(route);
+        if (stats == null) {
+            stats = byRoute.computeIfAbsent(route, r -> new RouteStats());
+        }
+        return stats;
+    }
+
+    /**
+     * @return los contadores de la ruta, o null si no ha recibido peticiones
+     */
+    public RouteStats find(String method, String route) {
+        Map<String, RouteStats> byRoute = routes.get(method);
+        return byRoute != null ? byRoute.get(route) : null;
+    }
+
+    /**
+     * Borra todas las métricas.
+     */
+    public void reset() {
+        routes.clear();
+    }
+
+    /**
+     * Serializa las métricas en el formato de texto de Prometheus 0.0.4,
+     * seguidas de los indicadores del servidor (admisión, pools de buffers,
+     * caché de estáticos y registro de accesos).
+     *
+     * @return el texto de exposición
+     */
+    public String toPrometheus() {
+        Map<String, Map<String, RouteStats>> sorted = new TreeMap<>();
+        routes.forEach((method, byRoute) -> sorted.put(method, new TreeMap<>(byRoute)));
+
+        StringBuilder out = new StringBuilder(4096);
+        header(out, "http_requests_total", "counter", "Peticiones atendidas por ruta");
+        sorted.forEach((method, byRoute) -> byRoute.forEach((route, stats)
+                -> sample(out, "http_requests_total", method, route, null, stats.getRequests())));
+
+        header(out, "http_responses_total", "counter", "Respuestas por ruta y clase de estado");
+        sorted.forEach((method, byRoute) -> byRoute.forEach((route, stats) -> {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                long count = stats.statusClasses[i].sum();
+                if (count > 0) {
+                    sample(out, "http_responses_total", method, route, "status=\"" + STATUS_CLASSES[i] + "\"", count);
+                }
+            }
+        }));
+
+        header(out, "http_request_bytes_total", "counter", "Bytes de cuerpo recibidos por ruta");
+        sorted.forEach((method, byRoute) -> byRoute.forEach((route, stats)
+                -> sample(out, "http_request_bytes_total", method, route, null, stats.getBytesIn())));
+
+        header(out, "http_response_bytes_total", "counter", "Bytes de cuerpo enviados por ruta");
+        sorted.forEach((method, byRoute) -> byRoute.forEach((route, stats)
+                -> sample(out, "http_response_bytes_total", method, route, null, stats.getBytesOut())));
+
+        header(out, "http_request_duration_seconds", "histogram", "Latencia de las peticiones por ruta");
+        sorted.forEach((method, byRoute) -> byRoute.forEach((route, stats) -> histogram(out, method, route, stats)));
+
+        serverGauges(out);
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String method, String route, RouteStats stats) {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = stats.buckets[i].sum();
+        }
+        long cumulative = 0;
+        int next = 0;
+        for (int b = 0; b < EXPORTED_BOUNDS.length; b++) {
+            long boundMicros = Math.round(EXPORTED_BOUNDS[b] * 1_000_000);
+            // Un bucket cuenta para el límite si todos sus valores caben en él
+            while (next < BUCKETS && upperBound(next) - 1 <= boundMicros) {
+                cumulative += counts[next++];
+            }
+            sample(out, "http_request_duration_seconds_bucket", method, route, EXPORTED_LABELS[b], cumulative);
+        }
+        long total = cumulative;
+        while (next < BUCKETS) {
+            total += counts[next++];
+        }
+        sample(out, "http_request_duration_seconds_bucket", method, route, "le=\"+Inf\"", total);
+        out.append("http_request_duration_seconds_sum");
+        labels(out, method, route, null);
+        out.append(' ').append(BigDecimal.valueOf(stats.latencyMicros.sum(), 6).stripTrailingZeros().toPlainString())
+                .append('\n');
+        sample(out, "http_request_duration_seconds_count", method, route, null, total);
+    }
+
+    private static void serverGauges(StringBuilder out) {
+        AdmissionController admission = HttpServer.getAdmissionController();
+        gauge(out, "http_inflight_requests", "gauge", "Peticiones en ejecución", admission.getInFlight());
+        gauge(out, "http_queued_requests", "gauge", "Peticiones esperando turno", admission.getQueued());
+        gauge(out, "http_admitted_total", "counter", "Peticiones admitidas", admission.getAdmitted());
+        gauge(out, "http_rejected_total", "counter", "Peticiones rechazadas con 503", admission.getRejected());
+
+        BufferPool direct = HttpServer.getDirectBufferPool();
+        BufferPool heap = HttpServer.getHeapBufferPool();
+        header(out, "http_buffer_pool_in_use", "gauge", "Buffers prestados");
+        out.append("http_buffer_pool_in_use{pool=\"direct\"} ").append(direct.getInUse()).append('\n');
+        out.append("http_buffer_pool_in_use{pool=\"heap\"} ").append(heap.getInUse()).append('\n');
+        header(out, "http_buffer_pool_capacity", "gauge", "Buffers reservados en bloques");
+        out.append("http_buffer_pool_capacity{pool=\"direct\"} ").append(direct.getCapacity()).append('\n');
+        out.append("http_buffer_pool_capacity{pool=\"heap\"} ").append(heap.getCapacity()).append('\n');
+        header(out, "http_buffer_pool_leaks_total", "counter", "Buffers recogidos sin devolver");
+        out.append("http_buffer_pool_leaks_total{pool=\"direct\"} ").append(direct.getLeaks()).append('\n');
+        out.append("http_buffer_pool_leaks_total{pool=\"heap\"} ").append(heap.getLeaks()).append('\n');
+
+        StaticFileCache cache = HttpServer.getStaticFileCache();
+        gauge(out, "http_static_cache_hits_total", "counter", "Aciertos de la caché de estáticos", cache.getHits());
+        gauge(out, "http_static_cache_misses_total", "counter", "Fallos de la caché de estáticos", cache.getMisses());
+
+        ResponseCache responses = HttpServer.getResponseCache();
+        gauge(out, "http_response_cache_hits_total", "counter", "Aciertos de la caché de respuestas",
+                responses.getHits());
+        gauge(out, "http_response_cache_misses_total", "counter", "Fallos de la caché de respuestas",
+                responses.getMisses());
+        gauge(out, "http_response_cache_evictions_total", "counter", "Respuestas expulsadas por tamaño",
+                responses.getEvictions());
+        gauge(out, "http_response_cache_expirations_total", "counter", "Respuestas descartadas por TTL",
+                responses.getExpirations());
+        gauge(out, "http_response_cache_bytes", "gauge", "Bytes ocupados por la caché de respuestas",
+                responses.getBytes());
+
+        AccessLog log = HttpServer.getAccessLog();
+        if (log != null) {
+            gauge(out, "http_access_log_dropped_total", "counter", "Entradas del registro de accesos descartadas",
+                    log.getDropped());
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String type, String help, long value) {
+        header(out, name, type, help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String method, String route, String extra, long value) {
+        out.append(name);
+        labels(out, method, route, extra);
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void labels(StringBuilder out, String method, String route, String extra) {
+        out.append("{method=\"");
+        escape(out, method);
+        out.append("\",route=\"");
+        escape(out, route);
+        out.append('"');
+        if (extra != null) {
+            out.append(',').append(extra);
+        }
+        out.append('}');
+    }
+
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    /**
+     * @return índice del bucket de un valor en microsegundos
+     */
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return límite superior (exclusivo) en microsegundos de un bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+    }
+}
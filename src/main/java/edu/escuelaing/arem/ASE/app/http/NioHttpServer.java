@@ -0,0 +1,841 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transporte HTTP no bloqueante basado en {@code ServerSocketChannel} y
+ * {@code Selector}.
+ *
+ * Un hilo aceptador reparte las conexiones entrantes en round-robin entre N
+ * event loops (por defecto uno por núcleo). Cada event loop lee los bytes de
+ * sus conexiones en un {@code ByteBuffer}, detecta de forma incremental el fin
+ * de los headers y del cuerpo, y despacha la petición completa a los mismos
+ * servicios registrados en {@link HttpServer}. Las conexiones inactivas no
+ * consumen hilos, por lo que el consumo de memoria se mantiene plano aunque
+ * haya decenas de miles de clientes lentos. Las conexiones son persistentes
+ * con las mismas reglas de keep-alive que el transporte bloqueante.
+ *
+ * Los servicios se ejecutan en un hilo virtual por petición, no en el event
+ * loop: un servicio que bloquea (disco, {@code fsync} del
+ * {@link UserStore}) solo detiene su propia
+ * conexión. Mientras se despacha, la conexión deja de leer; la respuesta
+ * vuelve al event loop, que la serializa y la escribe.
+ *
+ * El buffer de lectura de cada conexión es un buffer directo y el de la
+ * cabecera de respuesta uno en el heap, ambos prestados por los
+ * {@link BufferPool} del servidor y devueltos al cerrarse la conexión.
+ * Una petición que no cabe en el buffer del pool pasa a uno propio que crece
+ * hasta {@link #maxRequestSize()}: la cabecera máxima del parser más
+ * {@link HttpServer#getMaxBodySize()}, de modo que ambos transportes aceptan
+ * los mismos cuerpos. En un cuerpo chunked el framing también ocupa buffer.
+ *
+ * @author jgamb
+ */
+public class NioHttpServer {
+
+    /**
+     * Tope de un {@code ByteBuffer}: los arreglos de Java no llegan a
+     * {@code Integer.MAX_VALUE} elementos.
+     */
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+    private static final long IDLE_SWEEP_INTERVAL = 1000;
+    /**
+     * Cuerpos hasta este tamaño se copian tras la cabecera; los mayores se
+     * envían con una escritura gather sin copiarlos.
+     */
+    private static final int INLINE_BODY_SIZE = 4096;
+
+    private final InetSocketAddress address;
+    private final EventLoop[] eventLoops;
+    private BufferPool directBuffers;
+    private BufferPool heapBuffers;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    /**
+     * Crea el transporte NIO.
+     *
+     * @param port puerto de escucha (0 para un puerto efímero)
+     * @param eventLoopCount número de event loops (mínimo 1)
+     */
+    public NioHttpServer(int port, int eventLoopCount) {
+        this(new InetSocketAddress(port), eventLoopCount);
+    }
+
+    /**
+     * Crea el transporte NIO escuchando en una dirección concreta, p. ej.
+     * solo en la interfaz de loopback.
+     *
+     * @param address dirección y puerto de escucha (puerto 0 para uno
+     * efímero)
+     * @param eventLoopCount número de event loops (mínimo 1)
+     */
+    public NioHttpServer(InetSocketAddress address, int eventLoopCount) {
+        this.address = address;
+        this.eventLoops = new EventLoop[Math.max(1, eventLoopCount)];
+    }
+
+    /**
+     * Abre el canal de escucha y arranca los event loops y el hilo aceptador.
+     *
+     * @throws IOException Si no se puede abrir el puerto o los selectores
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        directBuffers = HttpServer.getDirectBufferPool();
+        heapBuffers = HttpServer.getHeapBufferPool();
+        running = true;
+
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop(Selector.open());
+            Thread.ofPlatform().name("http-eventloop-" + i).start(eventLoops[i]);
+        }
+        acceptor = Thread.ofPlatform().name("http-acceptor").start(this::acceptLoop);
+    }
+
+    /**
+     * Espera a que el servidor se detenga.
+     *
+     * @throws InterruptedException Si el hilo que espera es interrumpido
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Detiene el hilo aceptador y todos los event loops, cerrando las
+     * conexiones abiertas.
+     */
+    public void stop() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // Ignora errores al cerrar
+        }
+        for (EventLoop loop : eventLoops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * @return puerto local en el que escucha el servidor
+     * @throws IOException Si el canal no está abierto
+     */
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Tamaño máximo del buffer de lectura de una conexión. Se lee en cada
+     * petición para seguir los cambios de {@link HttpServer#maxBodySize}.
+     *
+     * @return cabecera máxima más cuerpo máximo, acotado al tope de un buffer
+     */
+    static int maxRequestSize() {
+        return (int) Math.min(MAX_BUFFER_SIZE,
+                RequestParser.DEFAULT_MAX_HEAD_SIZE + HttpServer.getMaxBodySize());
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                eventLoops[next].register(channel);
+                next = (next + 1) % eventLoops.length;
+            }
+        } catch (ClosedChannelException e) {
+            // El servidor fue detenido
+        } catch (IOException e) {
+            System.err.println("Error aceptando conexiones: " + e.getMessage());
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Bucle de eventos: atiende la lectura y escritura de un subconjunto de
+     * las conexiones usando un único hilo y un selector.
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> dispatched = new ConcurrentLinkedQueue<>();
+        private final Queue<StreamingPipe> streams = new ConcurrentLinkedQueue<>();
+        private long lastSweep = System.currentTimeMillis();
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Devuelve al event loop una conexión cuyo servicio terminó.
+         */
+        void dispatched(Connection connection) {
+            dispatched.add(connection);
+            selector.wakeup();
+        }
+
+        /**
+         * Avisa al event loop de que un productor en streaming encoló un
+         * chunk. El interés de escritura solo se cambia en el event loop.
+         */
+        void streamReady(StreamingPipe pipe) {
+            streams.add(pipe);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(IDLE_SWEEP_INTERVAL);
+                    registerPending();
+                    writeDispatched();
+                    resumeStreams();
+                    closeIdleConnections();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable(key);
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.close(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error en el event loop: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Ignora errores al cerrar
+                }
+                directBuffers.flushThreadCache();
+                heapBuffers.flushThreadCache();
+            }
+        }
+
+        /**
+         * Cierra las conexiones persistentes que superaron el tiempo de
+         * inactividad configurado. Se ejecuta como máximo una vez por
+         * intervalo de barrido.
+         */
+        private void closeIdleConnections() {
+            long now = System.currentTimeMillis();
+            if (now - lastSweep < IDLE_SWEEP_INTERVAL) {
+                return;
+            }
+            lastSweep = now;
+            long timeout = HttpServer.getKeepAliveTimeout();
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection.isIdle(now, timeout)) {
+                    connection.close(key);
+                }
+            }
+        }
+
+        private void writeDispatched() {
+            Connection connection;
+            while ((connection = dispatched.poll()) != null) {
+                try {
+                    connection.onDispatched(connection.key);
+                } catch (IOException | RuntimeException e) {
+                    connection.close(connection.key);
+                }
+            }
+        }
+
+        private void resumeStreams() {
+            StreamingPipe pipe;
+            while ((pipe = streams.poll()) != null) {
+                pipe.signalled.set(false);
+                Connection connection = pipe.connection;
+                // Un aviso tardío de una respuesta ya terminada no debe tocar la conexión
+                if (connection.stream == pipe && connection.key.isValid()) {
+                    connection.key.interestOps(SelectionKey.OP_WRITE);
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                Connection connection = new Connection(this, channel, directBuffers.acquire(), heapBuffers.acquire());
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (ClosedChannelException e) {
+                    // El cliente cerró antes de registrarse
+                    connection.releaseBuffers();
+                }
+            }
+        }
+    }
+
+    /**
+     * Estado de una conexión: buffer de lectura acumulado y respuesta
+     * pendiente de escribir. Si el cuerpo está formado por partes, tras la
+     * cabecera se envían en orden; las regiones de archivo van con
+     * {@link FileChannel#transferTo} por tramos, según el socket acepte datos.
+     * Un cuerpo en streaming se produce en un hilo virtual y llega por un
+     * {@link StreamingPipe}.
+     */
+    private static final class Connection {
+
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final InetAddress remote;
+        private SelectionKey key;
+        private final BufferPool.Lease inLease;
+        private final BufferPool.Lease headLease;
+        private ByteBuffer in;
+        private ByteBuffer out;
+        private ByteBuffer outBody;
+        private final ByteBuffer[] gather = new ByteBuffer[2];
+        private final HeadWriter head;
+        private List<Response.Part> parts;
+        private int nextPart;
+        private FileChannel file;
+        private Path filePath;
+        private long filePosition;
+        private long fileEnd;
+        private StreamingPipe stream;
+        private final RequestParser parser = new RequestParser();
+        private int bodyLength;
+        private boolean bodyChecked;
+        private long requestStart;
+        private ChunkedDecoder chunked;
+        private int chunkedScan;
+        private int served;
+        private boolean keepAlive;
+        private boolean dispatching;
+        private Response response;
+        private long lastActivity = System.currentTimeMillis();
+
+        Connection(EventLoop loop, SocketChannel channel, BufferPool.Lease inLease, BufferPool.Lease headLease) {
+            this.loop = loop;
+            this.channel = channel;
+            this.remote = channel.socket().getInetAddress();
+            this.inLease = inLease;
+            this.headLease = headLease;
+            this.in = inLease.buffer();
+            this.head = new HeadWriter(headLease.buffer());
+            parser.reset(in, 0);
+        }
+
+        boolean isIdle(long now, long timeout) {
+            return out == null && !dispatching && now - lastActivity > timeout;
+        }
+
+        void onReadable(SelectionKey key) throws IOException {
+            if (!in.hasRemaining()) {
+                int limit = maxRequestSize();
+                if (in.capacity() >= limit) {
+                    keepAlive = false;
+                    respond(key, serialize(bodyChecked
+                            ? HttpServer.payloadTooLarge()
+                            : HttpServer.badRequest("Request too large")));
+                    return;
+                }
+                // Petición mayor que el buffer del pool: se pasa a uno propio
+                ByteBuffer bigger = ByteBuffer.allocateDirect((int) Math.min(in.capacity() * 2L, limit));
+                in.flip();
+                bigger.put(in);
+                in = bigger;
+                parser.setBuffer(in);
+            }
+
+            if (channel.read(in) < 0) {
+                close(key);
+                return;
+            }
+            lastActivity = System.currentTimeMillis();
+
+            ByteBuffer response = tryParse();
+            if (response != null) {
+                respond(key, response);
+            }
+        }
+
+        void onWritable(SelectionKey key) throws IOException {
+            if (out == null) {
+                // Nada pendiente: la conexión espera la siguiente petición
+                return;
+            }
+            while (true) {
+                if (outBody != null) {
+                    // Cabecera y cuerpo en una sola escritura (writev)
+                    gather[0] = out;
+                    gather[1] = outBody;
+                    channel.write(gather);
+                    if (outBody.hasRemaining()) {
+                        return;
+                    }
+                    outBody = null;
+                } else if (out.hasRemaining()) {
+                    channel.write(out);
+                    if (out.hasRemaining()) {
+                        return;
+                    }
+                }
+                if (filePosition < fileEnd) {
+                    long sent = file.transferTo(filePosition, fileEnd - filePosition, channel);
+                    filePosition += sent;
+                    if (filePosition < fileEnd) {
+                        if (sent == 0 && filePosition >= file.size()) {
+                            // Archivo truncado: el Content-Length ya no se puede cumplir
+                            close(key);
+                        }
+                        return;
+                    }
+                }
+                if (stream != null) {
+                    ByteBuffer chunk = stream.poll();
+                    if (chunk == null) {
+                        // Esperar al productor; se vuelve a comprobar tras
+                        // quitar el interés para no perder un chunk recién llegado
+                        key.interestOps(0);
+                        chunk = stream.poll();
+                        if (chunk == null) {
+                            return;
+                        }
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                    if (chunk != StreamingPipe.END) {
+                        out = chunk;
+                        continue;
+                    }
+                    boolean failed = stream.failed;
+                    stream = null;
+                    if (failed) {
+                        // La respuesta quedó incompleta: solo queda cortar la conexión
+                        close(key);
+                        return;
+                    }
+                }
+                if (parts == null || nextPart == parts.size()) {
+                    break;
+                }
+                Response.Part part = parts.get(nextPart++);
+                if (part.file() == null) {
+                    out = ByteBuffer.wrap(part.bytes(), (int) part.position(), (int) part.length());
+                } else {
+                    openFile(part.file());
+                    filePosition = part.position();
+                    fileEnd = part.position() + part.length();
+                }
+            }
+            closeFile();
+            parts = null;
+            out = null;
+            gather[0] = null;
+            gather[1] = null;
+            if (!keepAlive) {
+                close(key);
+                return;
+            }
+
+            // Descartar la petición ya atendida y atender la siguiente si ya
+            // llegó completa en el buffer (pipelining)
+            in.flip();
+            in.position(parser.head().end() + bodyLength);
+            in.compact();
+            ByteBuffer pooled = inLease.buffer();
+            if (in != pooled && in.position() <= pooled.capacity()) {
+                // Lo pendiente vuelve a caber en el buffer del pool
+                in.flip();
+                pooled.clear();
+                pooled.put(in);
+                in = pooled;
+            }
+            parser.reset(in, 0);
+            bodyChecked = false;
+            chunked = null;
+            bodyLength = 0;
+            lastActivity = System.currentTimeMillis();
+            key.interestOps(SelectionKey.OP_READ);
+
+            ByteBuffer next = tryParse();
+            if (next != null) {
+                respond(key, next);
+            }
+        }
+
+        /**
+         * Serializa y empieza a escribir la respuesta del servicio. Se
+         * ejecuta en el event loop.
+         */
+        void onDispatched(SelectionKey key) throws IOException {
+            dispatching = false;
+            Response done = response;
+            response = null;
+            if (!key.isValid()) {
+                // Se cerró durante el despacho: el servicio ya no lee el buffer
+                releaseBuffers();
+                return;
+            }
+            lastActivity = System.currentTimeMillis();
+            ByteBuffer serialized = serialize(done);
+            HttpServer.logAccess(remote, parser.head(), done, requestStart);
+            respond(key, serialized);
+        }
+
+        void close(SelectionKey key) {
+            closeFile();
+            if (stream != null) {
+                stream.cancel();
+                stream = null;
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignora errores al cerrar
+            }
+            if (!dispatching) {
+                // Si hay un servicio en curso la cabecera sigue en uso;
+                // los buffers se devuelven al terminar
+                releaseBuffers();
+            }
+        }
+
+        /**
+         * Devuelve los buffers al pool; la conexión no debe usarse después.
+         */
+        void releaseBuffers() {
+            out = null;
+            outBody = null;
+            inLease.release();
+            headLease.release();
+        }
+
+        private void respond(SelectionKey key, ByteBuffer response) throws IOException {
+            out = response;
+            key.interestOps(SelectionKey.OP_WRITE);
+            onWritable(key);
+        }
+
+        /**
+         * Abre el archivo de una parte; partes consecutivas del mismo archivo
+         * (rangos múltiples) reutilizan el canal.
+         */
+        private void openFile(Path path) throws IOException {
+            if (path.equals(filePath)) {
+                return;
+            }
+            closeFile();
+            file = FileChannel.open(path, StandardOpenOption.READ);
+            filePath = path;
+        }
+
+        private void closeFile() {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // Ignora errores al cerrar
+                }
+                file = null;
+            }
+            filePath = null;
+            filePosition = 0;
+            fileEnd = 0;
+        }
+
+        private ByteBuffer serialize(Response response) {
+            response.writeHead(head.reset(), keepAlive);
+            if (response.isStreaming()) {
+                StreamingPipe pipe = new StreamingPipe(this);
+                stream = pipe;
+                Thread.ofVirtual().name("http-stream").start(() -> {
+                    boolean ok = false;
+                    try {
+                        response.writeChunked(pipe);
+                        ok = true;
+                    } catch (IOException | RuntimeException e) {
+                        if (!pipe.cancelled) {
+                            System.err.println("Error en respuesta streaming: " + e.getMessage());
+                        }
+                    } finally {
+                        pipe.finish(ok);
+                    }
+                });
+                return head.buffer();
+            }
+            List<Response.Part> body = response.getBodyParts();
+            if (body == null) {
+                byte[] bytes = response.getBodyBytes();
+                if (bytes.length <= INLINE_BODY_SIZE) {
+                    head.put(bytes);
+                } else {
+                    outBody = ByteBuffer.wrap(bytes);
+                }
+                return head.buffer();
+            }
+            try {
+                // Abrir ya el primer archivo para responder 500 si no existe
+                for (Response.Part part : body) {
+                    if (part.file() != null) {
+                        openFile(part.file());
+                        break;
+                    }
+                }
+                parts = body;
+                nextPart = 0;
+                return head.buffer();
+            } catch (IOException e) {
+                keepAlive = false;
+                return serialize(new Response.Builder()
+                        .withStatus(500)
+                        .withBody("{\"error\": \"Server Error: " + e.getMessage() + "\"}")
+                        .build());
+            }
+        }
+
+        /**
+         * Intenta construir y despachar la petición con los bytes recibidos
+         * hasta ahora. El parser retoma desde donde quedó, sin volver a
+         * examinar los bytes ya procesados.
+         *
+         * @return la respuesta serializada, o {@code null} si la petición aún
+         * está incompleta o se despachó a un hilo virtual
+         */
+        private ByteBuffer tryParse() throws IOException {
+            keepAlive = false;
+            int available = in.position();
+
+            RequestParser.Result result = parser.parse(available);
+            if (result == RequestParser.Result.INCOMPLETE) {
+                return null;
+            }
+            if (result == RequestParser.Result.ERROR) {
+                return serialize(HttpServer.badRequest(parser.getError()));
+            }
+
+            RequestHead head = parser.head();
+            if (!bodyChecked) {
+                // Primera vez con la cabecera completa: validar antes de recibir el cuerpo
+                bodyChecked = true;
+                requestStart = System.nanoTime();
+                long maxBody = Math.min(HttpServer.getMaxBodySize(), maxRequestSize() - head.end());
+                Response invalid = HttpServer.checkBodyFraming(head);
+                if (invalid == null && head.contentLength() > maxBody) {
+                    invalid = HttpServer.payloadTooLarge();
+                }
+                if (invalid != null) {
+                    ByteBuffer serialized = serialize(invalid);
+                    HttpServer.logAccess(remote, head, invalid, requestStart);
+                    return serialized;
+                }
+                if (head.isChunked()) {
+                    chunked = new ChunkedDecoder(maxBody);
+                    chunkedScan = head.end();
+                } else {
+                    bodyLength = (int) Math.max(0, head.contentLength());
+                }
+                if (head.expectsContinue() && available == head.end() && (chunked != null || bodyLength > 0)) {
+                    // El buffer de envío está vacío entre peticiones: la
+                    // respuesta provisional cabe en una escritura
+                    channel.write(ByteBuffer.wrap(HttpServer.CONTINUE));
+                }
+            }
+            if (chunked != null) {
+                try {
+                    chunkedScan = chunked.scan(in, chunkedScan, available);
+                } catch (PayloadTooLargeException e) {
+                    return serialize(HttpServer.payloadTooLarge());
+                } catch (IOException e) {
+                    return serialize(HttpServer.badRequest("Invalid request body"));
+                }
+                if (!chunked.isDone()) {
+                    return null;
+                }
+                bodyLength = chunkedScan - head.end();
+            } else if (available < head.end() + bodyLength) {
+                return null;
+            }
+
+            // El event loop no puede esperar turno: sin cupo se rechaza de inmediato
+            AdmissionController admission = HttpServer.getAdmissionController();
+            if (!admission.tryAcquire()) {
+                return ByteBuffer.wrap(admission.serviceUnavailable());
+            }
+
+            served++;
+            keepAlive = head.isKeepAlive() && served < HttpServer.getMaxRequestsPerConnection();
+
+            Request req;
+            try {
+                byte[] body;
+                if (chunked != null) {
+                    body = ChunkedDecoder.decode(in, head.end(), chunked.total());
+                } else {
+                    body = new byte[bodyLength];
+                    in.get(head.end(), body);
+                }
+                req = new Request.Builder()
+                        .withHead(head)
+                        .withBodyBytes(body)
+                        .build();
+            } catch (IOException e) {
+                admission.release();
+                keepAlive = false;
+                return serialize(HttpServer.badRequest("Invalid request body"));
+            }
+
+            // Sin interés de lectura el buffer no cambia mientras el servicio
+            // lee de él la cabecera
+            dispatching = true;
+            key.interestOps(0);
+            Thread.ofVirtual().name("http-dispatch").start(() -> {
+                Response done;
+                try {
+                    done = HttpServer.dispatch(req);
+                } catch (RuntimeException e) {
+                    done = HttpServer.serverError(e);
+                } finally {
+                    admission.release();
+                }
+                response = done;
+                loop.dispatched(this);
+            });
+            return null;
+        }
+    }
+
+    /**
+     * Puente entre el productor de un cuerpo en streaming, que corre en un
+     * hilo virtual y puede bloquear, y el event loop, que nunca bloquea.
+     *
+     * Cada {@code flush()} del {@link ChunkedOutputStream} encola un chunk ya
+     * codificado y avisa al event loop, el único que cambia el interés de
+     * escritura de la conexión. La cola
+     * está acotada: si el cliente lee despacio el productor espera, de modo
+     * que la memoria usada depende del tamaño de chunk y no del de la
+     * respuesta.
+     */
+    private static final class StreamingPipe extends OutputStream {
+
+        static final ByteBuffer END = ByteBuffer.allocate(0);
+        private static final int CAPACITY = 4;
+        private static final long OFFER_TIMEOUT_MS = 100;
+
+        private final Connection connection;
+        private final AtomicBoolean signalled = new AtomicBoolean();
+        private final BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<>(CAPACITY);
+        private final ByteArrayOutputStream current = new ByteArrayOutputStream(ChunkedOutputStream.DEFAULT_CHUNK_SIZE + 16);
+        private volatile boolean cancelled;
+        private volatile boolean failed;
+
+        StreamingPipe(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void write(int b) {
+            current.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            current.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (current.size() > 0) {
+                enqueue(ByteBuffer.wrap(current.toByteArray()));
+                current.reset();
+            }
+        }
+
+        ByteBuffer poll() {
+            return chunks.poll();
+        }
+
+        /**
+         * Marca el fin del cuerpo; si el productor falló, el event loop
+         * cerrará la conexión al llegar a la marca.
+         */
+        void finish(boolean ok) {
+            failed = !ok;
+            try {
+                enqueue(END);
+            } catch (IOException e) {
+                // Conexión ya cerrada
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            chunks.clear();
+        }
+
+        private void enqueue(ByteBuffer chunk) throws IOException {
+            try {
+                while (!chunks.offer(chunk, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new IOException("Conexión cerrada");
+                    }
+                }
+                if (cancelled) {
+                    throw new IOException("Conexión cerrada");
+                }
+                if (signalled.compareAndSet(false, true)) {
+                    connection.loop.streamReady(this);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrumpido", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Conversor de un parámetro {@code @RequestParam} a su tipo Java.
+ *
+ * El conversor se elige una sola vez al registrar la ruta según el tipo del
+ * parámetro: {@code String}, primitivos y sus envoltorios, enums y
+ * {@code Optional} de cualquiera de ellos. En cada petición el parámetro se
+ * busca recorriendo la query sin decodificar; los enteros, booleanos y enums
+ * se interpretan directamente de esos bytes, sin crear un {@code String}.
+ * Los textos, los decimales y los valores con escapes ({@code %XX} o
+ * {@code +}) se decodifican antes de convertirse.
+ *
+ * Si el parámetro falta o llega vacío se usa {@code defaultValue}, convertido
+ * al registrar. Sin él, un {@code Optional} queda vacío, un tipo de referencia
+ * vale null y un primitivo es un error. Un valor que no se puede convertir
+ * lanza {@link InvalidParamException}, que el adaptador responde con 400.
+ *
+ * @author jgamb
+ */
+final class ParamBinder {
+
+    /**
+     * Parámetro ausente o con un valor que no se puede convertir.
+     */
+    static final class InvalidParamException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        InvalidParamException(String message) {
+            super(message);
+        }
+    }
+
+    private enum Kind {
+        STRING, INT, LONG, SHORT, BYTE, DOUBLE, FLOAT, BOOLEAN, CHAR, ENUM
+    }
+
+    private final String name;
+    private final Class<?> type;
+    private final Kind kind;
+    private final boolean optional;
+    private final Object defaultValue;
+    private final Enum<?>[] constants;
+
+    private ParamBinder(String name, Class<?> type, Kind kind, boolean optional, String defaultValue) {
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+        this.optional = optional;
+        this.constants = kind == Kind.ENUM ? (Enum<?>[]) type.getEnumConstants() : null;
+        try {
+            this.defaultValue = defaultValue != null ? convert(defaultValue) : null;
+        } catch (InvalidParamException e) {
+            throw new IllegalArgumentException("defaultValue no válido: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param type tipo del parámetro, o del contenido de un {@code Optional}
+     * @return true si existe conversor para el tipo
+     */
+    static boolean supports(Class<?> type) {
+        return kindOf(type) != null;
+    }
+
+    /**
+     * Elige el conversor de un parámetro.
+     *
+     * @param name nombre del parámetro en la query
+     * @param type tipo del parámetro, o del contenido si es {@code Optional}
+     * @param optional true si el parámetro es {@code Optional<type>}
+     * @param defaultValue valor por defecto sin convertir, o null
+     * @return el conversor
+     * @throws IllegalArgumentException Si el tipo no está soportado o el
+     * valor por defecto no se puede convertir
+     */
+    static ParamBinder of(String name, Class<?> type, boolean optional, String defaultValue) {
+        Kind kind = kindOf(type);
+        if (kind == null || optional && type.isPrimitive()) {
+            throw new IllegalArgumentException("Tipo no soportado para " + name + ": " + type.getName());
+        }
+        return new ParamBinder(name, type, kind, optional, defaultValue);
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == String.class) {
+            return Kind.STRING;
+        } else if (type == int.class || type == Integer.class) {
+            return Kind.INT;
+        } else if (type == long.class || type == Long.class) {
+            return Kind.LONG;
+        } else if (type == short.class || type == Short.class) {
+            return Kind.SHORT;
+        } else if (type == byte.class || type == Byte.class) {
+            return Kind.BYTE;
+        } else if (type == double.class || type == Double.class) {
+            return Kind.DOUBLE;
+        } else if (type == float.class || type == Float.class) {
+            return Kind.FLOAT;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (type == char.class || type == Character.class) {
+            return Kind.CHAR;
+        } else if (type.isEnum()) {
+            return Kind.ENUM;
+        }
+        return null;
+    }
+
+    /**
+     * Convierte el parámetro de la petición.
+     *
+     * @param req petición con la query
+     * @return el valor convertido, envuelto si el parámetro es
+     * {@code Optional}
+     * @throws InvalidParamException Si falta un primitivo o el valor no es
+     * del tipo esperado
+     */
+    @SuppressWarnings("unchecked")
+    <T> T bind(Request req) {
+        long range = find(req);
+        Object value = absent(range) ? missing() : convert(req, start(range), end(range));
+        return (T) (optional ? Optional.ofNullable(value) : value);
+    }
+
+    /**
+     * Como {@link #bind(Request)} para un parámetro {@code int}, sin
+     * boxing.
+     */
+    int bindInt(Request req) {
+        long range = find(req);
+        return absent(range) ? ((Number) missing()).intValue() : (int) integer(req, start(range), end(range));
+    }
+
+    /**
+     * Como {@link #bind(Request)} para un parámetro {@code long}, sin
+     * boxing.
+     */
+    long bindLong(Request req) {
+        long range = find(req);
+        return absent(range) ? ((Number) missing()).longValue() : integer(req, start(range), end(range));
+    }
+
+    /**
+     * Como {@link #bind(Request)} para un parámetro {@code double}, sin
+     * boxing.
+     */
+    double bindDouble(Request req) {
+        long range = find(req);
+        return absent(range)
+                ? ((Number) missing()).doubleValue()
+                : ((Number) convert(req, start(range), end(range))).doubleValue();
+    }
+
+    /**
+     * Como {@link #bind(Request)} para un parámetro {@code boolean}, sin
+     * boxing.
+     */
+    boolean bindBoolean(Request req) {
+        long range = find(req);
+        return absent(range) ? (Boolean) missing() : bool(req, start(range), end(range));
+    }
+
+    /**
+     * Busca el parámetro en la query sin decodificar.
+     *
+     * @return inicio y fin del valor como {@code inicio << 32 | fin}, o -1 si
+     * el parámetro no está
+     */
+    private long find(Request req) {
+        int length = req.rawQueryLength();
+        int start = 0;
+        while (start <= length) {
+            int end = start;
+            int eq = -1;
+            while (end < length) {
+                int c = req.rawQueryChar(end);
+                if (c == '&') {
+                    break;
+                }
+                if (c == '=' && eq < 0) {
+                    eq = end;
+                }
+                end++;
+            }
+            int keyEnd = eq < 0 ? end : eq;
+            if (keyEnd - start == name.length() && matches(req, start, name)) {
+                return (long) (eq < 0 ? end : eq + 1) << 32 | end;
+            }
+            start = end + 1;
+        }
+        return -1;
+    }
+
+    private static int start(long range) {
+        return (int) (range >>> 32);
+    }
+
+    private static int end(long range) {
+        return (int) range;
+    }
+
+    /**
+     * Un valor vacío cuenta como ausente si hay valor por defecto.
+     */
+    private boolean absent(long range) {
+        return range < 0 || defaultValue != null && start(range) == end(range);
+    }
+
+    private Object missing() {
+        if (defaultValue == null && type.isPrimitive()) {
+            throw new InvalidParamException("Falta el parámetro " + name + " (" + type.getName() + ")");
+        }
+        return defaultValue;
+    }
+
+    private Object convert(Request req, int start, int end) {
+        return switch (kind) {
+            case INT, LONG, SHORT, BYTE ->
+                narrow(integer(req, start, end));
+            case BOOLEAN ->
+                bool(req, start, end);
+            case ENUM ->
+                constant(req, start, end);
+            default ->
+                convert(decode(req.rawQuery(start, end)));
+        };
+    }
+
+    /**
+     * Interpreta un entero directamente de la query. Ante cualquier otra
+     * cosa que dígitos con signo opcional (escapes, desbordamiento, texto)
+     * se decodifica el valor y se convierte por la vía general, que reporta
+     * el error.
+     */
+    private long integer(Request req, int start, int end) {
+        int p = start;
+        boolean negative = p < end && req.rawQueryChar(p) == '-';
+        if (negative) {
+            p++;
+        }
+        if (p == end || end - p > 18) {
+            return slowInteger(req, start, end);
+        }
+        long value = 0;
+        for (; p < end; p++) {
+            int digit = req.rawQueryChar(p) - '0';
+            if (digit < 0 || digit > 9) {
+                return slowInteger(req, start, end);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        return inRange(value) ? value : slowInteger(req, start, end);
+    }
+
+    private long slowInteger(Request req, int start, int end) {
+        return ((Number) convert(decode(req.rawQuery(start, end)))).longValue();
+    }
+
+    private boolean bool(Request req, int start, int end) {
+        if (matchesIgnoreCase(req, start, end, "true")) {
+            return true;
+        }
+        if (matchesIgnoreCase(req, start, end, "false")) {
+            return false;
+        }
+        return (Boolean) convert(decode(req.rawQuery(start, end)));
+    }
+
+    private Object constant(Request req, int start, int end) {
+        for (Enum<?> constant : constants) {
+            String constantName = constant.name();
+            if (constantName.length() == end - start && matches(req, start, constantName)) {
+                return constant;
+            }
+        }
+        return convert(decode(req.rawQuery(start, end)));
+    }
+
+    private static boolean matches(Request req, int start, String text) {
+        for (int k = 0; k < text.length(); k++) {
+            if (req.rawQueryChar(start + k) != text.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesIgnoreCase(Request req, int start, int end, String lower) {
+        if (end - start != lower.length()) {
+            return false;
+        }
+        for (int k = 0; k < lower.length(); k++) {
+            int c = req.rawQueryChar(start + k);
+            if ((c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c) != lower.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Conversión general desde un valor ya decodificado. También convierte
+     * el valor por defecto al registrar la ruta.
+     */
+    private Object convert(String text) {
+        switch (kind) {
+            case STRING -> {
+                return text;
+            }
+            case INT, LONG, SHORT, BYTE -> {
+                try {
+                    long value = Long.parseLong(text);
+                    if (inRange(value)) {
+                        return narrow(value);
+                    }
+                } catch (NumberFormatException e) {
+                    // Se reporta abajo
+                }
+                throw invalid(text, kind.name().toLowerCase());
+            }
+            case DOUBLE, FLOAT -> {
+                try {
+                    double value = Double.parseDouble(text);
+                    return kind == Kind.DOUBLE ? (Object) value : (Object) (float) value;
+                } catch (NumberFormatException e) {
+                    throw invalid(text, "un número");
+                }
+            }
+            case BOOLEAN -> {
+                if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                    return Boolean.valueOf(text);
+                }
+                throw invalid(text, "true o false");
+            }
+            case CHAR -> {
+                if (text.length() == 1) {
+                    return text.charAt(0);
+                }
+                throw invalid(text, "un solo carácter");
+            }
+            default -> {
+                for (Enum<?> constant : constants) {
+                    if (constant.name().equals(text)) {
+                        return constant;
+                    }
+                }
+                throw invalid(text, "uno de " + Arrays.toString(constants));
+            }
+        }
+    }
+
+    private boolean inRange(long value) {
+        return switch (kind) {
+            case INT ->
+                value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+            case SHORT ->
+                value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+            case BYTE ->
+                value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+            default ->
+                true;
+        };
+    }
+
+    private Object narrow(long value) {
+        return switch (kind) {
+            case INT ->
+                (int) value;
+            case SHORT ->
+                (short) value;
+            case BYTE ->
+                (byte) value;
+            default ->
+                value;
+        };
+    }
+
+    private InvalidParamException invalid(String text, String expected) {
+        return new InvalidParamException("Parámetro inválido " + name + ": se esperaba " + expected
+                + " y llegó \"" + text + "\"");
+    }
+
+    private static String decode(String raw) {
+        try {
+            return URLDecoder.decode(raw, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // Escape mal formado: el valor tal cual, como Request#getQueryParam
+            return raw;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+
+/**
+ * El cuerpo de la petición supera el tamaño máximo configurado con
+ * {@link HttpServer#maxBodySize(long)}. Los transportes la traducen a una
+ * respuesta 413.
+ *
+ * @author jgamb
+ */
+public class PayloadTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PayloadTooLargeException(long maxBytes) {
+        super("Request body exceeds " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,81 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream de salida con buffer para el transporte bloqueante, equivalente a
+ * un {@code BufferedOutputStream} pero sobre un buffer prestado por un
+ * {@link BufferPool}, que se devuelve al cerrar el stream.
+ *
+ * Las escrituras mayores que el buffer se envían directamente al stream del
+ * socket tras vaciar lo acumulado.
+ *
+ * @author jgamb
+ */
+final class PooledOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final BufferPool.Lease lease;
+    private final byte[] bytes;
+    private final int base;
+    private final int capacity;
+    private int count;
+
+    /**
+     * @param out stream del socket
+     * @param lease buffer en el heap prestado para la conexión
+     */
+    PooledOutputStream(OutputStream out, BufferPool.Lease lease) {
+        this.out = out;
+        this.lease = lease;
+        this.bytes = lease.buffer().array();
+        this.base = lease.buffer().arrayOffset();
+        this.capacity = lease.buffer().capacity();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == capacity) {
+            flushBuffer();
+        }
+        bytes[base + count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= capacity) {
+            flushBuffer();
+            out.write(b, off, len);
+            return;
+        }
+        if (len > capacity - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, bytes, base + count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            lease.release();
+            out.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(bytes, base, count);
+            count = 0;
+        }
+    }
+}
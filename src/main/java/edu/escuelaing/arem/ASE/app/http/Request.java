@@ -4,7 +4,14 @@ package edu.escuelaing.arem.ASE.app.http;
  *
  * @author jgamb
  */
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.net.URLDecoder;
@@ -16,26 +23,98 @@ import java.nio.charset.StandardCharsets;
  * Encapsula toda la información de una petición HTTP incluyendo: - URI y
  * parámetros de query - Cuerpo de la petición (body) - Headers HTTP - Métodos
  * de utilidad para parsing de datos
+ *
+ * El cuerpo se puede leer como stream ({@link #getBodyStream()},
+ * {@link #getBodyChannel()}) sin acumularlo; {@link #getBody()} y los métodos
+ * que lo interpretan lo leen completo a memoria la primera vez.
  */
 public class Request {
 
-    private final URI uri;
-    private final String body;
+    private final String method;
+    private final RequestHead head;
+    private URI uri;
+    private final RequestBody body;
+    private String bodyText;
     private final Map<String, String> headers;
+    private Map<String, String> pathParams = Collections.emptyMap();
+    private String route = Metrics.UNMATCHED_ROUTE;
 
     private Request(Builder builder) {
+        this.head = builder.head;
+        this.method = builder.method != null ? builder.method : head != null ? head.method() : "GET";
         this.uri = builder.uri;
-        this.body = builder.body != null ? builder.body : "";
+        this.body = builder.body != null ? builder.body : RequestBody.EMPTY;
+        this.bodyText = builder.bodyText;
         this.headers = builder.headers != null ? new HashMap<>(builder.headers) : new HashMap<>();
     }
 
+    /**
+     * Obtiene el método HTTP de la petición (GET, POST, ...).
+     *
+     * @return El método HTTP
+     */
+    public String getMethod() {
+        return method;
+    }
+
     /**
      * Obtiene la ruta de la URI sin parámetros de query.
      *
      * @return La ruta de la petición
      */
     public String getPath() {
-        return uri.getPath();
+        return head != null ? head.path() : uri.getPath();
+    }
+
+    /**
+     * @return true si la petición es HTTP/1.1; las construidas sin línea de
+     * petición se consideran HTTP/1.1
+     */
+    public boolean isHttp11() {
+        return head == null || head.isHttp11();
+    }
+
+    /**
+     * Obtiene la query string sin decodificar.
+     *
+     * @return La query o null si no existe
+     */
+    String getRawQuery() {
+        return head != null ? head.query() : uri.getRawQuery();
+    }
+
+    /**
+     * @return longitud de la query sin decodificar, o -1 si no existe
+     */
+    int rawQueryLength() {
+        if (head != null) {
+            return head.queryStart < 0 ? -1 : head.queryEnd - head.queryStart;
+        }
+        String query = uri.getRawQuery();
+        return query != null ? query.length() : -1;
+    }
+
+    /**
+     * Lee un carácter de la query sin decodificar. Con una cabecera parseada
+     * se lee directamente del buffer de la conexión, sin materializar la
+     * query como {@code String}.
+     *
+     * @param index posición dentro de la query
+     * @return el byte (ISO-8859-1) en esa posición
+     */
+    int rawQueryChar(int index) {
+        return head != null
+                ? head.buffer.get(head.queryStart + index) & 0xFF
+                : uri.getRawQuery().charAt(index);
+    }
+
+    /**
+     * @return el tramo {@code [start, end)} de la query sin decodificar
+     */
+    String rawQuery(int start, int end) {
+        return head != null
+                ? head.ascii(head.queryStart + start, head.queryStart + end)
+                : uri.getRawQuery().substring(start, end);
     }
 
     /**
@@ -45,11 +124,12 @@ public class Request {
      * @return El valor del parámetro o null si no existe
      */
     public String getQueryParam(String key) {
-        if (uri.getQuery() == null) {
+        String query = getRawQuery();
+        if (query == null) {
             return null;
         }
 
-        for (String param : uri.getQuery().split("&")) {
+        for (String param : query.split("&")) {
             String[] kv = param.split("=", 2);
             if (kv[0].equals(key)) {
                 try {
@@ -62,6 +142,57 @@ public class Request {
         return null;
     }
 
+    /**
+     * Obtiene un parámetro capturado de la plantilla de la ruta, p. ej.
+     * {@code id} en {@code /users/{id}}.
+     *
+     * @param name El nombre del parámetro
+     * @return El valor o null si la ruta no lo define
+     */
+    public String getPathParam(String name) {
+        return pathParams.get(name);
+    }
+
+    /**
+     * Obtiene todos los parámetros capturados de la ruta.
+     *
+     * @return Mapa inmutable nombre -> valor
+     */
+    public Map<String, String> getPathParams() {
+        return pathParams;
+    }
+
+    void setPathParams(Map<String, String> pathParams) {
+        this.pathParams = pathParams;
+    }
+
+    /**
+     * @return plantilla de la ruta que atendió la petición (etiqueta de las
+     * métricas), {@link Metrics#STATIC_ROUTE} o {@link Metrics#UNMATCHED_ROUTE}
+     */
+    String getRoute() {
+        return route;
+    }
+
+    void setRoute(String route) {
+        this.route = route;
+    }
+
+    /**
+     * @return bytes del cuerpo recibido: los leídos si ya está en memoria o
+     * el Content-Length declarado
+     */
+    long getReceivedBodyLength() {
+        if (body.isBuffered()) {
+            try {
+                return body.bytes().length;
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+        return head != null ? Math.max(0, head.contentLength()) : getContentLength();
+    }
+
     /**
      * Obtiene todos los parámetros de query como un mapa.
      *
@@ -69,11 +200,12 @@ public class Request {
      */
     public Map<String, String> getQueryParams() {
         Map<String, String> params = new HashMap<>();
-        if (uri.getQuery() == null) {
+        String query = getRawQuery();
+        if (query == null) {
             return params;
         }
 
-        for (String param : uri.getQuery().split("&")) {
+        for (String param : query.split("&")) {
             String[] kv = param.split("=", 2);
             try {
                 String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
@@ -88,12 +220,52 @@ public class Request {
     }
 
     /**
-     * Obtiene el cuerpo completo de la petición.
+     * Obtiene el cuerpo completo de la petición, decodificado como UTF-8.
      *
      * @return El cuerpo de la petición como string
+     * @throws UncheckedIOException Si falla la lectura del cuerpo o supera el
+     * tamaño máximo ({@link PayloadTooLargeException})
      */
     public String getBody() {
-        return body;
+        if (bodyText == null) {
+            bodyText = new String(getBodyBytes(), StandardCharsets.UTF_8);
+        }
+        return bodyText;
+    }
+
+    /**
+     * Obtiene el cuerpo completo en bytes, exactamente como se recibió.
+     *
+     * @return El cuerpo de la petición
+     * @throws UncheckedIOException Si falla la lectura del cuerpo o supera el
+     * tamaño máximo ({@link PayloadTooLargeException})
+     */
+    public byte[] getBodyBytes() {
+        try {
+            return body.bytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Obtiene el cuerpo como stream, para procesarlo por partes sin
+     * acumularlo en memoria. Después ya no se puede usar {@link #getBody()}
+     * salvo que el cuerpo ya estuviera en memoria.
+     *
+     * @return stream con los bytes del cuerpo
+     */
+    public InputStream getBodyStream() {
+        return body.stream();
+    }
+
+    /**
+     * Como {@link #getBodyStream()}, en forma de canal.
+     *
+     * @return canal con los bytes del cuerpo
+     */
+    public ReadableByteChannel getBodyChannel() {
+        return Channels.newChannel(body.stream());
     }
 
     /**
@@ -102,7 +274,7 @@ public class Request {
      * @return true si tiene cuerpo, false en caso contrario
      */
     public boolean hasBody() {
-        return body != null && !body.trim().isEmpty();
+        return !getBody().trim().isEmpty();
     }
 
     /**
@@ -112,7 +284,11 @@ public class Request {
      * @return El valor del header o null si no existe
      */
     public String getHeader(String name) {
-        return headers.get(name.toLowerCase());
+        String value = headers.isEmpty() ? null : headers.get(name.toLowerCase());
+        if (value == null && head != null) {
+            value = head.header(name.toLowerCase());
+        }
+        return value;
     }
 
     /**
@@ -121,7 +297,9 @@ public class Request {
      * @return Mapa con todos los headers
      */
     public Map<String, String> getHeaders() {
-        return new HashMap<>(headers);
+        Map<String, String> all = head != null ? head.headers() : new HashMap<>();
+        all.putAll(headers);
+        return all;
     }
 
     /**
@@ -131,7 +309,7 @@ public class Request {
      * @return true si existe, false en caso contrario
      */
     public boolean hasHeader(String name) {
-        return headers.containsKey(name.toLowerCase());
+        return getHeader(name) != null;
     }
 
     /**
@@ -174,7 +352,7 @@ public class Request {
 
         String contentType = getContentType();
         if (contentType != null && contentType.toLowerCase().contains("application/x-www-form-urlencoded")) {
-            for (String param : body.split("&")) {
+            for (String param : getBody().split("&")) {
                 String[] kv = param.split("=", 2);
                 try {
                     String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
@@ -224,7 +402,7 @@ public class Request {
             // Parser muy básico para JSON simple: {"key": "value"}
             String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
             java.util.regex.Pattern regex = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher matcher = regex.matcher(body);
+            java.util.regex.Matcher matcher = regex.matcher(getBody());
 
             if (matcher.find()) {
                 return matcher.group(1);
@@ -242,6 +420,13 @@ public class Request {
      * @return La URI de la petición
      */
     public URI getUri() {
+        if (uri == null && head != null) {
+            try {
+                uri = new URI(head.target());
+            } catch (URISyntaxException e) {
+                return null;
+            }
+        }
         return uri;
     }
 
@@ -255,34 +440,71 @@ public class Request {
         StringBuilder sb = new StringBuilder();
         sb.append("Request{");
         sb.append("path='").append(getPath()).append('\'');
-        if (uri.getQuery() != null) {
-            sb.append(", query='").append(uri.getQuery()).append('\'');
+        if (getRawQuery() != null) {
+            sb.append(", query='").append(getRawQuery()).append('\'');
         }
-        if (hasBody()) {
-            sb.append(", bodyLength=").append(body.length());
+        if (body.isBuffered()) {
+            // No leer un cuerpo en streaming solo para mostrarlo
+            sb.append(", bodyLength=").append(getBodyBytes().length);
         }
-        sb.append(", headers=").append(headers.size());
+        sb.append(", headers=").append(headers.size() + (head != null ? head.headerCount() : 0));
         sb.append('}');
         return sb.toString();
     }
 
     /**
-     * Builder para crear respuestas HTTP. Métodos: withStatus, withContentType,
-     * withBody, withBodyBytes, addHeader, build.
+     * Builder para crear peticiones HTTP. Métodos: withMethod, withHead,
+     * withUri, withBody, withBodyBytes, withHeaders, withHeader, build.
      */
     public static class Builder {
 
+        private String method;
+        private RequestHead head;
         private URI uri;
-        private String body;
+        private RequestBody body;
+        private String bodyText;
         private Map<String, String> headers;
 
+        public Builder withMethod(String method) {
+            this.method = method;
+            return this;
+        }
+
+        /**
+         * Usa una cabecera parseada por {@link RequestParser}; método, ruta,
+         * query y headers se leen de ella bajo demanda.
+         *
+         * @param head Cabecera parseada
+         * @return este builder
+         */
+        public Builder withHead(RequestHead head) {
+            this.head = head;
+            return this;
+        }
+
         public Builder withUri(URI uri) {
             this.uri = uri;
             return this;
         }
 
         public Builder withBody(String body) {
+            this.body = body != null ? new RequestBody(body.getBytes(StandardCharsets.UTF_8)) : null;
+            this.bodyText = body;
+            return this;
+        }
+
+        public Builder withBodyBytes(byte[] body) {
+            this.body = new RequestBody(body);
+            this.bodyText = null;
+            return this;
+        }
+
+        /**
+         * Usa un cuerpo leído bajo demanda de la conexión.
+         */
+        Builder withBody(RequestBody body) {
             this.body = body;
+            this.bodyText = null;
             return this;
         }
 
@@ -304,7 +526,7 @@ public class Request {
         }
 
         public Request build() {
-            if (uri == null) {
+            if (uri == null && head == null) {
                 throw new IllegalStateException("URI is required");
             }
             return new Request(this);
@@ -0,0 +1,69 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Cuerpo de una petición.
+ *
+ * Puede venir ya en memoria (transporte NIO, peticiones construidas a mano)
+ * o como un stream sobre la conexión (transporte bloqueante). En el segundo
+ * caso solo se acumula en memoria si alguien pide los bytes; un consumidor
+ * que lee el stream procesa el cuerpo por partes. Una vez entregado el
+ * stream el cuerpo ya no se puede acumular.
+ *
+ * @author jgamb
+ */
+final class RequestBody {
+
+    static final RequestBody EMPTY = new RequestBody(new byte[0]);
+
+    private final InputStream stream;
+    private byte[] bytes;
+    private boolean streamed;
+
+    RequestBody(byte[] bytes) {
+        this.stream = null;
+        this.bytes = bytes;
+    }
+
+    RequestBody(InputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * @return el cuerpo como stream
+     */
+    InputStream stream() {
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        streamed = true;
+        return stream;
+    }
+
+    /**
+     * Lee el resto del cuerpo a memoria la primera vez.
+     *
+     * @return los bytes del cuerpo
+     * @throws IOException Si falla la lectura o se supera el máximo
+     * @throws IllegalStateException Si el cuerpo ya se leyó como stream
+     */
+    byte[] bytes() throws IOException {
+        if (bytes == null) {
+            if (streamed) {
+                throw new IllegalStateException("Request body already consumed as a stream");
+            }
+            bytes = stream.readAllBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return true si el cuerpo ya está en memoria
+     */
+    boolean isBuffered() {
+        return bytes != null;
+    }
+}
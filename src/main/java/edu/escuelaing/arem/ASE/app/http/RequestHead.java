@@ -0,0 +1,382 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Vista sin copias de la cabecera de una petición HTTP ya parseada.
+ *
+ * Guarda únicamente desplazamientos (offsets) dentro del buffer de lectura de
+ * la conexión: método, ruta, query, versión y cada par nombre/valor de los
+ * headers. Los {@code String} se materializan solo cuando alguien los pide y
+ * se decodifican como ISO-8859-1 (byte a carácter), nunca con el charset de la
+ * plataforma. La vista es válida mientras el buffer no se reutilice para la
+ * siguiente petición de la conexión.
+ *
+ * @author jgamb
+ */
+public final class RequestHead {
+
+    static final int MAX_HEADERS = 100;
+
+    private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+
+    ByteBuffer buffer;
+    int methodStart;
+    int methodEnd;
+    int targetStart;
+    int targetEnd;
+    int pathStart;
+    int pathEnd;
+    int queryStart;
+    int queryEnd;
+    int versionStart;
+    int versionEnd;
+    int end;
+    final int[] headerOffsets = new int[MAX_HEADERS * 4];
+    int headerCount;
+
+    private String method;
+    private String path;
+    private String query;
+
+    RequestHead() {
+        reset(null);
+    }
+
+    void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        methodStart = methodEnd = 0;
+        targetStart = targetEnd = 0;
+        pathStart = pathEnd = 0;
+        queryStart = queryEnd = -1;
+        versionStart = versionEnd = -1;
+        end = 0;
+        headerCount = 0;
+        method = null;
+        path = null;
+        query = null;
+    }
+
+    void addHeader(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        int base = headerCount * 4;
+        headerOffsets[base] = nameStart;
+        headerOffsets[base + 1] = nameEnd;
+        headerOffsets[base + 2] = valueStart;
+        headerOffsets[base + 3] = valueEnd;
+        headerCount++;
+    }
+
+    /**
+     * Obtiene el método HTTP. Los métodos estándar se devuelven como
+     * constantes, sin crear un {@code String} nuevo.
+     *
+     * @return El método HTTP
+     */
+    public String method() {
+        if (method == null) {
+            method = knownMethod();
+            if (method == null) {
+                method = ascii(methodStart, methodEnd);
+            }
+        }
+        return method;
+    }
+
+    /**
+     * Obtiene la ruta decodificada (sin query). Los {@code %XX} se decodifican
+     * como UTF-8.
+     *
+     * @return La ruta de la petición
+     */
+    public String path() {
+        if (path == null) {
+            path = pathStart == pathEnd ? "/" : percentDecode(pathStart, pathEnd);
+        }
+        return path;
+    }
+
+    /**
+     * Obtiene la query sin decodificar.
+     *
+     * @return La query o null si la petición no tiene
+     */
+    public String query() {
+        if (query == null && queryStart >= 0) {
+            query = ascii(queryStart, queryEnd);
+        }
+        return query;
+    }
+
+    /**
+     * @return El request-target tal como llegó (ruta y query)
+     */
+    public String target() {
+        return ascii(targetStart, targetEnd);
+    }
+
+    /**
+     * @return La versión HTTP, o "HTTP/1.0" si la línea de petición no la
+     * incluye
+     */
+    public String version() {
+        return versionStart < 0 ? "HTTP/1.0" : ascii(versionStart, versionEnd);
+    }
+
+    /**
+     * @return true si la petición es HTTP/1.1
+     */
+    public boolean isHttp11() {
+        return versionStart >= 0 && regionEquals(versionStart, versionEnd, HTTP_1_1);
+    }
+
+    /**
+     * Decide si la conexión debe mantenerse abierta según la versión HTTP y el
+     * header {@code Connection}: HTTP/1.1 es persistente salvo {@code close};
+     * HTTP/1.0 solo con {@code keep-alive} explícito.
+     *
+     * @return true si la conexión se mantiene abierta
+     */
+    public boolean isKeepAlive() {
+        int i = indexOf("connection");
+        if (i >= 0) {
+            if (valueContains(i, "close")) {
+                return false;
+            }
+            if (valueContains(i, "keep-alive")) {
+                return true;
+            }
+        }
+        return isHttp11();
+    }
+
+    /**
+     * @return número de headers de la petición
+     */
+    public int headerCount() {
+        return headerCount;
+    }
+
+    /**
+     * Obtiene el valor de un header comparando el nombre sin distinguir
+     * mayúsculas y sin crear Strings intermedios.
+     *
+     * @param name Nombre del header
+     * @return El valor o null si no existe
+     */
+    public String header(String name) {
+        int i = indexOf(name);
+        return i < 0 ? null : ascii(headerOffsets[i * 4 + 2], headerOffsets[i * 4 + 3]);
+    }
+
+    /**
+     * Lee el header Content-Length directamente de los bytes.
+     *
+     * @return la longitud, -1 si no está presente o -2 si no es un número
+     * válido
+     */
+    public long contentLength() {
+        int i = indexOf("content-length");
+        return i < 0 ? -1 : contentLength(i);
+    }
+
+    /**
+     * Revisa todas las apariciones de Content-Length: valores distintos
+     * dejan el fin del cuerpo ambiguo entre este servidor y un proxy
+     * (request smuggling). Repetir el mismo valor se acepta.
+     *
+     * @return true si hay dos Content-Length con valores distintos
+     */
+    boolean hasConflictingContentLength() {
+        long first = -1;
+        for (int i = 0; i < headerCount; i++) {
+            int start = headerOffsets[i * 4];
+            int stop = headerOffsets[i * 4 + 1];
+            if (stop - start != "content-length".length() || !equalsIgnoreCase(start, "content-length")) {
+                continue;
+            }
+            long value = contentLength(i);
+            if (first == -1) {
+                first = value;
+            } else if (value != first) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long contentLength(int i) {
+        int start = headerOffsets[i * 4 + 2];
+        int stop = headerOffsets[i * 4 + 3];
+        if (start == stop || stop - start > 18) {
+            return -2;
+        }
+        long value = 0;
+        for (int p = start; p < stop; p++) {
+            byte b = buffer.get(p);
+            if (b < '0' || b > '9') {
+                return -2;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return true si el cuerpo viene con {@code Transfer-Encoding: chunked}
+     */
+    public boolean isChunked() {
+        int i = indexOf("transfer-encoding");
+        return i >= 0 && valueContains(i, "chunked");
+    }
+
+    /**
+     * @return true si el cliente espera {@code 100 Continue} antes de enviar
+     * el cuerpo
+     */
+    public boolean expectsContinue() {
+        int i = indexOf("expect");
+        return i >= 0 && valueContains(i, "100-continue") && isHttp11();
+    }
+
+    /**
+     * Materializa todos los headers en un mapa con nombres en minúsculas.
+     *
+     * @return Mapa nombre -> valor
+     */
+    public Map<String, String> headers() {
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            int base = i * 4;
+            headers.putIfAbsent(ascii(headerOffsets[base], headerOffsets[base + 1]).toLowerCase(),
+                    ascii(headerOffsets[base + 2], headerOffsets[base + 3]));
+        }
+        return headers;
+    }
+
+    /**
+     * @return posición del buffer donde termina la cabecera (inicio del
+     * cuerpo)
+     */
+    public int end() {
+        return end;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            int start = headerOffsets[i * 4];
+            int stop = headerOffsets[i * 4 + 1];
+            if (stop - start == name.length() && equalsIgnoreCase(start, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean valueContains(int header, String token) {
+        int start = headerOffsets[header * 4 + 2];
+        int stop = headerOffsets[header * 4 + 3] - token.length();
+        for (int p = start; p <= stop; p++) {
+            if (equalsIgnoreCase(p, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean equalsIgnoreCase(int start, String text) {
+        for (int k = 0; k < text.length(); k++) {
+            char c = text.charAt(k);
+            if (toLower(buffer.get(start + k)) != (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean regionEquals(int start, int stop, byte[] expected) {
+        if (stop - start != expected.length) {
+            return false;
+        }
+        for (int k = 0; k < expected.length; k++) {
+            if (buffer.get(start + k) != expected[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String knownMethod() {
+        return switch (methodEnd - methodStart) {
+            case 3 ->
+                matches("GET") ? "GET" : matches("PUT") ? "PUT" : null;
+            case 4 ->
+                matches("POST") ? "POST" : matches("HEAD") ? "HEAD" : null;
+            case 5 ->
+                matches("PATCH") ? "PATCH" : null;
+            case 6 ->
+                matches("DELETE") ? "DELETE" : null;
+            case 7 ->
+                matches("OPTIONS") ? "OPTIONS" : null;
+            default ->
+                null;
+        };
+    }
+
+    private boolean matches(String literal) {
+        for (int k = 0; k < literal.length(); k++) {
+            if (buffer.get(methodStart + k) != literal.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String percentDecode(int start, int stop) {
+        int percent = -1;
+        for (int p = start; p < stop; p++) {
+            if (buffer.get(p) == '%') {
+                percent = p;
+                break;
+            }
+        }
+        if (percent < 0) {
+            return ascii(start, stop);
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(stop - start);
+        for (int p = start; p < stop; p++) {
+            byte b = buffer.get(p);
+            if (b == '%' && p + 2 < stop) {
+                int hi = Character.digit(buffer.get(p + 1), 16);
+                int lo = Character.digit(buffer.get(p + 2), 16);
+                if (hi >= 0 && lo >= 0) {
+                    decoded.write((hi << 4) | lo);
+                    p += 2;
+                    continue;
+                }
+            }
+            decoded.write(b);
+        }
+        return decoded.toString(StandardCharsets.UTF_8);
+    }
+
+    String ascii(int start, int stop) {
+        return ascii(buffer, start, stop);
+    }
+
+    static String ascii(ByteBuffer buffer, int start, int stop) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, stop - start, StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[stop - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    static int toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+}
@@ -0,0 +1,351 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parser incremental de la cabecera de peticiones HTTP/1.x que trabaja
+ * directamente sobre los bytes de un {@link ByteBuffer}.
+ *
+ * Es una máquina de estados que avanza byte a byte y puede reanudarse cuando
+ * llegan más datos, sin volver a examinar lo ya leído. No crea
+ * {@code String}s: solo registra desplazamientos en un {@link RequestHead}.
+ * Una petición malformada no lanza excepción; {@link #parse(int)} devuelve
+ * {@link Result#ERROR} y {@link #getError()} describe el problema para
+ * responder 400. Acepta líneas terminadas en CRLF o solo LF.
+ *
+ * @author jgamb
+ */
+public final class RequestParser {
+
+    /**
+     * Resultado de una invocación a {@link #parse(int)}.
+     */
+    public enum Result {
+        /**
+         * Faltan bytes para completar la cabecera.
+         */
+        INCOMPLETE,
+        /**
+         * Cabecera completa; el cuerpo empieza en {@link RequestHead#end()}.
+         */
+        COMPLETE,
+        /**
+         * Petición malformada.
+         */
+        ERROR
+    }
+
+    static final int DEFAULT_MAX_HEAD_SIZE = 64 * 1024;
+
+    private static final int START = 0;
+    private static final int METHOD = 1;
+    private static final int TARGET = 2;
+    private static final int VERSION = 3;
+    private static final int REQUEST_LINE_LF = 4;
+    private static final int HEADER_START = 5;
+    private static final int HEADER_NAME = 6;
+    private static final int VALUE_START = 7;
+    private static final int VALUE = 8;
+    private static final int HEADER_LF = 9;
+    private static final int END_LF = 10;
+    private static final int DONE = 11;
+
+    private final RequestHead head = new RequestHead();
+    private final int maxHeadSize;
+    private ByteBuffer buffer;
+    private int state;
+    private int pos;
+    private int start;
+    private int nameStart;
+    private int nameEnd;
+    private int valueStart;
+    private int valueEnd;
+    private String error;
+
+    public RequestParser() {
+        this(DEFAULT_MAX_HEAD_SIZE);
+    }
+
+    /**
+     * @param maxHeadSize tamaño máximo en bytes de la línea de petición más
+     * los headers
+     */
+    public RequestParser(int maxHeadSize) {
+        this.maxHeadSize = maxHeadSize;
+    }
+
+    /**
+     * Prepara el parser para una nueva petición que empieza en
+     * {@code offset}.
+     *
+     * @param buffer Buffer con los bytes recibidos
+     * @param offset Posición donde empieza la petición
+     */
+    public void reset(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        head.reset(buffer);
+        state = START;
+        pos = offset;
+        start = offset;
+        error = null;
+    }
+
+    /**
+     * Sustituye el buffer por una copia más grande con los mismos contenidos
+     * y posiciones, conservando el estado del parseo.
+     *
+     * @param grown Nuevo buffer
+     */
+    public void setBuffer(ByteBuffer grown) {
+        this.buffer = grown;
+        head.buffer = grown;
+    }
+
+    /**
+     * Avanza el parseo hasta {@code limit} (exclusivo).
+     *
+     * @param limit Número de bytes válidos en el buffer
+     * @return estado del parseo
+     */
+    public Result parse(int limit) {
+        if (state == DONE) {
+            return Result.COMPLETE;
+        }
+        if (error != null) {
+            return Result.ERROR;
+        }
+
+        for (; pos < limit; pos++) {
+            byte b = buffer.get(pos);
+
+            switch (state) {
+                case START -> {
+                    if (b == '\r' || b == '\n') {
+                        // CRLF sobrantes entre peticiones
+                        start = pos + 1;
+                    } else if (isTokenChar(b)) {
+                        head.methodStart = pos;
+                        state = METHOD;
+                    } else {
+                        return fail("Malformed request method");
+                    }
+                }
+                case METHOD -> {
+                    if (b == ' ') {
+                        head.methodEnd = pos;
+                        head.targetStart = pos + 1;
+                        state = TARGET;
+                    } else if (!isTokenChar(b)) {
+                        return fail("Malformed request method");
+                    }
+                }
+                case TARGET -> {
+                    if (b == ' ' || b == '\r' || b == '\n') {
+                        head.targetEnd = pos;
+                        if (!finishTarget()) {
+                            return fail("Malformed request target");
+                        }
+                        if (b == ' ') {
+                            head.versionStart = pos + 1;
+                            state = VERSION;
+                        } else {
+                            state = b == '\r' ? REQUEST_LINE_LF : HEADER_START;
+                        }
+                    } else if (b == '?' && head.queryStart < 0) {
+                        head.queryStart = pos + 1;
+                    } else if (b < 0x21 || b == 0x7F) {
+                        return fail("Malformed request target");
+                    }
+                }
+                case VERSION -> {
+                    if (b == '\r' || b == '\n') {
+                        head.versionEnd = pos;
+                        if (!isValidVersion()) {
+                            return fail("Unsupported HTTP version");
+                        }
+                        state = b == '\r' ? REQUEST_LINE_LF : HEADER_START;
+                    }
+                }
+                case REQUEST_LINE_LF, HEADER_LF -> {
+                    if (b != '\n') {
+                        return fail("Malformed line ending");
+                    }
+                    state = HEADER_START;
+                }
+                case HEADER_START -> {
+                    if (b == '\r') {
+                        state = END_LF;
+                    } else if (b == '\n') {
+                        return complete();
+                    } else if (isTokenChar(b)) {
+                        nameStart = pos;
+                        state = HEADER_NAME;
+                    } else {
+                        return fail("Malformed header name");
+                    }
+                }
+                case HEADER_NAME -> {
+                    if (b == ':') {
+                        nameEnd = pos;
+                        state = VALUE_START;
+                    } else if (!isTokenChar(b)) {
+                        return fail("Malformed header name");
+                    }
+                }
+                case VALUE_START -> {
+                    if (b == '\r' || b == '\n') {
+                        if (!storeHeader(pos, pos)) {
+                            return fail("Too many headers");
+                        }
+                        state = b == '\r' ? HEADER_LF : HEADER_START;
+                    } else if (b != ' ' && b != '\t') {
+                        if (isControl(b)) {
+                            return fail("Malformed header value");
+                        }
+                        valueStart = pos;
+                        valueEnd = pos + 1;
+                        state = VALUE;
+                    }
+                }
+                case VALUE -> {
+                    if (b == '\r' || b == '\n') {
+                        if (!storeHeader(valueStart, valueEnd)) {
+                            return fail("Too many headers");
+                        }
+                        state = b == '\r' ? HEADER_LF : HEADER_START;
+                    } else if (b != ' ' && b != '\t') {
+                        if (isControl(b)) {
+                            return fail("Malformed header value");
+                        }
+                        valueEnd = pos + 1;
+                    }
+                }
+                case END_LF -> {
+                    if (b != '\n') {
+                        return fail("Malformed line ending");
+                    }
+                    return complete();
+                }
+                default ->
+                    throw new IllegalStateException("Unexpected parser state " + state);
+            }
+
+            if (pos - start >= maxHeadSize) {
+                return fail("Request header too large");
+            }
+        }
+        return Result.INCOMPLETE;
+    }
+
+    /**
+     * @return la cabecera parseada (válida tras {@link Result#COMPLETE})
+     */
+    public RequestHead head() {
+        return head;
+    }
+
+    /**
+     * @return descripción del error tras {@link Result#ERROR}
+     */
+    public String getError() {
+        return error;
+    }
+
+    private Result complete() {
+        if (head.hasConflictingContentLength()) {
+            return fail("Conflicting Content-Length headers");
+        }
+        head.end = pos + 1;
+        pos++;
+        state = DONE;
+        return Result.COMPLETE;
+    }
+
+    private Result fail(String message) {
+        error = message;
+        return Result.ERROR;
+    }
+
+    private boolean storeHeader(int from, int to) {
+        if (head.headerCount >= RequestHead.MAX_HEADERS) {
+            return false;
+        }
+        head.addHeader(nameStart, nameEnd, from, to);
+        return true;
+    }
+
+    /**
+     * Separa ruta y query del request-target. Acepta origin-form
+     * ({@code /ruta?q}), absolute-form ({@code http://host/ruta?q}) y
+     * asterisk-form ({@code *}).
+     */
+    private boolean finishTarget() {
+        int targetStart = head.targetStart;
+        int targetEnd = head.targetEnd;
+        if (targetStart == targetEnd) {
+            return false;
+        }
+        int pathLimit = head.queryStart >= 0 ? head.queryStart - 1 : targetEnd;
+        if (head.queryStart >= 0) {
+            head.queryEnd = targetEnd;
+        }
+
+        byte first = buffer.get(targetStart);
+        if (first == '/') {
+            head.pathStart = targetStart;
+        } else if (first == '*' && targetEnd - targetStart == 1) {
+            head.pathStart = targetStart;
+        } else {
+            // absolute-form: saltar "esquema://autoridad"
+            int p = targetStart;
+            while (p < pathLimit && buffer.get(p) != ':') {
+                p++;
+            }
+            if (p + 2 >= pathLimit || buffer.get(p + 1) != '/' || buffer.get(p + 2) != '/') {
+                return false;
+            }
+            p += 3;
+            while (p < pathLimit && buffer.get(p) != '/') {
+                p++;
+            }
+            head.pathStart = p;
+        }
+        head.pathEnd = pathLimit;
+        return true;
+    }
+
+    private boolean isValidVersion() {
+        int length = head.versionEnd - head.versionStart;
+        if (length != 8) {
+            return false;
+        }
+        int p = head.versionStart;
+        return buffer.get(p) == 'H' && buffer.get(p + 1) == 'T' && buffer.get(p + 2) == 'T'
+                && buffer.get(p + 3) == 'P' && buffer.get(p + 4) == '/'
+                && isDigit(buffer.get(p + 5)) && buffer.get(p + 6) == '.' && isDigit(buffer.get(p + 7));
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isControl(byte b) {
+        return (b >= 0 && b < 0x20 && b != '\t') || b == 0x7F;
+    }
+
+    /**
+     * Caracteres permitidos en un token (método y nombres de header) según
+     * RFC 9110.
+     */
+    private static boolean isTokenChar(byte b) {
+        if (b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9') {
+            return true;
+        }
+        return switch (b) {
+            case '!', '#', '$', '%', '&', '\'', '*', '+', '-', '.', '^', '_', '`', '|', '~' ->
+                true;
+            default ->
+                false;
+        };
+    }
+}
@@ -0,0 +1,318 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Lector de peticiones para el transporte bloqueante.
+ *
+ * Lee bytes del socket en un único buffer por conexión y los entrega al
+ * {@link RequestParser}. Los bytes que llegan después de la petición actual
+ * (pipelining) se conservan para la siguiente.
+ *
+ * El cuerpo se entrega como un {@link BodyStream} que lee del mismo buffer y
+ * del socket a medida que el servicio lo consume, con Content-Length o
+ * chunked. Al rellenar el buffer para el cuerpo se reutiliza el espacio a
+ * partir del fin de la cabecera, que sigue intacta mientras se atiende la
+ * petición; la memoria usada no crece con el tamaño del cuerpo.
+ *
+ * El buffer es un préstamo de un {@link BufferPool} en el heap y se devuelve
+ * con {@link #close()}. Si una cabecera no cabe se pasa a un buffer propio
+ * más grande.
+ *
+ * @author jgamb
+ */
+final class RequestReader {
+
+    private final InputStream in;
+    private final RequestParser parser = new RequestParser();
+    private final BufferPool.Lease lease;
+    private ByteBuffer buffer;
+    /**
+     * Arreglo del buffer y desplazamiento de su posición 0 dentro de él (los
+     * buffers del pool son porciones de un bloque).
+     */
+    private byte[] array;
+    private int offset;
+    private int limit;
+    private int position;
+
+    /**
+     * @param in stream del socket
+     * @param lease buffer en el heap prestado para la conexión
+     */
+    RequestReader(InputStream in, BufferPool.Lease lease) {
+        this.in = in;
+        this.lease = lease;
+        setBuffer(lease.buffer());
+    }
+
+    /**
+     * Lee del socket hasta completar la cabecera de la siguiente petición.
+     *
+     * @return {@link RequestParser.Result#COMPLETE},
+     * {@link RequestParser.Result#ERROR}, o
+     * {@link RequestParser.Result#INCOMPLETE} si el cliente cerró la conexión
+     * @throws IOException Si falla la lectura
+     */
+    RequestParser.Result readHead() throws IOException {
+        parser.reset(buffer, position);
+        RequestParser.Result result = parser.parse(limit);
+
+        while (result == RequestParser.Result.INCOMPLETE) {
+            if (limit == buffer.capacity()) {
+                grow();
+            }
+            int n = in.read(array, offset + limit, buffer.capacity() - limit);
+            if (n < 0) {
+                return RequestParser.Result.INCOMPLETE;
+            }
+            limit += n;
+            result = parser.parse(limit);
+        }
+
+        if (result == RequestParser.Result.COMPLETE) {
+            position = parser.head().end();
+        }
+        return result;
+    }
+
+    /**
+     * @return la cabecera de la petición actual
+     */
+    RequestHead head() {
+        return parser.head();
+    }
+
+    /**
+     * @return descripción del error de parseo
+     */
+    String error() {
+        return parser.getError();
+    }
+
+    /**
+     * Crea el stream del cuerpo de la petición actual, ya validada con
+     * {@link HttpServer#checkBodyFraming(RequestHead)}.
+     *
+     * @param maxBytes tamaño máximo del cuerpo
+     * @param onFirstRead acción previa a la primera lectura (el
+     * {@code 100 Continue}), o null
+     * @return el stream del cuerpo
+     */
+    BodyStream body(long maxBytes, BodyAction onFirstRead) {
+        RequestHead head = parser.head();
+        if (head.isChunked()) {
+            return new ChunkedBody(head.end(), maxBytes, onFirstRead);
+        }
+        long length = Math.max(0, head.contentLength());
+        return new FixedLengthBody(head.end(), length, length > 0 ? onFirstRead : null);
+    }
+
+    /**
+     * Acción de E/S previa a la lectura del cuerpo.
+     */
+    @FunctionalInterface
+    interface BodyAction {
+
+        void run() throws IOException;
+    }
+
+    /**
+     * Stream del cuerpo sobre la conexión.
+     */
+    abstract class BodyStream extends InputStream {
+
+        private final int bodyStart;
+        private BodyAction onFirstRead;
+
+        BodyStream(int bodyStart, BodyAction onFirstRead) {
+            this.bodyStart = bodyStart;
+            this.onFirstRead = onFirstRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        /**
+         * Deja el lector al final del cuerpo para atender la siguiente
+         * petición, descartando lo que el servicio no leyó.
+         *
+         * @return false si la conexión no se puede reutilizar: el cliente
+         * sigue esperando el {@code 100 Continue}, el cuerpo estaba incompleto
+         * o supera el máximo
+         */
+        boolean finish() {
+            if (onFirstRead != null) {
+                // Nunca se pidió el cuerpo y el cliente no lo ha enviado
+                return false;
+            }
+            try {
+                skip(Long.MAX_VALUE);
+                return read() < 0;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Ejecuta la acción pendiente antes de la primera lectura.
+         */
+        void start() throws IOException {
+            if (onFirstRead != null) {
+                BodyAction action = onFirstRead;
+                onFirstRead = null;
+                action.run();
+            }
+        }
+
+        /**
+         * Lee más bytes del socket al buffer sin pisar la cabecera.
+         *
+         * @throws EOFException Si el cliente cerró antes del fin del cuerpo
+         */
+        void refill() throws IOException {
+            if (position == limit) {
+                position = limit = bodyStart;
+            }
+            if (limit == buffer.capacity()) {
+                grow();
+            }
+            int n = in.read(array, offset + limit, buffer.capacity() - limit);
+            if (n < 0) {
+                throw new EOFException("Incomplete request body");
+            }
+            limit += n;
+        }
+    }
+
+    /**
+     * Cuerpo delimitado por Content-Length.
+     */
+    private final class FixedLengthBody extends BodyStream {
+
+        private long remaining;
+
+        FixedLengthBody(int bodyStart, long length, BodyAction onFirstRead) {
+            super(bodyStart, onFirstRead);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            start();
+            int n;
+            if (position < limit) {
+                n = (int) Math.min(Math.min(len, remaining), limit - position);
+                System.arraycopy(array, offset + position, b, off, n);
+                position += n;
+            } else {
+                // Sin bytes en el buffer: leer directo al destino, sin pasar
+                // del fin del cuerpo para no consumir la siguiente petición
+                n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n < 0) {
+                    throw new EOFException("Incomplete request body");
+                }
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, limit - position);
+        }
+    }
+
+    /**
+     * Cuerpo con {@code Transfer-Encoding: chunked}, decodificado al leer.
+     */
+    private final class ChunkedBody extends BodyStream {
+
+        private final ChunkedDecoder decoder;
+
+        ChunkedBody(int bodyStart, long maxBytes, BodyAction onFirstRead) {
+            super(bodyStart, onFirstRead);
+            this.decoder = new ChunkedDecoder(maxBytes);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            start();
+            while (!decoder.isDone()) {
+                if (position == limit) {
+                    refill();
+                }
+                long data = decoder.dataRemaining();
+                if (data > 0) {
+                    int n = (int) Math.min(Math.min(len, data), limit - position);
+                    System.arraycopy(array, offset + position, b, off, n);
+                    position += n;
+                    decoder.consumeData(n);
+                    return n;
+                }
+                position = decoder.skipFraming(buffer, position, limit);
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Descarta la petición ya atendida, moviendo al inicio del buffer los
+     * bytes de las peticiones siguientes.
+     */
+    void finishRequest() {
+        System.arraycopy(array, offset + position, array, offset, limit - position);
+        limit -= position;
+        position = 0;
+        ByteBuffer pooled = lease.buffer();
+        if (buffer != pooled && limit <= pooled.capacity()) {
+            // Lo pendiente vuelve a caber en el buffer del pool
+            pooled.put(0, buffer, 0, limit);
+            setBuffer(pooled);
+        }
+    }
+
+    /**
+     * Devuelve el buffer al pool al cerrar la conexión.
+     */
+    void close() {
+        lease.release();
+    }
+
+    /**
+     * @return true si ya hay bytes de otra petición recibidos o disponibles
+     * sin bloquear
+     * @throws IOException Si falla la consulta al socket
+     */
+    boolean hasBufferedData() throws IOException {
+        return limit > position || in.available() > 0;
+    }
+
+    private void grow() {
+        ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+        bigger.put(0, buffer, 0, limit);
+        setBuffer(bigger);
+    }
+
+    private void setBuffer(ByteBuffer b) {
+        buffer = b;
+        array = b.array();
+        offset = b.arrayOffset();
+        parser.setBuffer(b);
+    }
+}
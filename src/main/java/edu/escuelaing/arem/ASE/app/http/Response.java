@@ -1,14 +1,27 @@
     package edu.escuelaing.arem.ASE.app.http;
 
+    import java.io.ByteArrayOutputStream;
+    import java.io.EOFException;
+    import java.io.IOException;
+    import java.io.OutputStream;
+    import java.io.UncheckedIOException;
+    import java.nio.ByteBuffer;
+    import java.nio.channels.Channels;
+    import java.nio.channels.FileChannel;
+    import java.nio.channels.WritableByteChannel;
     import java.nio.charset.StandardCharsets;
-    import java.util.HashMap;
-    import java.util.Map;
+    import java.nio.file.Path;
+    import java.nio.file.StandardOpenOption;
+    import java.util.Arrays;
+    import java.util.List;
 
     /**
      * Representa una respuesta HTTP construida por el servidor.
      * 
-     * Permite definir código de estado, tipo de contenido, cuerpo en texto o bytes,
-     * y encabezados adicionales. Provee métodos para generar la respuesta en el 
+     * Permite definir código de estado, tipo de contenido, cuerpo en texto, bytes
+     * o una secuencia de partes (tramos de bytes y regiones de archivo), y encabezados adicionales.
+     * Un cuerpo en streaming ({@link StreamingBody}) se escribe por partes con
+     * {@code Transfer-Encoding: chunked} sin retenerlo completo en memoria. Provee métodos para generar la respuesta en el 
      * formato requerido por el protocolo HTTP (headers + body).
      */
     public class Response {
@@ -16,15 +29,92 @@
         private final int status;
         private final String contentType;
         private byte[] bodyBytes;
-        private boolean includeContentLength;
-        private final Map<String, String> extraHeaders;
+        /**
+         * Headers adicionales como pares nombre, valor consecutivos; un
+         * arreglo pequeño en vez de un mapa para no asignar por respuesta.
+         */
+        private String[] extraHeaders;
+        private int extraHeaderCount;
+        private byte[] serializedHead;
+        private List<Part> bodyParts;
+        private StreamingBody streamingBody;
+
+        /**
+         * Productor de un cuerpo en streaming. Recibe el stream de la
+         * conexión (ya codificado en chunks) y escribe el cuerpo de forma
+         * progresiva; {@code flush()} envía al cliente lo escrito hasta el
+         * momento. El stream no debe cerrarse.
+         */
+        @FunctionalInterface
+        public interface StreamingBody {
+
+            void writeTo(OutputStream out) throws IOException;
+        }
+
+        /**
+         * Parte de un cuerpo compuesto: un tramo de un arreglo de bytes o una
+         * región de un archivo que se envía con {@link FileChannel#transferTo}.
+         */
+        static final class Part {
+
+            private final byte[] bytes;
+            private final Path file;
+            private final long position;
+            private final long length;
+
+            private Part(byte[] bytes, Path file, long position, long length) {
+                this.bytes = bytes;
+                this.file = file;
+                this.position = position;
+                this.length = length;
+            }
+
+            static Part bytes(byte[] bytes) {
+                return new Part(bytes, null, 0, bytes.length);
+            }
+
+            static Part bytes(byte[] bytes, int offset, int length) {
+                return new Part(bytes, null, offset, length);
+            }
+
+            static Part file(Path file, long position, long length) {
+                return new Part(null, file, position, length);
+            }
+
+            /**
+             * @return arreglo de bytes, o null si la parte es un archivo
+             */
+            byte[] bytes() {
+                return bytes;
+            }
+
+            /**
+             * @return archivo, o null si la parte está en memoria
+             */
+            Path file() {
+                return file;
+            }
+
+            /**
+             * @return desplazamiento dentro del arreglo o del archivo
+             */
+            long position() {
+                return position;
+            }
+
+            long length() {
+                return length;
+            }
+        }
 
         private Response(Builder builder) {
             this.status = builder.status;
             this.contentType = builder.contentType;
             this.bodyBytes = builder.bodyBytes;
-            this.includeContentLength = builder.includeContentLength;
+            this.bodyParts = builder.bodyParts;
+            this.streamingBody = builder.streamingBody;
             this.extraHeaders = builder.extraHeaders;
+            this.extraHeaderCount = builder.extraHeaderCount;
         }
 
          /**
@@ -33,49 +123,181 @@
          * @return headers formateados como arreglo de bytes
          */
         public byte[] getHeaderBytes() {
-            StringBuilder headers = new StringBuilder();
-            headers.append("HTTP/1.1 ").append(status).append(" ").append(getStatusText()).append("\r\n");
-            headers.append("Content-Type: ").append(contentType).append("\r\n");
+            HeadWriter head = new HeadWriter();
+            writeHead(head, null);
+            return head.toByteArray();
+        }
 
-            if (includeContentLength && bodyBytes != null && bodyBytes.length > 0) {
-                headers.append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+         /**
+         * Serializa la cabecera para enviarla por una conexión: además de los
+         * headers de la respuesta escribe {@code Date} (en caché, uno por
+         * segundo) y {@code Connection}, que decide el transporte y reemplaza
+         * al que haya puesto el servicio.
+         *
+         * @param head buffer de la conexión, ya reiniciado
+         * @param keepAlive true si la conexión sigue abierta tras la respuesta
+         */
+        void writeHead(HeadWriter head, boolean keepAlive) {
+            writeHead(head, keepAlive ? HeadWriter.KEEP_ALIVE : HeadWriter.CLOSE);
+        }
+
+        private void writeHead(HeadWriter head, byte[] connection) {
+            if (serializedHead != null) {
+                head.put(serializedHead);
+            } else {
+                head.statusLine(status);
+                head.put(HeadWriter.CONTENT_TYPE).putAscii(String.valueOf(contentType)).put(HeadWriter.CRLF);
+                long bodyLength = getBodyLength();
+                if (streamingBody != null) {
+                    head.put(HeadWriter.CHUNKED);
+                } else if (allowsBody(status)) {
+                    // Siempre, también 0: sin él el cliente no sabe dónde termina el mensaje
+                    head.put(HeadWriter.CONTENT_LENGTH).putLong(bodyLength).put(HeadWriter.CRLF);
+                }
             }
 
             // Agregar headers adicionales
-            for (Map.Entry<String, String> entry : extraHeaders.entrySet()) {
-                headers.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+            for (int i = 0; i < extraHeaderCount; i += 2) {
+                if (connection == null || !extraHeaders[i].equalsIgnoreCase("Connection")) {
+                    head.header(extraHeaders[i], extraHeaders[i + 1]);
+                }
             }
+            if (connection != null) {
+                head.put(HttpDate.header()).put(connection);
+            }
+            head.put(HeadWriter.CRLF); // Línea en blanco que separa headers y body
+        }
 
-            headers.append("\r\n"); // Línea en blanco que separa headers y body
-            return headers.toString().getBytes(StandardCharsets.UTF_8);
+        /**
+         * @return false para 1xx, 204 y 304, que nunca llevan cuerpo ni
+         * Content-Length
+         */
+        private static boolean allowsBody(int status) {
+            return status >= 200 && status != 204 && status != 304;
         }
 
          /**
-         * Construye la respuesta completa (headers + body) en bytes.
+         * Escribe la respuesta en el stream sin copiar el cuerpo a un arreglo
+         * intermedio.
          *
-         * @return respuesta HTTP lista para enviar al cliente
+         * @param out stream de salida de la conexión
+         * @throws IOException Si falla la escritura
          */
-        public byte[] toBytes() {
-            byte[] headerBytes = getHeaderBytes();
-            int bodyLength = (bodyBytes != null && bodyBytes.length > 0) ? bodyBytes.length : 0;
+        public void writeTo(OutputStream out) throws IOException {
+            writeTo(out, null);
+        }
 
-            byte[] response = new byte[headerBytes.length + bodyLength];
+         /**
+         * Escribe la respuesta en el stream. Las regiones de archivo del
+         * cuerpo se envían con {@link FileChannel#transferTo} (sendfile en
+         * Linux) sin pasar por el heap si se dispone del canal del socket; sin
+         * canal se copian a través del stream.
+         *
+         * @param out stream de salida de la conexión
+         * @param direct canal del socket, o null si no está disponible
+         * @throws IOException Si falla la escritura o el archivo se trunca
+         */
+        public void writeTo(OutputStream out, WritableByteChannel direct) throws IOException {
+            out.write(getHeaderBytes());
+            writeBody(out, direct);
+        }
 
-            System.arraycopy(headerBytes, 0, response, 0, headerBytes.length);
+         /**
+         * Como {@link #writeTo(OutputStream, WritableByteChannel)}, con la
+         * cabecera serializada en el buffer reutilizable de la conexión junto
+         * con Date y Connection.
+         *
+         * @param out stream de salida de la conexión (con buffer)
+         * @param direct canal del socket, o null si no está disponible
+         * @param head buffer de cabecera de la conexión
+         * @param keepAlive true si la conexión sigue abierta tras la respuesta
+         * @throws IOException Si falla la escritura o el archivo se trunca
+         */
+        void writeTo(OutputStream out, WritableByteChannel direct, HeadWriter head, boolean keepAlive)
+                throws IOException {
+            writeHead(head.reset(), keepAlive);
+            head.writeTo(out);
+            writeBody(out, direct);
+        }
 
-            if (bodyLength > 0) {
-                System.arraycopy(bodyBytes, 0, response, headerBytes.length, bodyLength);
+        private void writeBody(OutputStream out, WritableByteChannel direct) throws IOException {
+            if (streamingBody != null) {
+                writeChunked(out);
+                return;
+            }
+            if (bodyParts == null) {
+                if (bodyBytes != null && bodyBytes.length > 0) {
+                    out.write(bodyBytes);
+                }
+                return;
             }
+            WritableByteChannel target = direct != null ? direct : Channels.newChannel(out);
+            FileChannel file = null;
+            Path openPath = null;
+            try {
+                for (Part part : bodyParts) {
+                    if (part.file() == null) {
+                        out.write(part.bytes(), (int) part.position(), (int) part.length());
+                        continue;
+                    }
+                    if (!part.file().equals(openPath)) {
+                        if (file != null) {
+                            file.close();
+                        }
+                        file = FileChannel.open(part.file(), StandardOpenOption.READ);
+                        openPath = part.file();
+                    }
+                    out.flush();
+                    long position = part.position();
+                    long end = position + part.length();
+                    while (position < end) {
+                        long sent = file.transferTo(position, end - position, target);
+                        if (sent <= 0 && position >= file.size()) {
+                            throw new EOFException("Archivo truncado: " + part.file());
+                        }
+                        position += sent;
+                    }
+                }
+            } finally {
+                if (file != null) {
+                    file.close();
+                }
+            }
+        }
 
-            return response;
+         /**
+         * Construye la respuesta completa (headers + body) en bytes.
+         *
+         * @return respuesta HTTP lista para enviar al cliente
+         */
+        public byte[] toBytes() {
+            if (streamingBody != null) {
+                bufferBody();
+            }
+            if (bodyParts != null) {
+                // Solo para llamadas que necesitan la respuesta en memoria
+                try {
+                    bodyBytes = readParts();
+                    bodyParts = null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            HeadWriter head = new HeadWriter();
+            writeHead(head, null);
+            if (bodyBytes != null) {
+                head.put(bodyBytes);
+            }
+            return head.toByteArray();
         }
 
          /**
          * Traduce un código de estado a su texto correspondiente (ej: 200 -> OK).
          *
+         * @param status código de estado
          * @return descripción textual del estado
          */
-        private String getStatusText() {
+        static String statusText(int status) {
             return switch (status) {
                 case 200 ->
                     "OK";
@@ -83,6 +305,10 @@
                     "Created";
                 case 204 ->
                     "No Content";
+                case 206 ->
+                    "Partial Content";
+                case 304 ->
+                    "Not Modified";
                 case 400 ->
                     "Bad Request";
                 case 401 ->
@@ -91,24 +317,268 @@
                     "Forbidden";
                 case 404 ->
                     "Not Found";
+                case 405 ->
+                    "Method Not Allowed";
+                case 413 ->
+                    "Payload Too Large";
+                case 416 ->
+                    "Range Not Satisfiable";
+                case 429 ->
+                    "Too Many Requests";
                 case 500 ->
                     "Internal Server Error";
+                case 501 ->
+                    "Not Implemented";
+                case 503 ->
+                    "Service Unavailable";
                 default ->
                     "Unknown";
             };
         }
 
+        /**
+         * @return código de estado HTTP
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Escribe el cuerpo en streaming codificado en chunks.
+         *
+         * @param out stream de la conexión, que queda abierto
+         * @throws IOException Si falla la escritura o el productor
+         */
+        void writeChunked(OutputStream out) throws IOException {
+            ChunkedOutputStream chunked = new ChunkedOutputStream(out, ChunkedOutputStream.DEFAULT_CHUNK_SIZE);
+            streamingBody.writeTo(chunked);
+            chunked.close();
+        }
+
+        /**
+         * Ejecuta el productor en streaming y guarda el cuerpo en memoria con
+         * Content-Length, para clientes HTTP/1.0 y llamadas que necesitan la
+         * respuesta completa.
+         */
+        void bufferBody() {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try {
+                streamingBody.writeTo(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            streamingBody = null;
+            bodyBytes = buffer.toByteArray();
+        }
+
+        /**
+         * @return true si el cuerpo se produce en streaming
+         */
+        public boolean isStreaming() {
+            return streamingBody != null;
+        }
+
+        private byte[] readParts() throws IOException {
+            ByteBuffer body = ByteBuffer.allocate((int) getBodyLength());
+            for (Part part : bodyParts) {
+                if (part.file() == null) {
+                    body.put(part.bytes(), (int) part.position(), (int) part.length());
+                    continue;
+                }
+                try (FileChannel file = FileChannel.open(part.file(), StandardOpenOption.READ)) {
+                    long position = part.position();
+                    int end = body.position() + (int) part.length();
+                    body.limit(end);
+                    while (body.hasRemaining()) {
+                        int n = file.read(body, position);
+                        if (n < 0) {
+                            throw new EOFException("Archivo truncado: " + part.file());
+                        }
+                        position += n;
+                    }
+                    body.limit(body.capacity());
+                }
+            }
+            return body.array();
+        }
+
+        /**
+         * @return longitud del cuerpo en bytes
+         */
+        public long getBodyLength() {
+            if (bodyParts != null) {
+                long length = 0;
+                for (Part part : bodyParts) {
+                    length += part.length();
+                }
+                return length;
+            }
+            return bodyBytes != null ? bodyBytes.length : 0;
+        }
+
+        /**
+         * @return partes del cuerpo, o null si el cuerpo es un único arreglo
+         * en memoria
+         */
+        List<Part> getBodyParts() {
+            return bodyParts;
+        }
+
+        byte[] getBodyBytes() {
+            return bodyBytes != null ? bodyBytes : new byte[0];
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return true si la cabecera ya viene serializada (archivos estáticos
+         * o {@link ResponseCache})
+         */
+        boolean isPreserialized() {
+            return serializedHead != null;
+        }
+
+        /**
+         * @param name nombre del header (sin distinguir mayúsculas)
+         * @return true si se agregó ese header a la respuesta
+         */
+        public boolean hasHeader(String name) {
+            return indexOf(extraHeaders, extraHeaderCount, name) >= 0;
+        }
+
         public void setBody(String body) {
-            this.includeContentLength = true;
+            this.serializedHead = null;
+            this.bodyParts = null;
+            this.streamingBody = null;
             this.bodyBytes = body.getBytes(StandardCharsets.UTF_8);
         }
 
         public void setBodyBytes(byte[] bodyBytes) {
-            this.includeContentLength = true;
+            this.serializedHead = null;
+            this.bodyParts = null;
+            this.streamingBody = null;
             this.bodyBytes = bodyBytes;
 
         }
 
+        public void addHeader(String name, String value) {
+            int index = indexOf(extraHeaders, extraHeaderCount, name);
+            if (index >= 0) {
+                extraHeaders[index + 1] = value;
+                return;
+            }
+            extraHeaders = grow(extraHeaders, extraHeaderCount);
+            extraHeaders[extraHeaderCount++] = name;
+            extraHeaders[extraHeaderCount++] = value;
+        }
+
+        /**
+         * @return posición del nombre en el arreglo de pares, o -1
+         */
+        private static int indexOf(String[] headers, int count, String name) {
+            for (int i = 0; i < count; i += 2) {
+                if (headers[i].equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String[] grow(String[] headers, int count) {
+            if (headers == null) {
+                return new String[4];
+            }
+            return count < headers.length ? headers : Arrays.copyOf(headers, headers.length * 2);
+        }
+
+         /**
+         * Crea una respuesta 200 cuya línea de estado, Content-Type y
+         * Content-Length ya están serializados (p. ej. desde
+         * {@link StaticFileCache}). Los headers añadidos después se agregan a
+         * continuación.
+         *
+         * @param contentType tipo de contenido del cuerpo
+         * @param head cabecera serializada, sin la línea en blanco final
+         * @param body cuerpo (no se copia)
+         * @return la respuesta
+         */
+        static Response preserialized(String contentType, byte[] head, byte[] body) {
+            return preserialized(200, contentType, head, body);
+        }
+
+         /**
+         * Como {@link #preserialized(String, byte[], byte[])}, con otro estado
+         * (p. ej. desde {@link ResponseCache}).
+         *
+         * @param status código de estado ya escrito en la cabecera
+         * @param contentType tipo de contenido del cuerpo
+         * @param head cabecera serializada, sin la línea en blanco final
+         * @param body cuerpo (no se copia)
+         * @return la respuesta
+         */
+        static Response preserialized(int status, String contentType, byte[] head, byte[] body) {
+            Response response = new Builder()
+                    .withStatus(status)
+                    .withContentType(contentType)
+                    .withBodyBytes(body)
+                    .build();
+            response.serializedHead = head;
+            return response;
+        }
+
+         /**
+         * Crea una respuesta 304 sin cuerpo a partir de su cabecera
+         * pre-serializada (ETag, Last-Modified, Cache-Control).
+         *
+         * @param contentType tipo de contenido del recurso
+         * @param head cabecera serializada, sin la línea en blanco final
+         * @return la respuesta
+         */
+        static Response notModified(String contentType, byte[] head) {
+            Response response = new Builder()
+                    .withStatus(304)
+                    .withContentType(contentType)
+                    .build();
+            response.serializedHead = head;
+            return response;
+        }
+
+         /**
+         * Como {@link #preserialized(String, byte[], byte[])}, con el cuerpo
+         * enviado directamente desde un archivo.
+         *
+         * @param contentType tipo de contenido del cuerpo
+         * @param head cabecera serializada, sin la línea en blanco final
+         * @param file archivo con el cuerpo
+         * @param length bytes del archivo a enviar
+         * @return la respuesta
+         */
+        static Response preserialized(String contentType, byte[] head, Path file, long length) {
+            return preserialized(200, contentType, head, List.of(Part.file(file, 0, length)));
+        }
+
+         /**
+         * Como {@link #preserialized(String, byte[], byte[])}, con otro estado
+         * y el cuerpo compuesto por partes (p. ej. rangos de un archivo).
+         *
+         * @param status código de estado ya escrito en la cabecera
+         * @param contentType tipo de contenido del cuerpo
+         * @param head cabecera serializada, sin la línea en blanco final
+         * @param parts partes del cuerpo, en orden
+         * @return la respuesta
+         */
+        static Response preserialized(int status, String contentType, byte[] head, List<Part> parts) {
+            Response response = new Builder()
+                    .withStatus(status)
+                    .withContentType(contentType)
+                    .withBodyParts(parts)
+                    .build();
+            response.serializedHead = head;
+            return response;
+        }
+
          /**
          * Builder para crear instancias de Response de forma flexible.
          *
@@ -117,6 +587,8 @@
          * - withContentType(String): define el tipo de contenido
          * - withBody(String): cuerpo como texto
          * - withBodyBytes(byte[]): cuerpo como bytes
+         * - withBodyFile(Path, long): cuerpo enviado desde un archivo
+         * - withStreamingBody(StreamingBody): cuerpo en streaming (chunked)
          * - addHeader(String, String): agrega encabezados personalizados
          * - build(): construye el objeto Response
          */
@@ -125,8 +597,10 @@
             private int status = 200;
             private String contentType = "application/json";
             private byte[] bodyBytes = new byte[0];
-            private boolean includeContentLength = false;
-            private Map<String, String> extraHeaders = new HashMap<>();
+            private String[] extraHeaders;
+            private int extraHeaderCount;
+            private List<Part> bodyParts;
+            private StreamingBody streamingBody;
 
             public Builder withStatus(int status) {
                 this.status = status;
@@ -139,19 +613,41 @@
             }
 
             public Builder withBody(String body) {
-                this.includeContentLength = true;
                 this.bodyBytes = body.getBytes(StandardCharsets.UTF_8);
                 return this;
             }
 
             public Builder withBodyBytes(byte[] bodyBytes) {
-                this.includeContentLength = true;
                 this.bodyBytes = bodyBytes;
                 return this;
             }
 
+            public Builder withBodyFile(Path file, long length) {
+                return withBodyParts(List.of(Part.file(file, 0, length)));
+            }
+
+            public Builder withStreamingBody(StreamingBody body) {
+                this.bodyBytes = new byte[0];
+                this.bodyParts = null;
+                this.streamingBody = body;
+                return this;
+            }
+
+            Builder withBodyParts(List<Part> parts) {
+                this.bodyBytes = new byte[0];
+                this.bodyParts = parts;
+                return this;
+            }
+
             public Builder addHeader(String name, String value) {
-                this.extraHeaders.put(name, value);
+                int index = indexOf(extraHeaders, extraHeaderCount, name);
+                if (index >= 0) {
+                    extraHeaders[index + 1] = value;
+                    return this;
+                }
+                extraHeaders = grow(extraHeaders, extraHeaderCount);
+                extraHeaders[extraHeaderCount++] = name;
+                extraHeaders[extraHeaderCount++] = value;
                 return this;
             }
 
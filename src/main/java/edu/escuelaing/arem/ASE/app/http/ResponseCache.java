@@ -0,0 +1,306 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de respuestas de servicios GET idempotentes.
+ *
+ * Una ruta la usa si se registra con TTL
+ * ({@link HttpServer#get(String, java.util.function.BiFunction, long)} o
+ * {@code @GetMapping(cacheTtl = ...)}). La clave es la ruta más la query con
+ * los parámetros ordenados por nombre, de modo que {@code ?a=1&b=2} y
+ * {@code ?b=2&a=1} comparten entrada; la variante gzip lleva su propia
+ * clave. Cada entrada guarda la cabecera ya serializada y el cuerpo final
+ * (comprimido si corresponde): un acierto es una búsqueda en el mapa y la
+ * escritura de esos bytes, sin ejecutar el servicio ni volver a serializar.
+ *
+ * La caché está acotada por bytes totales con una política LRU aproximada,
+ * como {@link StaticFileCache}: un acierto es una lectura de un
+ * {@link ConcurrentHashMap} sin bloqueo que solo anota el instante de uso, y
+ * el orden por antigüedad se calcula al expulsar, bajo el lock que toman las
+ * inserciones. Cada entrada caduca al cumplirse el TTL de su ruta. Solo se
+ * guardan respuestas 200 con el cuerpo en memoria y sin {@code Set-Cookie}.
+ *
+ * Cada entrada recuerda el servicio que la produjo: si la ruta se vuelve a
+ * registrar con otro servicio, sus entradas dejan de servirse sin vaciar el
+ * resto de la caché. Dos fallos simultáneos sobre la misma clave ejecutan
+ * ambos el servicio; la última respuesta reemplaza a la primera.
+ *
+ * @author jgamb
+ */
+public final class ResponseCache {
+
+    /**
+     * Sobrecosto estimado por entrada (objetos, nodo del mapa).
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * Respuesta cacheada.
+     */
+    static final class Entry {
+
+        final Object owner;
+        final String contentType;
+        final byte[] head;
+        final byte[] body;
+        final long expiresAt;
+        final long size;
+        volatile long lastUsed = System.nanoTime();
+
+        Entry(String key, Object owner, String contentType, byte[] head, byte[] body, long expiresAt) {
+            this.owner = owner;
+            this.contentType = contentType;
+            this.head = head;
+            this.body = body;
+            this.expiresAt = expiresAt;
+            this.size = ENTRY_OVERHEAD + 2L * key.length() + head.length + body.length;
+        }
+
+        /**
+         * @return una respuesta nueva que comparte la cabecera y el cuerpo
+         */
+        Response toResponse() {
+            return Response.preserialized(200, contentType, head, body);
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>(64);
+    /**
+     * Protegido por el lock de la caché.
+     */
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxBytes bytes totales que puede ocupar la caché (0 la
+     * desactiva)
+     * @param maxEntryBytes tamaño máximo de una respuesta cacheable
+     */
+    public ResponseCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = Math.min(Math.max(0, maxEntryBytes), this.maxBytes);
+    }
+
+    /**
+     * Construye la clave normalizada de una petición.
+     *
+     * @param req petición GET
+     * @param gzip true si la respuesta se sirve comprimida
+     * @return ruta, query ordenada y variante
+     */
+    static String key(Request req, boolean gzip) {
+        String path = req.getPath();
+        String query = req.getRawQuery();
+        String suffix = gzip ? " gzip" : "";
+        if (query == null || query.isEmpty()) {
+            return path + suffix;
+        }
+        if (query.indexOf('&') < 0) {
+            return path + '?' + query + suffix;
+        }
+        String[] params = query.split("&");
+        // Orden estable: un nombre repetido conserva el orden de sus valores
+        Arrays.sort(params, (a, b) -> name(a).compareTo(name(b)));
+        StringBuilder key = new StringBuilder(path.length() + query.length() + 8).append(path).append('?');
+        boolean first = true;
+        for (String param : params) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            if (!first) {
+                key.append('&');
+            }
+            key.append(param);
+            first = false;
+        }
+        return key.append(suffix).toString();
+    }
+
+    private static String name(String param) {
+        int eq = param.indexOf('=');
+        return eq < 0 ? param : param.substring(0, eq);
+    }
+
+    /**
+     * Busca una respuesta vigente.
+     *
+     * @param key clave de {@link #key(Request, boolean)}
+     * @param owner servicio registrado en la ruta
+     * @return la entrada, o null si no existe, caducó o la produjo otro
+     * servicio
+     */
+    Entry get(String key, Object owner) {
+        Entry cached = entries.get(key);
+        if (cached != null && cached.owner == owner) {
+            long now = System.nanoTime();
+            if (cached.expiresAt - now > 0) {
+                cached.lastUsed = now;
+                hits.increment();
+                return cached;
+            }
+            expire(key, cached);
+        }
+        misses.increment();
+        return null;
+    }
+
+    private synchronized void expire(String key, Entry cached) {
+        // Otro hilo pudo reemplazarla o expulsarla entretanto
+        if (entries.remove(key, cached)) {
+            bytes -= cached.size;
+            expirations.increment();
+        }
+    }
+
+    /**
+     * Guarda la respuesta de un servicio si es cacheable.
+     *
+     * @param key clave de {@link #key(Request, boolean)}
+     * @param owner servicio que produjo la respuesta
+     * @param response respuesta final (ya comprimida si corresponde)
+     * @param ttlMillis vigencia de la entrada
+     * @return true si se guardó
+     */
+    boolean put(String key, Object owner, Response response, long ttlMillis) {
+        if (ttlMillis <= 0 || !cacheable(response)) {
+            return false;
+        }
+        byte[] body = response.getBodyBytes();
+        if (body.length > maxEntryBytes) {
+            return false;
+        }
+        // Cabecera sin Date ni Connection (los agrega cada conexión) ni la línea en blanco
+        byte[] head = response.getHeaderBytes();
+        head = Arrays.copyOf(head, head.length - 2);
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        Entry entry = new Entry(key, owner, response.getContentType(), head, body, expiresAt);
+        if (entry.size > maxEntryBytes) {
+            return false;
+        }
+        put(key, entry);
+        return true;
+    }
+
+    private static boolean cacheable(Response response) {
+        return response.getStatus() == 200
+                && !response.isPreserialized()
+                && !response.isStreaming()
+                && response.getBodyParts() == null
+                && !response.hasHeader("Set-Cookie");
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        bytes += entry.size;
+
+        if (bytes > maxBytes) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Expulsa primero las entradas caducadas y después las menos usadas hasta
+     * volver al límite. El instante de uso se copia antes de ordenar porque
+     * los aciertos lo siguen actualizando.
+     */
+    private void evict(Entry keep) {
+        record Candidate(String key, Entry entry, long lastUsed) {
+        }
+        long now = System.nanoTime();
+        List<Candidate> byAge = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry cached = e.getValue();
+            if (cached == keep) {
+                continue;
+            }
+            if (cached.expiresAt - now <= 0) {
+                expire(e.getKey(), cached);
+            } else {
+                byAge.add(new Candidate(e.getKey(), cached, cached.lastUsed));
+            }
+        }
+        byAge.sort(Comparator.comparingLong(Candidate::lastUsed));
+        for (Candidate eldest : byAge) {
+            if (bytes <= maxBytes) {
+                break;
+            }
+            if (entries.remove(eldest.key(), eldest.entry())) {
+                bytes -= eldest.entry().size;
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Vacía la caché.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return número de respuestas en caché
+     */
+    public int getEntries() {
+        return entries.size();
+    }
+
+    /**
+     * @return bytes ocupados por las entradas en caché
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Con {@code maxBytes} 0 nada es cacheable: quien consulta la caché
+     * puede saltarse la clave y la búsqueda, que solo sumarían fallos.
+     *
+     * @return false si la caché está desactivada
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+}
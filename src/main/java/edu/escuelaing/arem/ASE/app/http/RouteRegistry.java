@@ -0,0 +1,26 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+/**
+ * Tabla de rutas generada en tiempo de compilación.
+ *
+ * El procesador de anotaciones
+ * {@code edu.escuelaing.arem.ASE.app.annotation.processor.RouteProcessor}
+ * genera la clase {@link #GENERATED_CLASS}, que registra cada método
+ * {@code @GetMapping} de los {@code @RestController} con un adaptador que
+ * llama directamente al método. {@link HttpServer#loadComponents} la carga al
+ * arrancar y solo recurre al escaneo del classpath si no existe.
+ *
+ * @author jgamb
+ */
+public interface RouteRegistry {
+
+    /**
+     * Nombre de la clase generada por el procesador de anotaciones.
+     */
+    String GENERATED_CLASS = "edu.escuelaing.arem.ASE.app.http.GeneratedRouteRegistry";
+
+    /**
+     * Registra todas las rutas de los controladores en {@link HttpServer}.
+     */
+    void registerRoutes();
+}
@@ -0,0 +1,458 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Enrutador de árbol radix (trie comprimido) para una tabla de rutas de un
+ * método HTTP.
+ *
+ * Las plantillas admiten:
+ * <ul>
+ * <li>segmentos literales: {@code /users/list}</li>
+ * <li>parámetros de segmento completo: {@code /users/{id}}</li>
+ * <li>comodín final que captura el resto de la ruta, incluidas las barras:
+ * {@code /files/*} (parámetro {@code "*"}) o {@code /files/{path*}}</li>
+ * </ul>
+ * {@link #mount(String, Object)} registra un prefijo estático: el prefijo
+ * exacto y todo lo que cuelga de él.
+ *
+ * Las rutas totalmente literales se resuelven primero con un mapa exacto y
+ * devuelven un {@link Match} precalculado, sin asignar memoria. Solo las
+ * plantillas con parámetros o comodín viven en el árbol, cuya búsqueda recorre
+ * la ruta carácter a carácter con prioridad literal &gt; parámetro &gt;
+ * comodín y retroceso solo cuando una rama no llega a un handler. Un fallo se
+ * decide en O(longitud de la ruta).
+ *
+ * Las rutas se registran normalmente antes de arrancar el servidor; el
+ * registro no está sincronizado con las búsquedas concurrentes.
+ *
+ * @param <H> Tipo del handler asociado a cada ruta
+ * @author jgamb
+ */
+public final class Router<H> {
+
+    private final Map<String, H> routes = new LinkedHashMap<>();
+    private final Map<String, H> view = new MapView();
+    private final Map<String, Match<H>> literals = new HashMap<>();
+    private Node<H> root = new Node<>("");
+    private int templates;
+    private int maxParams;
+
+    /**
+     * Resultado de una búsqueda: handler, plantilla y parámetros capturados.
+     *
+     * @param <H> Tipo del handler
+     */
+    public static final class Match<H> {
+
+        private final H handler;
+        private final String template;
+        private final Map<String, String> params;
+
+        Match(H handler, String template, Map<String, String> params) {
+            this.handler = handler;
+            this.template = template;
+            this.params = params;
+        }
+
+        public H handler() {
+            return handler;
+        }
+
+        public String template() {
+            return template;
+        }
+
+        /**
+         * @return parámetros de ruta capturados (vacío si la plantilla no
+         * tiene)
+         */
+        public Map<String, String> params() {
+            return params;
+        }
+    }
+
+    /**
+     * Registra o reemplaza una ruta.
+     *
+     * @param template Plantilla de ruta, p. ej. {@code /users/{id}}
+     * @param handler Handler asociado
+     * @throws IllegalArgumentException Si la plantilla no es válida
+     */
+    public void add(String template, H handler) {
+        Route<H> route = parse(template, handler);
+        insert(route);
+        routes.put(template, handler);
+    }
+
+    /**
+     * Registra un prefijo estático: responde a {@code prefix} y a cualquier
+     * ruta bajo {@code prefix/}. El resto de la ruta queda en el parámetro
+     * {@code "*"}.
+     *
+     * @param prefix Prefijo, p. ej. {@code /assets}
+     * @param handler Handler asociado
+     */
+    public void mount(String prefix, H handler) {
+        String base = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        add(base.isEmpty() ? "/" : base, handler);
+        add(base + "/*", handler);
+    }
+
+    /**
+     * Elimina una ruta registrada con exactamente esta plantilla.
+     *
+     * @param template Plantilla de la ruta
+     * @return el handler eliminado o null
+     */
+    public H remove(String template) {
+        H removed = routes.remove(template);
+        if (removed != null) {
+            rebuild();
+        }
+        return removed;
+    }
+
+    /**
+     * Elimina todas las rutas.
+     */
+    public void clear() {
+        routes.clear();
+        rebuild();
+    }
+
+    /**
+     * @return número de rutas registradas
+     */
+    public int size() {
+        return routes.size();
+    }
+
+    /**
+     * Vista de la tabla como mapa plantilla -&gt; handler. {@code put},
+     * {@code remove} y {@code clear} modifican el enrutador.
+     *
+     * @return Mapa respaldado por el enrutador
+     */
+    public Map<String, H> asMap() {
+        return view;
+    }
+
+    /**
+     * Busca la ruta que corresponde a {@code path}.
+     *
+     * @param path Ruta decodificada de la petición (sin query)
+     * @return la coincidencia o null si ninguna ruta aplica
+     */
+    public Match<H> find(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        Match<H> literal = literals.get(path);
+        if (literal != null || templates == 0) {
+            return literal;
+        }
+        return match(root, path, 0, null, 0);
+    }
+
+    private Match<H> match(Node<H> node, String path, int i, String[] values, int captured) {
+        int length = path.length();
+        if (i == length && node.handler != null) {
+            return bind(node.handler, node.template, node.paramNames, values, captured);
+        }
+
+        // 1. Literal
+        if (i < length) {
+            Node<H> child = node.child(path.charAt(i));
+            if (child != null && path.startsWith(child.label, i)) {
+                Match<H> found = match(child, path, i + child.label.length(), values, captured);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+
+        // 2. Parámetro de segmento
+        if (node.param != null && i < length) {
+            int end = path.indexOf('/', i);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > i) {
+                values = values != null ? values : new String[maxParams];
+                values[captured] = path.substring(i, end);
+                Match<H> found = match(node.param, path, end, values, captured + 1);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+
+        // 3. Comodín con el resto de la ruta
+        if (node.wildcard != null) {
+            values = values != null ? values : new String[maxParams];
+            values[captured] = path.substring(i);
+            return bind(node.wildcard, node.wildcardTemplate, node.wildcardNames, values, captured + 1);
+        }
+        return null;
+    }
+
+    private static <H> Match<H> bind(H handler, String template, String[] names, String[] values, int count) {
+        Map<String, String> params = new HashMap<>(names.length * 2);
+        for (int k = 0; k < count && k < names.length; k++) {
+            params.put(names[k], values[k]);
+        }
+        return new Match<>(handler, template, Collections.unmodifiableMap(params));
+    }
+
+    private void insert(Route<H> route) {
+        if (route.paramNames.length == 0) {
+            literals.put(route.template, new Match<>(route.handler, route.template, Collections.emptyMap()));
+            return;
+        }
+        templates++;
+        Node<H> node = root;
+        List<Object> tokens = route.tokens;
+        for (int t = 0; t < tokens.size(); t++) {
+            Object token = tokens.get(t);
+            if (token == PARAM) {
+                if (node.param == null) {
+                    node.param = new Node<>("");
+                }
+                node = node.param;
+            } else if (token == WILDCARD) {
+                node.wildcard = route.handler;
+                node.wildcardTemplate = route.template;
+                node.wildcardNames = route.paramNames;
+                maxParams = Math.max(maxParams, route.paramNames.length);
+                return;
+            } else {
+                node = insertLiteral(node, (String) token);
+            }
+        }
+        node.handler = route.handler;
+        node.template = route.template;
+        node.paramNames = route.paramNames;
+        maxParams = Math.max(maxParams, route.paramNames.length);
+    }
+
+    /**
+     * Inserta un literal bajo {@code node}, dividiendo aristas cuando
+     * comparten solo un prefijo.
+     */
+    private static <H> Node<H> insertLiteral(Node<H> node, String text) {
+        int i = 0;
+        while (i < text.length()) {
+            Node<H> child = node.child(text.charAt(i));
+            if (child == null) {
+                Node<H> leaf = new Node<>(text.substring(i));
+                node.addChild(leaf);
+                return leaf;
+            }
+            int common = commonPrefix(child.label, text, i);
+            if (common < child.label.length()) {
+                // Dividir la arista: child.label = comun + resto
+                Node<H> split = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.addChild(child);
+                node.replaceChild(split);
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private static int commonPrefix(String label, String text, int offset) {
+        int max = Math.min(label.length(), text.length() - offset);
+        int k = 0;
+        while (k < max && label.charAt(k) == text.charAt(offset + k)) {
+            k++;
+        }
+        return k;
+    }
+
+    private void rebuild() {
+        root = new Node<>("");
+        literals.clear();
+        templates = 0;
+        maxParams = 0;
+        for (Map.Entry<String, H> entry : routes.entrySet()) {
+            insert(parse(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    // -------------------------
+    // Plantillas
+    // -------------------------
+    private static final Object PARAM = new Object();
+    private static final Object WILDCARD = new Object();
+
+    private static final class Route<H> {
+
+        final String template;
+        final H handler;
+        final List<Object> tokens;
+        final String[] paramNames;
+
+        Route(String template, H handler, List<Object> tokens, String[] paramNames) {
+            this.template = template;
+            this.handler = handler;
+            this.tokens = tokens;
+            this.paramNames = paramNames;
+        }
+    }
+
+    /**
+     * Convierte la plantilla en literales, parámetros y comodín.
+     */
+    private static <H> Route<H> parse(String template, H handler) {
+        if (template == null || !template.startsWith("/")) {
+            throw new IllegalArgumentException("La ruta debe empezar por '/': " + template);
+        }
+        List<Object> tokens = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            boolean segmentStart = i > 0 && template.charAt(i - 1) == '/';
+            if (segmentStart && (c == '{' || c == '*')) {
+                int end = template.indexOf('/', i);
+                end = end < 0 ? template.length() : end;
+                String segment = template.substring(i, end);
+
+                boolean wildcard = segment.equals("*") || (segment.startsWith("{") && segment.endsWith("*}"));
+                if (wildcard && end != template.length()) {
+                    throw new IllegalArgumentException("El comodín debe ser el último segmento: " + template);
+                }
+                if (!wildcard && !(segment.length() > 2 && segment.endsWith("}"))) {
+                    throw new IllegalArgumentException("Parámetro inválido '" + segment + "' en " + template);
+                }
+
+                if (literal.length() > 0) {
+                    tokens.add(literal.toString());
+                    literal.setLength(0);
+                }
+                if (wildcard) {
+                    names.add(segment.equals("*") ? "*" : segment.substring(1, segment.length() - 2));
+                    tokens.add(WILDCARD);
+                } else {
+                    names.add(segment.substring(1, segment.length() - 1));
+                    tokens.add(PARAM);
+                }
+                i = end;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        if (literal.length() > 0) {
+            tokens.add(literal.toString());
+        }
+        return new Route<>(template, handler, tokens, names.toArray(new String[0]));
+    }
+
+    // -------------------------
+    // Nodos
+    // -------------------------
+    private static final class Node<H> {
+
+        String label;
+        char[] indices = new char[0];
+        List<Node<H>> children = new ArrayList<>(0);
+        Node<H> param;
+
+        H handler;
+        String template;
+        String[] paramNames;
+
+        H wildcard;
+        String wildcardTemplate;
+        String[] wildcardNames;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node<H> child(char c) {
+            char[] idx = indices;
+            for (int k = 0; k < idx.length; k++) {
+                if (idx[k] == c) {
+                    return children.get(k);
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node<H> child) {
+            char[] grown = new char[indices.length + 1];
+            System.arraycopy(indices, 0, grown, 0, indices.length);
+            grown[indices.length] = child.label.charAt(0);
+            indices = grown;
+            children.add(child);
+        }
+
+        void replaceChild(Node<H> child) {
+            char first = child.label.charAt(0);
+            for (int k = 0; k < indices.length; k++) {
+                if (indices[k] == first) {
+                    children.set(k, child);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Vista {@link Map} de la tabla de rutas.
+     */
+    private final class MapView extends AbstractMap<String, H> {
+
+        @Override
+        public H put(String template, H handler) {
+            H previous = routes.get(template);
+            add(template, handler);
+            return previous;
+        }
+
+        @Override
+        public H get(Object key) {
+            return routes.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return routes.containsKey(key);
+        }
+
+        @Override
+        public H remove(Object key) {
+            return key instanceof String template ? Router.this.remove(template) : null;
+        }
+
+        @Override
+        public void clear() {
+            Router.this.clear();
+        }
+
+        @Override
+        public int size() {
+            return routes.size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, H>> entrySet() {
+            return Collections.unmodifiableMap(routes).entrySet();
+        }
+    }
+}
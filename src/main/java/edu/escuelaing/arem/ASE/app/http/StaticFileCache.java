@@ -0,0 +1,526 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Caché en memoria de archivos estáticos con respuestas pre-serializadas.
+ *
+ * Cada entrada guarda el tipo de contenido, la cabecera HTTP ya serializada
+ * (línea de estado, Content-Type y Content-Length) y el cuerpo, de modo que un
+ * acierto no consulta el disco ni vuelve a ejecutar
+ * {@code Files.probeContentType}. La caché está acotada por bytes totales con
+ * una política LRU aproximada: un acierto es una lectura de un
+ * {@link ConcurrentHashMap} sin bloqueo que solo anota el instante de uso, y
+ * el orden por antigüedad se calcula al expulsar, bajo el único lock de la
+ * caché que toman las inserciones e invalidaciones. De los archivos mayores
+ * que {@code maxEntryBytes} solo se guarda la cabecera; su cuerpo se envía
+ * desde el disco con {@code FileChannel.transferTo} y nunca entra al heap.
+ * Con {@code maxBytes} 0 no se guarda nada y cada petición lee el disco.
+ *
+ * Los archivos de texto (HTML, CSS, JS, JSON...) se comprimen con gzip una
+ * sola vez al cargarse y la variante comprimida se guarda junto al original.
+ *
+ * Cada entrada lleva un ETag fuerte (hash SHA-256 del contenido, calculado
+ * una vez al cargarla), {@code Last-Modified} y {@code Cache-Control}, y
+ * guarda también la cabecera 304 ya serializada: una revalidación con
+ * {@code If-None-Match} o {@code If-Modified-Since} se responde sin tocar el
+ * disco. Con la caché desactivada el hash obligaría a leer cada archivo dos
+ * veces por petición, así que se usa un ETag débil derivado del tamaño y la
+ * fecha de modificación; sirve para revalidar, pero no para If-Range.
+ *
+ * Un {@link WatchService} vigila los directorios de los archivos cacheados y
+ * descarta la entrada cuando el archivo se modifica o se borra. Los recursos
+ * dentro de un JAR no cambian y no se vigilan.
+ *
+ * @author jgamb
+ */
+public final class StaticFileCache {
+
+    /**
+     * Respuesta cacheada de un archivo.
+     */
+    static final class Entry {
+
+        final String contentType;
+        final byte[] head;
+        final byte[] body;
+        final long length;
+        final byte[] gzipHead;
+        final byte[] gzipBody;
+        final String etag;
+        final String gzipEtag;
+        /**
+         * Última modificación en segundos (la precisión de una fecha HTTP).
+         */
+        final long lastModified;
+        /**
+         * Headers ETag, Last-Modified, Cache-Control y Vary de la
+         * representación sin comprimir, ya serializados.
+         */
+        final String validators;
+        final byte[] notModifiedHead;
+        final byte[] gzipNotModifiedHead;
+        /**
+         * Último acierto ({@code System.nanoTime}), para elegir qué expulsar.
+         */
+        volatile long lastUsed = System.nanoTime();
+
+        Entry(String contentType, byte[] head, byte[] body, long length, byte[] gzipHead, byte[] gzipBody,
+                String etag, String gzipEtag, long lastModified, String validators,
+                byte[] notModifiedHead, byte[] gzipNotModifiedHead) {
+            this.contentType = contentType;
+            this.head = head;
+            this.body = body;
+            this.length = length;
+            this.gzipHead = gzipHead;
+            this.gzipBody = gzipBody;
+            this.etag = etag;
+            this.gzipEtag = gzipEtag;
+            this.lastModified = lastModified;
+            this.validators = validators;
+            this.notModifiedHead = notModifiedHead;
+            this.gzipNotModifiedHead = gzipNotModifiedHead;
+        }
+
+        /**
+         * Evalúa una petición condicional. If-None-Match tiene prioridad y,
+         * si está presente, If-Modified-Since se ignora.
+         *
+         * @param ifNoneMatch valor de If-None-Match o null
+         * @param ifModifiedSince valor de If-Modified-Since o null
+         * @return true si el cliente ya tiene la versión actual (304)
+         */
+        boolean notModified(String ifNoneMatch, String ifModifiedSince) {
+            if (ifNoneMatch != null) {
+                for (String tag : ifNoneMatch.split(",")) {
+                    tag = tag.trim();
+                    // If-None-Match usa comparación débil
+                    tag = opaque(tag);
+                    if (tag.equals("*") || tag.equals(opaque(etag)) || tag.equals(gzipEtag)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (ifModifiedSince != null) {
+                // Una fecha inválida (-1) no cumple la condición
+                long since = HttpDate.parse(ifModifiedSince);
+                return since >= 0 && lastModified <= since;
+            }
+            return false;
+        }
+
+        /**
+         * Evalúa If-Range: un ETag se compara en modo fuerte con el de la
+         * representación sin comprimir (un ETag débil nunca coincide) y una
+         * fecha debe coincidir exactamente con Last-Modified.
+         *
+         * @param ifRange valor de If-Range o null
+         * @return true si se puede responder con los rangos pedidos
+         */
+        boolean rangeApplies(String ifRange) {
+            if (ifRange == null) {
+                return true;
+            }
+            ifRange = ifRange.trim();
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                return !etag.startsWith("W/") && ifRange.equals(etag);
+            }
+            return HttpDate.parse(ifRange) == lastModified;
+        }
+
+        /**
+         * @return true si existe variante gzip
+         */
+        boolean hasGzip() {
+            return gzipBody != null;
+        }
+
+        /**
+         * @return true si el cuerpo está en memoria; si no, se envía desde el
+         * archivo
+         */
+        boolean inMemory() {
+            return body != null;
+        }
+
+        long size() {
+            long size = head.length + validators.length() + notModifiedHead.length + (body != null ? body.length : 0);
+            return gzipBody != null
+                    ? size + gzipHead.length + gzipNotModifiedHead.length + gzipBody.length
+                    : size;
+        }
+    }
+
+    /**
+     * Cache-Control por defecto: el navegador guarda la copia pero la
+     * revalida en cada uso, lo que con ETag cuesta un 304 sin cuerpo.
+     */
+    public static final String DEFAULT_CACHE_CONTROL = "no-cache";
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final String cacheControl;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>(64);
+    /**
+     * Protegidos por el lock de la caché.
+     */
+    private final Map<Path, WatchKey> watchedDirs = new HashMap<>();
+    private long bytes;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private WatchService watcher;
+
+    /**
+     * @param maxBytes bytes totales que puede ocupar la caché (0 la
+     * desactiva)
+     * @param maxEntryBytes tamaño máximo de un archivo cacheable
+     */
+    public StaticFileCache(long maxBytes, long maxEntryBytes) {
+        this(maxBytes, maxEntryBytes, DEFAULT_CACHE_CONTROL);
+    }
+
+    /**
+     * @param maxBytes bytes totales que puede ocupar la caché (0 la
+     * desactiva)
+     * @param maxEntryBytes tamaño máximo de un archivo cacheable
+     * @param cacheControl valor de Cache-Control de las respuestas, o null
+     * para omitirlo
+     */
+    public StaticFileCache(long maxBytes, long maxEntryBytes, String cacheControl) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = Math.min(Math.max(0, maxEntryBytes), this.maxBytes);
+        this.cacheControl = cacheControl;
+        if (this.maxBytes == 0) {
+            // Sin entradas no hay nada que invalidar
+            return;
+        }
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            Thread.ofPlatform().name("static-cache-watcher").daemon().start(this::watch);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Caché estática sin invalidación automática: " + e.getMessage());
+            watcher = null;
+        }
+    }
+
+    /**
+     * Obtiene la respuesta de un archivo, de la caché o leyéndolo del disco.
+     *
+     * @param file Archivo a servir
+     * @return la entrada con cabecera serializada y, si cabe, el cuerpo
+     * @throws IOException Si el archivo no se puede leer
+     */
+    Entry get(Path file) throws IOException {
+        if (maxBytes == 0) {
+            return load(file);
+        }
+        Path key = file.toAbsolutePath();
+        Entry cached = entries.get(key);
+        if (cached != null) {
+            cached.lastUsed = System.nanoTime();
+            hits.increment();
+            return cached;
+        }
+        long readGeneration;
+        synchronized (this) {
+            // Vigilar antes de leer para no perder cambios durante la lectura
+            register(key.getParent());
+            readGeneration = generation;
+        }
+        misses.increment();
+
+        Entry entry = load(file);
+        put(key, entry, readGeneration);
+        return entry;
+    }
+
+    /**
+     * Lee un archivo del disco y serializa su respuesta.
+     */
+    private Entry load(Path file) throws IOException {
+        String contentType = Files.probeContentType(file);
+        contentType = contentType != null ? contentType : "application/octet-stream";
+        long modifiedMillis = Files.getLastModifiedTime(file).toMillis();
+        long length = Files.size(file);
+        byte[] body = length <= maxEntryBytes ? Files.readAllBytes(file) : null;
+        String etag;
+        if (body != null) {
+            etag = etag(body);
+        } else if (maxBytes == 0) {
+            // Sin caché el hash no se reutiliza: evitar leer el archivo dos veces
+            etag = "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(modifiedMillis) + "\"";
+        } else {
+            etag = etag(file);
+        }
+        return serialize(contentType, body, body != null ? body.length : length, etag, modifiedMillis / 1000);
+    }
+
+    /**
+     * Descarta la entrada de un archivo.
+     *
+     * @param file Archivo modificado o borrado
+     */
+    public synchronized void invalidate(Path file) {
+        generation++;
+        Entry removed = entries.remove(file.toAbsolutePath());
+        if (removed != null) {
+            bytes -= removed.size();
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Vacía la caché.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    private synchronized void put(Path file, Entry entry, long readGeneration) {
+        if (generation != readGeneration || entry.size() > maxBytes) {
+            // Hubo cambios mientras se leía (copia posiblemente vieja) o no cabe
+            return;
+        }
+        Entry previous = entries.put(file, entry);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += entry.size();
+        if (bytes > maxBytes) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Expulsa las entradas menos usadas hasta volver al límite. El instante
+     * de uso se copia antes de ordenar porque los aciertos lo siguen
+     * actualizando.
+     */
+    private void evict(Entry keep) {
+        record Candidate(Path file, Entry entry, long lastUsed) {
+        }
+        List<Candidate> byAge = new ArrayList<>(entries.size());
+        for (Map.Entry<Path, Entry> e : entries.entrySet()) {
+            byAge.add(new Candidate(e.getKey(), e.getValue(), e.getValue().lastUsed));
+        }
+        byAge.sort(Comparator.comparingLong(Candidate::lastUsed));
+        for (Candidate eldest : byAge) {
+            if (bytes <= maxBytes) {
+                break;
+            }
+            if (eldest.entry() != keep && entries.remove(eldest.file(), eldest.entry())) {
+                bytes -= eldest.entry().size();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Detiene el hilo vigilante y vacía la caché.
+     */
+    public void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // Ignora errores al cerrar
+            }
+        }
+        clear();
+    }
+
+    private Entry serialize(String contentType, byte[] body, long length, String etag, long lastModified) {
+        boolean compressible = body != null && Compression.isCompressible(contentType);
+        String vary = compressible ? "Vary: Accept-Encoding\r\n" : "";
+        String validators = "Last-Modified: " + HttpDate.format(lastModified) + "\r\n"
+                + (cacheControl != null ? "Cache-Control: " + cacheControl + "\r\n" : "")
+                + vary;
+
+        byte[] gzipBody = null;
+        byte[] gzipHead = null;
+        byte[] gzipNotModifiedHead = null;
+        String gzipEtag = null;
+        if (compressible) {
+            byte[] compressed = Compression.gzip(body, Deflater.BEST_COMPRESSION);
+            if (compressed.length < body.length) {
+                // Cada representación tiene su propio ETag fuerte
+                gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+                gzipBody = compressed;
+                gzipHead = head("200 OK", contentType, compressed.length,
+                        "ETag: " + gzipEtag + "\r\n" + validators + "Content-Encoding: gzip\r\n");
+                gzipNotModifiedHead = head("304 Not Modified", null, 0, "ETag: " + gzipEtag + "\r\n" + validators);
+            }
+        }
+        String identity = "ETag: " + etag + "\r\n" + validators;
+        byte[] head = head("200 OK", contentType, length, "Accept-Ranges: bytes\r\n" + identity);
+        byte[] notModifiedHead = head("304 Not Modified", null, 0, identity);
+        return new Entry(contentType, head, body, length, gzipHead, gzipBody,
+                etag, gzipEtag, lastModified, identity, notModifiedHead, gzipNotModifiedHead);
+    }
+
+    /**
+     * Serializa una cabecera. Un 304 no lleva Content-Type ni Content-Length.
+     */
+    private static byte[] head(String status, String contentType, long length, String extra) {
+        String head = "HTTP/1.1 " + status + "\r\n"
+                + (contentType != null
+                        ? "Content-Type: " + contentType + "\r\n" + "Content-Length: " + length + "\r\n"
+                        : "")
+                + extra;
+        return head.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String etag(byte[] body) {
+        MessageDigest digest = sha256();
+        digest.update(body);
+        return etag(digest);
+    }
+
+    /**
+     * ETag de un archivo que no cabe en la caché, leído por bloques.
+     */
+    private static String etag(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return etag(digest);
+    }
+
+    private static String etag(MessageDigest digest) {
+        // 128 bits del hash bastan para distinguir versiones
+        byte[] hash = digest.digest();
+        return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+    }
+
+    /**
+     * @return la etiqueta sin el prefijo {@code W/} de los ETag débiles
+     */
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private void register(Path dir) {
+        if (watcher == null || dir == null || dir.getFileSystem() != FileSystems.getDefault()
+                || watchedDirs.containsKey(dir)) {
+            return;
+        }
+        try {
+            watchedDirs.put(dir, dir.register(watcher,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_CREATE));
+        } catch (IOException e) {
+            System.err.println("No se pudo vigilar " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        clear();
+                    } else {
+                        invalidate(dir.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    synchronized (this) {
+                        watchedDirs.remove(dir);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Fin del hilo vigilante
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return número de archivos en caché
+     */
+    public int getEntries() {
+        return entries.size();
+    }
+
+    /**
+     * @return bytes ocupados por las entradas en caché
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * @return valor de Cache-Control de las respuestas, o null si se omite
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+}
@@ -0,0 +1,161 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de los archivos estáticos servibles.
+ *
+ * Se construye una vez en {@link HttpServer#staticfiles(String)} recorriendo
+ * el directorio en el classpath (carpeta o JAR). Una petición se resuelve con
+ * una búsqueda en el mapa ruta -&gt; archivo, así que una ruta inexistente se
+ * descarta sin tocar el disco. Solo se indexan archivos regulares bajo el
+ * directorio configurado, lo que descarta de paso directorios y path
+ * traversal; los {@code .class} y {@code META-INF} nunca se sirven.
+ *
+ * Los recursos dentro de un JAR se extraen al indexar a un directorio
+ * temporal (borrado al salir), de modo que todos los archivos del índice
+ * están en el sistema de archivos por defecto y se pueden enviar con
+ * {@code FileChannel.transferTo}.
+ *
+ * @author jgamb
+ */
+final class StaticFiles {
+
+    private final String directory;
+    private final Map<String, Path> files;
+
+    private StaticFiles(String directory, Map<String, Path> files) {
+        this.directory = directory;
+        this.files = files;
+    }
+
+    /**
+     * Indexa los archivos de {@code directory} en todas las raíces del
+     * classpath que lo contengan. Si dos raíces tienen el mismo archivo gana
+     * la primera, igual que {@link ClassLoader#getResource}.
+     *
+     * @param directory Directorio normalizado ("" o "/webroot")
+     * @return el índice
+     */
+    static StaticFiles index(String directory) {
+        Map<String, Path> files = new HashMap<>();
+        String resourceDir = directory.replaceFirst("^/", "");
+        try {
+            Enumeration<URL> roots = HttpServer.class.getClassLoader().getResources(resourceDir);
+            while (roots.hasMoreElements()) {
+                indexRoot(toPath(roots.nextElement().toURI()), files);
+            }
+            if (resourceDir.isEmpty()) {
+                // getResources("") no devuelve la raíz de un JAR
+                CodeSource source = HttpServer.class.getProtectionDomain().getCodeSource();
+                if (source != null && source.getLocation().getPath().endsWith(".jar")) {
+                    indexRoot(toPath(URI.create("jar:" + source.getLocation().toURI() + "!/")), files);
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("Error indexando archivos estáticos: " + e.getMessage());
+        }
+        System.out.println("Archivos estáticos indexados: " + files.size());
+        return new StaticFiles(directory, Collections.unmodifiableMap(files));
+    }
+
+    /**
+     * Resuelve una ruta de petición. La raíz sirve {@code index.html}.
+     *
+     * @param requestPath Ruta decodificada de la petición
+     * @return el archivo o null si no está en el índice
+     */
+    Path find(String requestPath) {
+        if (requestPath == null || requestPath.isEmpty() || requestPath.equals("/")) {
+            requestPath = "/index.html";
+        }
+        return files.get(requestPath);
+    }
+
+    String directory() {
+        return directory;
+    }
+
+    int size() {
+        return files.size();
+    }
+
+    private static void indexRoot(Path root, Map<String, Path> files) throws IOException {
+        if (root == null || !Files.isDirectory(root)) {
+            return;
+        }
+        boolean inJar = root.getFileSystem() != FileSystems.getDefault();
+        Path extractDir = inJar ? createExtractDir() : null;
+        String separator = root.getFileSystem().getSeparator();
+
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) walk::iterator) {
+                if (!Files.isRegularFile(p) || p.getFileName().toString().endsWith(".class")) {
+                    continue;
+                }
+                String relative = root.relativize(p).toString().replace(separator, "/");
+                String requestPath = "/" + relative;
+                if (relative.startsWith("META-INF/") || files.containsKey(requestPath)) {
+                    continue;
+                }
+                files.put(requestPath, inJar ? extract(p, extractDir, relative) : p);
+            }
+        }
+    }
+
+    private static Path createExtractDir() throws IOException {
+        Path dir = Files.createTempDirectory("static-");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Copia un recurso del JAR al directorio temporal. Los directorios se
+     * registran para borrarse antes que sus archivos (deleteOnExit borra en
+     * orden inverso).
+     */
+    private static Path extract(Path entry, Path extractDir, String relative) throws IOException {
+        Path target = extractDir.resolve(relative);
+        Path dir = extractDir;
+        for (Path name : extractDir.relativize(target.getParent())) {
+            dir = dir.resolve(name);
+            if (!Files.isDirectory(dir)) {
+                Files.createDirectory(dir);
+                dir.toFile().deleteOnExit();
+            }
+        }
+        Files.copy(entry, target, StandardCopyOption.REPLACE_EXISTING);
+        target.toFile().deleteOnExit();
+        return target;
+    }
+
+    private static Path toPath(URI uri) throws IOException {
+        switch (uri.getScheme()) {
+            case "file":
+                return Path.of(uri);
+            case "jar":
+                try {
+                    FileSystems.newFileSystem(uri, Map.of());
+                } catch (FileSystemAlreadyExistsException e) {
+                    // Ya abierto por una indexación anterior
+                }
+                return Path.of(uri);
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de usuarios seguro para concurrencia.
+ *
+ * Los IDs se asignan con un contador atómico y los usuarios se guardan en un
+ * {@link ConcurrentHashMap} (ID -> nombre). Un índice secundario cuenta
+ * cuántos usuarios tienen cada nombre, así que saber si un nombre está
+ * registrado es O(1) en lugar de recorrer todos los valores. Las lecturas
+ * ({@link #get}, {@link #containsName}, {@link #size}) no toman cerrojos;
+ * cada escritura actualiza el mapa principal y el índice dentro de un
+ * {@code compute} sobre el ID, de modo que dos escrituras sobre el mismo ID
+ * no desincronizan el índice.
+ *
+ * Con un {@link UserStore} conectado ({@link #attach}) cada escritura se
+ * encola en su log dentro del mismo {@code compute}, así que el orden del log
+ * coincide con el de las escrituras sobre cada ID. Según la política de
+ * fsync la escritura espera, fuera del {@code compute}, a que el registro
+ * sea durable. Si esa espera falla la escritura se deshace en memoria: el ID
+ * vuelve a su valor anterior, salvo que otra escritura ya lo haya cambiado,
+ * y el almacén, fallido o cerrado, rechaza las escrituras siguientes.
+ *
+ * @author jgamb
+ */
+public final class UserRegistry {
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ConcurrentHashMap<String, String> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> names = new ConcurrentHashMap<>();
+    private final Map<String, String> view = new MapView();
+    private volatile UserStore store;
+
+    /**
+     * Carga los usuarios recuperados por el almacén, reemplazando los
+     * actuales, y persiste en él las escrituras siguientes. Debe llamarse al
+     * arrancar, antes de atender peticiones.
+     *
+     * @param store almacén abierto, o null para volver a solo memoria
+     */
+    public synchronized void attach(UserStore store) {
+        this.store = null;
+        if (store == null) {
+            return;
+        }
+        users.clear();
+        names.clear();
+        for (Map.Entry<String, String> user : store.getRecovered().entrySet()) {
+            put(user.getKey(), user.getValue());
+        }
+        nextId.accumulateAndGet(store.getNextId(), Math::max);
+        this.store = store;
+    }
+
+    /**
+     * @return el almacén conectado, o null
+     */
+    public UserStore getStore() {
+        return store;
+    }
+
+    /**
+     * Registra un usuario con un ID nuevo.
+     *
+     * @param name nombre del usuario
+     * @return el ID asignado
+     */
+    public String add(String name) {
+        String id = String.valueOf(nextId.getAndIncrement());
+        put(id, name);
+        return id;
+    }
+
+    /**
+     * Registra o reemplaza el usuario de un ID concreto. Los IDs asignados
+     * después por {@link #add} no lo repiten si es numérico.
+     *
+     * @param id ID del usuario
+     * @param name nombre del usuario
+     * @return el nombre anterior o null
+     * @throws UncheckedIOException Si el almacén conectado no pudo
+     * persistir la escritura; el registro conserva el nombre anterior
+     */
+    public String put(String id, String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("El nombre del usuario es obligatorio");
+        }
+        UserStore durable = store;
+        Write write = new Write();
+        users.compute(id, (key, old) -> {
+            // Si el log rechaza la escritura el mapa no cambia
+            write.logged = durable != null ? durable.appendPut(id, name) : null;
+            write.previous = old;
+            if (old != null) {
+                unindex(old);
+            }
+            names.merge(name, 1, Integer::sum);
+            return name;
+        });
+        reserve(id);
+        if (write.logged != null) {
+            try {
+                durable.await(write.logged);
+            } catch (UncheckedIOException e) {
+                restore(id, name, write.previous);
+                throw e;
+            }
+        }
+        return write.previous;
+    }
+
+    /**
+     * @param id ID del usuario
+     * @return el nombre, o null si no existe
+     */
+    public String get(String id) {
+        return users.get(id);
+    }
+
+    /**
+     * @param name nombre a buscar
+     * @return true si algún usuario tiene ese nombre
+     */
+    public boolean containsName(String name) {
+        return name != null && names.containsKey(name);
+    }
+
+    /**
+     * Elimina un usuario.
+     *
+     * @param id ID del usuario
+     * @return el nombre eliminado o null si no existía
+     * @throws UncheckedIOException Si el almacén conectado no pudo
+     * persistir la baja; el usuario sigue registrado
+     */
+    public String remove(String id) {
+        UserStore durable = store;
+        Write write = new Write();
+        users.computeIfPresent(id, (key, old) -> {
+            write.logged = durable != null ? durable.appendRemove(id) : null;
+            write.previous = old;
+            unindex(old);
+            return null;
+        });
+        if (write.logged != null) {
+            try {
+                durable.await(write.logged);
+            } catch (UncheckedIOException e) {
+                restore(id, null, write.previous);
+                throw e;
+            }
+        }
+        return write.previous;
+    }
+
+    /**
+     * Elimina todos los usuarios. Los IDs no se reinician.
+     */
+    public void clear() {
+        for (String id : users.keySet()) {
+            remove(id);
+        }
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * @return vista {@link Map} (ID -> nombre) respaldada por el registro;
+     * {@code containsValue} usa el índice por nombre
+     */
+    public Map<String, String> asMap() {
+        return view;
+    }
+
+    /**
+     * Deshace en memoria una escritura que no llegó al log. Solo actúa si el
+     * ID conserva el valor escrito; el almacén ya no acepta escrituras, así
+     * que no se registra nada.
+     *
+     * @param written nombre escrito, o null si fue una baja
+     * @param previous valor anterior a la escritura
+     */
+    private void restore(String id, String written, String previous) {
+        users.compute(id, (key, current) -> {
+            // Por identidad: otra escritura con el mismo nombre no se deshace
+            if (current != written) {
+                return current;
+            }
+            if (written != null) {
+                unindex(written);
+            }
+            if (previous != null) {
+                names.merge(previous, 1, Integer::sum);
+            }
+            return previous;
+        });
+    }
+
+    private void unindex(String name) {
+        names.computeIfPresent(name, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Evita que {@link #add} reutilice un ID numérico insertado con
+     * {@link #put}.
+     */
+    private void reserve(String id) {
+        long value;
+        try {
+            value = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        nextId.accumulateAndGet(value + 1, Math::max);
+    }
+
+    /**
+     * Resultado de una escritura dentro de {@code compute}.
+     */
+    private static final class Write {
+
+        String previous;
+        CompletableFuture<Void> logged;
+    }
+
+    /**
+     * Vista {@link Map} del registro.
+     */
+    private final class MapView extends AbstractMap<String, String> {
+
+        @Override
+        public String put(String id, String name) {
+            return UserRegistry.this.put(id, name);
+        }
+
+        @Override
+        public String get(Object key) {
+            return users.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return users.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return value instanceof String name && containsName(name);
+        }
+
+        @Override
+        public String remove(Object key) {
+            return key instanceof String id ? UserRegistry.this.remove(id) : null;
+        }
+
+        @Override
+        public void clear() {
+            UserRegistry.this.clear();
+        }
+
+        @Override
+        public int size() {
+            return users.size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return Collections.unmodifiableMap(users).entrySet();
+        }
+    }
+}
@@ -0,0 +1,674 @@
+package edu.escuelaing.arem.ASE.app.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Almacenamiento durable del {@link UserRegistry}.
+ *
+ * Cada alta o baja se agrega a un log ({@code users.log}) como un registro
+ * con longitud y CRC32. Un único hilo escribe el log: toma todos los
+ * registros encolados, los escribe de una vez y, según la
+ * {@link FsyncPolicy}, hace un solo fsync para todo el lote (group commit).
+ * Cuando el log supera un tamaño se compacta: el estado completo se escribe
+ * en {@code users.snapshot} (archivo temporal, fsync y renombrado atómico) y
+ * el log se vacía. Al arrancar el snapshot se lee mapeado en memoria y solo
+ * se reproduce el log posterior.
+ *
+ * El hilo escritor mantiene su propia copia del estado, actualizada en el
+ * orden del log, y es la que se vuelca al snapshot; así el snapshot contiene
+ * exactamente lo escrito en el log que reemplaza. Si la máquina cae entre el
+ * renombrado del snapshot y el vaciado del log, el log se reproduce sobre el
+ * snapshot nuevo: altas y bajas por ID son idempotentes.
+ *
+ * Un registro incompleto o con CRC inválido al final del log (escritura
+ * interrumpida) se descarta al recuperar y el log se trunca en el último
+ * registro válido. Un error de escritura o fsync deja el almacén fallido:
+ * las escrituras siguientes se rechazan en lugar de confirmar datos que
+ * quizá no llegaron al disco.
+ *
+ * @author jgamb
+ */
+public final class UserStore implements AutoCloseable {
+
+    /**
+     * Cuándo se fuerza el log al disco.
+     */
+    public enum FsyncPolicy {
+        /**
+         * fsync antes de confirmar cada escritura; las escrituras
+         * concurrentes comparten el fsync de su lote. No se pierde nada
+         * confirmado.
+         */
+        PER_WRITE,
+        /**
+         * fsync periódico cada {@code syncInterval}; una caída puede perder
+         * las escrituras de la última ventana.
+         */
+        BATCHED,
+        /**
+         * Sin fsync: el sistema operativo decide cuándo escribe. Sobrevive a
+         * la caída del proceso, no a la de la máquina.
+         */
+        OS
+    }
+
+    static final String LOG_FILE = "users.log";
+    static final String SNAPSHOT_FILE = "users.snapshot";
+    private static final String SNAPSHOT_TMP = "users.snapshot.tmp";
+    private static final int SNAPSHOT_MAGIC = 0x55535253; // "USRS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = 1024 * 1024;
+    private static final int MAX_BATCH = 4096;
+
+    /**
+     * Escritura encolada; {@code id == null} marca una compactación pedida
+     * con {@link #compact()}.
+     */
+    private record Pending(byte type, String id, String name, CompletableFuture<Void> done) {
+    }
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long syncIntervalNanos;
+    private final long compactionBytes;
+    private final FileChannel log;
+    private final LinkedBlockingQueue<Pending> queue;
+    private final Object lock = new Object();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+
+    // Estado del hilo escritor
+    private final Map<String, String> image;
+    private long maxId;
+    private long logBytes;
+    private long unsynced;
+    private long lastSync = System.nanoTime();
+    private final List<Pending> batch = new ArrayList<>();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+
+    // Resultado de la recuperación
+    private final Map<String, String> recovered;
+    private final long recoveredNextId;
+    private final long recoveredRecords;
+    private final long truncatedBytes;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    private UserStore(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.policy = builder.policy;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.syncIntervalMillis);
+        this.compactionBytes = builder.compactionBytes;
+        this.queue = new LinkedBlockingQueue<>(builder.queueCapacity);
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_TMP));
+
+        this.image = new HashMap<>();
+        readSnapshot();
+        this.log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long[] replay = replayLog();
+        this.recoveredRecords = replay[0];
+        this.truncatedBytes = replay[1];
+        this.logBytes = log.size();
+        log.position(logBytes);
+
+        this.recovered = Collections.unmodifiableMap(new LinkedHashMap<>(image));
+        this.recoveredNextId = maxId + 1;
+        this.writer = Thread.ofPlatform().name("user-store-writer").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * @return usuarios recuperados al abrir el almacén (ID -> nombre)
+     */
+    public Map<String, String> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return siguiente ID que no repite ninguno usado antes de cerrar,
+     * aunque su usuario se haya eliminado
+     */
+    public long getNextId() {
+        return recoveredNextId;
+    }
+
+    /**
+     * Encola el alta o reemplazo de un usuario.
+     *
+     * @return se completa cuando el registro está escrito (y forzado al
+     * disco si la política es {@link FsyncPolicy#PER_WRITE})
+     * @throws UncheckedIOException Si el almacén está cerrado o fallido, o
+     * su cola de escritura está llena
+     */
+    CompletableFuture<Void> appendPut(String id, String name) {
+        return enqueue(new Pending(PUT, id, name, new CompletableFuture<>()));
+    }
+
+    /**
+     * Encola la baja de un usuario.
+     *
+     * @see #appendPut(String, String)
+     */
+    CompletableFuture<Void> appendRemove(String id) {
+        return enqueue(new Pending(REMOVE, id, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Espera la confirmación de una escritura si la política lo exige.
+     *
+     * @throws UncheckedIOException Si la escritura o el fsync fallaron
+     */
+    void await(CompletableFuture<Void> done) {
+        if (policy != FsyncPolicy.PER_WRITE) {
+            return;
+        }
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException io ? io : new UncheckedIOException(
+                    new IOException("No se pudo persistir el usuario", e.getCause()));
+        }
+    }
+
+    /**
+     * Compacta el log en un snapshot ahora, tras escribir lo encolado antes.
+     *
+     * @throws IOException Si no se puede escribir el snapshot
+     */
+    public void compact() throws IOException {
+        try {
+            enqueue(new Pending((byte) 0, null, null, new CompletableFuture<>())).join();
+        } catch (CompletionException | UncheckedIOException e) {
+            Throwable cause = e instanceof UncheckedIOException ? e.getCause() : e.getCause().getCause();
+            throw cause instanceof IOException io ? io : new IOException(e);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        if (pending.name() != null) {
+            int size = RECORD_HEADER + 9 + utf8Length(pending.id()) + utf8Length(pending.name());
+            if (size > MAX_RECORD) {
+                throw new IllegalArgumentException("Usuario demasiado grande para el log: " + size + " bytes");
+            }
+        }
+        synchronized (lock) {
+            IOException failed = failure;
+            if (failed != null || !running) {
+                throw new UncheckedIOException(failed != null ? failed : new IOException("El almacén de usuarios está cerrado"));
+            }
+            // Sin esperar: quien encola puede estar dentro de un compute del
+            // registro y retener este lock
+            if (!queue.offer(pending)) {
+                throw new UncheckedIOException(new IOException("Cola de escritura de usuarios llena"));
+            }
+        }
+        return pending.done();
+    }
+
+    /**
+     * Escribe lo pendiente, hace fsync (con cualquier política) y cierra el
+     * log. Las escrituras posteriores se rechazan.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(pollNanos(), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    commit();
+                } else if (policy == FsyncPolicy.BATCHED && unsynced > 0) {
+                    sync();
+                }
+            }
+            if (failure == null) {
+                sync();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            try {
+                log.close();
+            } catch (IOException e) {
+                // Ignora errores al cerrar
+            }
+            // Lo encolado mientras se cerraba se rechaza
+            synchronized (lock) {
+                running = false;
+                Pending late;
+                while ((late = queue.poll()) != null) {
+                    late.done().completeExceptionally(new UncheckedIOException(new IOException("El almacén de usuarios está cerrado")));
+                }
+            }
+        }
+    }
+
+    private long pollNanos() {
+        if (policy != FsyncPolicy.BATCHED || unsynced == 0) {
+            return TimeUnit.MILLISECONDS.toNanos(100);
+        }
+        return Math.max(0, lastSync + syncIntervalNanos - System.nanoTime());
+    }
+
+    /**
+     * Escribe el lote con una sola llamada, aplica la política de fsync y
+     * confirma a los que esperan. Una compactación en medio del lote se
+     * ejecuta tras escribir lo anterior.
+     */
+    private void commit() throws IOException {
+        try {
+            int written = 0;
+            int start = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                if (pending.id() == null) {
+                    flush(start, i);
+                    compactNow();
+                    pending.done().complete(null);
+                    start = i + 1;
+                    continue;
+                }
+                encode(pending);
+                apply(pending);
+                written++;
+            }
+            flush(start, batch.size());
+            records.add(written);
+            commits.increment();
+            if (logBytes >= compactionBytes) {
+                compactNow();
+            }
+        } catch (IOException e) {
+            fail(e);
+            for (Pending pending : batch) {
+                pending.done().completeExceptionally(new UncheckedIOException(e));
+            }
+            throw e;
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Escribe los registros codificados y confirma las escrituras
+     * {@code [from, to)} del lote.
+     */
+    private void flush(int from, int to) throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            logBytes += log.write(writeBuffer);
+        }
+        unsynced += writeBuffer.limit();
+        writeBuffer.clear();
+        if (policy == FsyncPolicy.PER_WRITE
+                || (policy == FsyncPolicy.BATCHED && System.nanoTime() - lastSync >= syncIntervalNanos)) {
+            sync();
+        }
+        for (int i = from; i < to; i++) {
+            batch.get(i).done().complete(null);
+        }
+    }
+
+    private void sync() throws IOException {
+        if (unsynced > 0) {
+            log.force(false);
+            syncs.increment();
+        }
+        unsynced = 0;
+        lastSync = System.nanoTime();
+    }
+
+    private void encode(Pending pending) {
+        byte[] id = pending.id().getBytes(StandardCharsets.UTF_8);
+        byte[] name = pending.name() != null ? pending.name().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = 1 + 4 + id.length + 4 + name.length;
+        if (writeBuffer.remaining() < RECORD_HEADER + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + RECORD_HEADER + length));
+            writeBuffer.flip();
+            grown.put(writeBuffer);
+            writeBuffer = grown;
+        }
+        int start = writeBuffer.position();
+        writeBuffer.putInt(length).putInt(0)
+                .put(pending.type())
+                .putInt(id.length).put(id)
+                .putInt(name.length).put(name);
+        CRC32 crc = new CRC32();
+        crc.update(writeBuffer.array(), start + RECORD_HEADER, length);
+        writeBuffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void apply(Pending pending) {
+        apply(pending.type(), pending.id(), pending.name());
+    }
+
+    private void apply(byte type, String id, String name) {
+        if (type == PUT) {
+            image.put(id, name);
+            try {
+                maxId = Math.max(maxId, Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                // ID no numérico: no afecta la asignación
+            }
+        } else {
+            image.remove(id);
+        }
+    }
+
+    /**
+     * Vuelca el estado al snapshot y vacía el log.
+     */
+    private void compactNow() throws IOException {
+        sync();
+        Path tmp = directory.resolve(SNAPSHOT_TMP);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = encodeSnapshot();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        logBytes = 0;
+        compactions.increment();
+    }
+
+    /**
+     * Formato: magic, versión, siguiente ID, cantidad, entradas (longitud y
+     * bytes UTF-8 del ID y del nombre) y CRC32 de todo lo anterior.
+     */
+    private ByteBuffer encodeSnapshot() {
+        List<byte[]> fields = new ArrayList<>(image.size() * 2);
+        int size = 4 + 4 + 8 + 4 + 4;
+        for (Map.Entry<String, String> entry : image.entrySet()) {
+            byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] name = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            fields.add(id);
+            fields.add(name);
+            size += 8 + id.length + name.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(maxId + 1).putInt(image.size());
+        for (byte[] field : fields) {
+            buffer.putInt(field.length).put(field);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Carga el snapshot mapeándolo en memoria. Un snapshot existente pero
+     * inválido es un error: se reemplaza solo por renombrado atómico, así
+     * que no puede quedar a medio escribir.
+     */
+    private void readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 28 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot de usuarios inválido: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(mapped.slice(0, (int) size - 4));
+            if ((int) crc.getValue() != mapped.getInt((int) size - 4)
+                    || mapped.getInt() != SNAPSHOT_MAGIC || mapped.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Snapshot de usuarios corrupto: " + file);
+            }
+            maxId = mapped.getLong() - 1;
+            int count = mapped.getInt();
+            for (int i = 0; i < count; i++) {
+                image.put(readString(mapped), readString(mapped));
+            }
+        }
+    }
+
+    /**
+     * Reproduce el log sobre el snapshot y lo trunca tras el último registro
+     * válido.
+     *
+     * @return registros reproducidos y bytes descartados
+     */
+    private long[] replayLog() throws IOException {
+        long size = log.size();
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (data.hasRemaining() && log.read(data, data.position()) > 0) {
+            // Lee el log completo; su tamaño está acotado por la compactación
+        }
+        data.flip();
+        long count = 0;
+        int valid = 0;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= RECORD_HEADER) {
+            int length = data.getInt(valid);
+            if (length < 9 || length > MAX_RECORD || valid + RECORD_HEADER + length > data.limit()) {
+                break;
+            }
+            crc.reset();
+            crc.update(data.slice(valid + RECORD_HEADER, length));
+            if ((int) crc.getValue() != data.getInt(valid + 4)) {
+                break;
+            }
+            ByteBuffer record = data.slice(valid + RECORD_HEADER, length);
+            byte type = record.get();
+            String id = readString(record);
+            String name = readString(record);
+            if (type != PUT && type != REMOVE) {
+                break;
+            }
+            apply(type, id, name);
+            count++;
+            valid += RECORD_HEADER + length;
+            data.position(valid);
+        }
+        long discarded = size - valid;
+        if (discarded > 0) {
+            log.truncate(valid);
+            log.force(true);
+        }
+        return new long[]{count, discarded};
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Longitud inválida en el almacén de usuarios: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // No todos los sistemas permiten abrir un directorio
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        running = false;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return registros reproducidos del log al abrir
+     */
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /**
+     * @return bytes descartados al final del log al abrir (registro
+     * incompleto o corrupto)
+     */
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    /**
+     * @return registros escritos al log desde que se abrió
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * @return lotes escritos (cada uno con una sola escritura al log)
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * @return llamadas a fsync sobre el log
+     */
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    public long getCompactions() {
+        return compactions.sum();
+    }
+
+    /**
+     * Builder para configurar el almacén de usuarios.
+     */
+    public static class Builder {
+
+        private final Path directory;
+        private FsyncPolicy policy = FsyncPolicy.BATCHED;
+        private long syncIntervalMillis = 10;
+        private long compactionBytes = 4L * 1024 * 1024;
+        private int queueCapacity = 65_536;
+
+        /**
+         * @param directory directorio del log y el snapshot; se crea si no
+         * existe
+         */
+        public Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        public Builder withFsyncPolicy(FsyncPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * @param millis intervalo entre fsync con {@link FsyncPolicy#BATCHED}
+         */
+        public Builder withSyncInterval(long millis) {
+            this.syncIntervalMillis = Math.max(1, millis);
+            return this;
+        }
+
+        /**
+         * @param bytes tamaño del log a partir del cual se compacta
+         */
+        public Builder withCompactionThreshold(long bytes) {
+            this.compactionBytes = Math.max(1, bytes);
+            return this;
+        }
+
+        /**
+         * @param entries escrituras encoladas sin escribir a partir de las
+         * cuales se rechazan las nuevas
+         */
+        public Builder withQueueCapacity(int entries) {
+            this.queueCapacity = Math.max(1, entries);
+            return this;
+        }
+
+        /**
+         * Recupera el estado (snapshot más log) y arranca el hilo escritor.
+         *
+         * @return el almacén
+         * @throws IOException Si no se pueden leer o crear los archivos
+         */
+        public UserStore build() throws IOException {
+            return new UserStore(this);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.AccessLog;
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.NioHttpServer;
+import edu.escuelaing.arem.ASE.app.http.RequestHead;
+import edu.escuelaing.arem.ASE.app.http.RequestParser;
+import edu.escuelaing.arem.ASE.app.http.Response;
+import org.junit.jupiter.api.*;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del registro de accesos asíncrono
+ */
+class AccessLogTest {
+
+    private static final Path LOG_DIR = Paths.get("target/access-log-test");
+
+    @AfterEach
+    void tearDown() throws IOException {
+        HttpServer.accessLog(null);
+        if (Files.exists(LOG_DIR)) {
+            try (var files = Files.walk(LOG_DIR)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static RequestHead head(String raw) {
+        RequestParser parser = new RequestParser();
+        ByteBuffer buffer = ByteBuffer.wrap(raw.getBytes(StandardCharsets.ISO_8859_1));
+        parser.reset(buffer, 0);
+        assertEquals(RequestParser.Result.COMPLETE, parser.parse(buffer.limit()));
+        return parser.head();
+    }
+
+    @Test
+    @DisplayName("Formatos common y JSON")
+    void testFormats() throws Exception {
+        RequestHead head = head("GET /pi?x=\"1\" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        InetAddress local = InetAddress.getLoopbackAddress();
+
+        AccessLog common = new AccessLog.Builder(LOG_DIR.resolve("common.log")).build();
+        common.log(local, head, 200, 17, 1_500_000);
+        common.log(null, head, 304, 0, 0);
+        common.close();
+        List<String> lines = Files.readAllLines(LOG_DIR.resolve("common.log"));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).matches("127\\.0\\.0\\.1 - - \\[.+\\] \"GET /pi\\?x=\"1\" HTTP/1.1\" 200 17 1500"),
+                lines.get(0));
+        assertTrue(lines.get(1).startsWith("- - - ["));
+        assertTrue(lines.get(1).endsWith("\" 304 - 0"));
+
+        AccessLog json = new AccessLog.Builder(LOG_DIR.resolve("json.log"))
+                .withFormat(AccessLog.Format.JSON)
+                .build();
+        json.log(local, head, 201, 5, 2000);
+        json.close();
+        String line = Files.readAllLines(LOG_DIR.resolve("json.log")).get(0);
+        assertTrue(line.startsWith("{\"time\":\""));
+        assertTrue(line.contains("\"remote\":\"127.0.0.1\""));
+        assertTrue(line.contains("\"target\":\"/pi?x=\\\"1\\\"\""));
+        assertTrue(line.endsWith("\"status\":201,\"bytes\":5,\"micros\":2}"));
+        assertEquals(1, json.getWritten());
+    }
+
+    @Test
+    @DisplayName("Muestreo y descarte sin bloquear con el buffer lleno")
+    void testSamplingAndDrops() throws Exception {
+        RequestHead head = head("GET / HTTP/1.1\r\n\r\n");
+
+        AccessLog sampled = new AccessLog.Builder(LOG_DIR.resolve("sampled.log"))
+                .withSampleRate(0)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            sampled.log(null, head, 200, 0, 0);
+        }
+        sampled.log(null, head, 500, 0, 0);
+        sampled.close();
+        assertEquals(100, sampled.getSampledOut());
+        assertEquals(1, sampled.getWritten());
+
+        // Buffer de 4 entradas: lo que no cabe se descarta, nada se pierde sin contar
+        AccessLog small = new AccessLog.Builder(LOG_DIR.resolve("small.log"))
+                .withCapacity(4)
+                .build();
+        for (int i = 0; i < 10_000; i++) {
+            small.log(null, head, 200, 0, 0);
+        }
+        small.close();
+        assertEquals(10_000, small.getWritten() + small.getDropped());
+        assertEquals(small.getWritten(), Files.readAllLines(LOG_DIR.resolve("small.log")).size());
+
+        small.log(null, head, 200, 0, 0);
+        assertEquals(10_001, small.getWritten() + small.getDropped());
+    }
+
+    @Test
+    @DisplayName("Rotación del archivo por tamaño")
+    void testRolling() throws Exception {
+        RequestHead head = head("GET /rolling HTTP/1.1\r\n\r\n");
+        Path file = LOG_DIR.resolve("roll.log");
+        AccessLog log = new AccessLog.Builder(file)
+                .withRolling(200, 2)
+                .build();
+        for (int i = 0; i < 20; i++) {
+            log.log(null, head, 200, i, 0);
+            // Un lote por entrada para forzar varias rotaciones
+            Thread.sleep(15);
+        }
+        log.close();
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(LOG_DIR.resolve("roll.log.1")));
+        assertTrue(Files.exists(LOG_DIR.resolve("roll.log.2")));
+        assertFalse(Files.exists(LOG_DIR.resolve("roll.log.3")));
+        assertTrue(Files.size(file) <= 200);
+        assertEquals(20, log.getWritten());
+    }
+
+    @Test
+    @DisplayName("Ambos transportes registran las peticiones atendidas")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testServerAccessLog() throws Exception {
+        HttpServer.get("/api/logged", (req, res) -> new Response.Builder().withBody("logged").build());
+        Path file = LOG_DIR.resolve("server.log");
+        HttpServer.accessLog(new AccessLog.Builder(file).build());
+        String request = "GET /api/logged?n=1 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+            assertTrue(send(serverSocket.getLocalPort(), request).endsWith("logged"));
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            assertTrue(send(nioServer.getLocalPort(), request).endsWith("logged"));
+        } finally {
+            nioServer.stop();
+        }
+
+        AccessLog log = HttpServer.getAccessLog();
+        HttpServer.accessLog(null);
+        assertEquals(2, log.getWritten());
+        for (String line : Files.readAllLines(file)) {
+            assertTrue(line.contains("\"GET /api/logged?n=1 HTTP/1.1\" 200 6 "), line);
+        }
+    }
+
+    private static String send(int port, String raw) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(raw.getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
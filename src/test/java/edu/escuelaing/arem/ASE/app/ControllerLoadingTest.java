@@ -1,6 +1,7 @@
 package edu.escuelaing.arem.ASE.app;
 
 import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.RouteRegistry;
 import org.junit.jupiter.api.*;
 import java.net.URI;
 import static org.junit.jupiter.api.Assertions.*;
@@ -83,8 +84,9 @@ class SimpleControllerTest {
         byte[] response = HttpServer.handleGetRequest(testUri);
 
         String responseStr = new String(response);
-        assertTrue(responseStr.contains("200 OK"));
-        assertTrue(responseStr.contains("Error: Invalid numbers"));
+        assertTrue(responseStr.contains("400 Bad Request"));
+        assertTrue(responseStr.contains("Parámetro inválido a: se esperaba int y llegó \"abc\""));
+        assertTrue(responseStr.contains("Content-Type: text/plain; charset=utf-8"));
     }
 
 
@@ -113,4 +115,12 @@ class SimpleControllerTest {
                   "Endpoints no registrados deben retornar 404");
     }
 
+    @Test
+    @DisplayName("Test que la tabla de rutas se genera en compilación")
+    void testGeneratedRouteRegistry() throws Exception {
+        // RouteProcessor debe haber generado la tabla; así loadComponents no escanea el classpath
+        Class<?> registry = Class.forName(RouteRegistry.GENERATED_CLASS);
+        assertTrue(RouteRegistry.class.isAssignableFrom(registry));
+    }
+
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package edu.escuelaing.arem.ASE.app;
 
+import edu.escuelaing.arem.ASE.app.http.BufferPool;
+import edu.escuelaing.arem.ASE.app.http.Request;
 import edu.escuelaing.arem.ASE.app.http.Response;
 import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.NioHttpServer;
+import edu.escuelaing.arem.ASE.app.http.StaticFileCache;
 import org.junit.jupiter.api.*;
 import java.io.*;
 import java.net.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,6 +22,8 @@ import static org.junit.jupiter.api.Assertions.*;
 class HttpServerTest {
 
     private static final int TEST_PORT = 35001;
+    private static final int LARGE_FILE_SIZE = 3 * 1024 * 1024;
+    private static final int STREAM_LINES = 50_000;
     private static ServerSocket testServerSocket;
     private static volatile boolean serverRunning = false;
 
@@ -65,6 +72,16 @@ class HttpServerTest {
         Files.write(testDir.resolve("data.json"),
                 "{\"message\": \"Hello World\", \"status\": \"ok\"}".getBytes());
 
+        Files.write(testDir.resolve("app.js"),
+                "console.log('Test app');\n".repeat(200).getBytes());
+
+        // Mayor que el límite por entrada de la caché: se envía desde el disco
+        byte[] large = new byte[LARGE_FILE_SIZE];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i % 251);
+        }
+        Files.write(testDir.resolve("large.bin"), large);
+
         Path subDir = testDir.resolve("subdir");
         Files.createDirectories(subDir);
         Files.write(subDir.resolve("nested.txt"),
@@ -206,6 +223,7 @@ class HttpServerTest {
 
     @Test
     @DisplayName("Test servicio POST /api/users")
+    @SuppressWarnings("deprecation")
     void testPostCreateUser() throws Exception {
         URI testUri = new URI("/api/users");
         String jsonBody = "{\"name\": \"NewUser\"}";
@@ -253,6 +271,175 @@ class HttpServerTest {
         assertTrue(responseStr.contains("text/css"));
     }
 
+    @Test
+    @DisplayName("Test archivo estático - caché e invalidación")
+    void testStaticFileCache() throws Exception {
+        StaticFileCache cache = HttpServer.getStaticFileCache();
+        URI testUri = new URI("/subdir/nested.txt");
+
+        HttpServer.handleGetRequest(testUri);
+        long hits = cache.getHits();
+        String cached = new String(HttpServer.handleGetRequest(testUri));
+        assertEquals(hits + 1, cache.getHits());
+        assertTrue(cached.contains("nested file"));
+
+        // Al modificar el archivo, el WatchService descarta la entrada
+        Files.write(Paths.get("target/classes/test-static/subdir/nested.txt"),
+                "Updated nested file".getBytes());
+        String updated = "";
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!updated.contains("Updated") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            updated = new String(HttpServer.handleGetRequest(testUri));
+        }
+        assertTrue(updated.contains("Updated"));
+        assertTrue(cache.getInvalidations() > 0);
+    }
+
+    @Test
+    @DisplayName("Test archivo estático - expulsión LRU y caché desactivada")
+    void testStaticFileCacheEvictionAndDisabled() throws Exception {
+        URI index = new URI("/index.html");
+        URI css = new URI("/style.css");
+        URI json = new URI("/data.json");
+        try {
+            long indexSize = entrySize(index);
+            long limit = indexSize + Math.max(entrySize(css), entrySize(json));
+
+            HttpServer.staticCache(limit, limit);
+            StaticFileCache cache = HttpServer.getStaticFileCache();
+            HttpServer.handleGetRequest(index);
+            HttpServer.handleGetRequest(css);
+            // index pasa a ser el más reciente: al llegar data.json se expulsa style.css
+            HttpServer.handleGetRequest(index);
+            HttpServer.handleGetRequest(json);
+            assertEquals(1, cache.getEvictions());
+            assertTrue(cache.getBytes() <= limit);
+
+            long hits = cache.getHits();
+            HttpServer.handleGetRequest(index);
+            assertEquals(hits + 1, cache.getHits());
+            HttpServer.handleGetRequest(css);
+            assertEquals(hits + 1, cache.getHits());
+
+            // Con 0 bytes no se guarda nada, ni siquiera la cabecera
+            HttpServer.staticCache(0, 0);
+            StaticFileCache disabled = HttpServer.getStaticFileCache();
+            String first = new String(HttpServer.handleGetRequest(json));
+            String second = new String(HttpServer.handleGetRequest(json));
+            assertTrue(first.contains("Hello World"));
+            assertEquals(first, second);
+            assertEquals(0, disabled.getEntries());
+            assertEquals(0, disabled.getHits());
+
+            // Sin caché el ETag es débil (tamaño y fecha): revalida, pero no habilita If-Range
+            String etag = headerValue(headerOf(first.getBytes()), "ETag");
+            assertTrue(etag.matches("W/\"[0-9a-f]+-[0-9a-f]+\""));
+            Response revalidated = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                    .withUri(json).withHeader("If-None-Match", etag).build());
+            assertEquals(304, revalidated.getStatus());
+            Response ranged = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                    .withUri(json).withHeader("Range", "bytes=0-4").withHeader("If-Range", etag).build());
+            assertEquals(200, ranged.getStatus());
+        } finally {
+            HttpServer.staticCache(64L * 1024 * 1024, 1024 * 1024);
+        }
+    }
+
+    /**
+     * Bytes que ocupa en la caché la entrada de un archivo
+     */
+    private static long entrySize(URI uri) throws Exception {
+        HttpServer.staticCache(1024 * 1024, 1024 * 1024);
+        HttpServer.handleGetRequest(uri);
+        return HttpServer.getStaticFileCache().getBytes();
+    }
+
+    @Test
+    @DisplayName("Compresión - gzip negociado con Accept-Encoding")
+    void testGzipNegotiation() throws Exception {
+        HttpServer.get("/api/report", (req, res) -> new Response.Builder()
+                .withBody("{\"report\": \"" + "x".repeat(4096) + "\"}")
+                .build());
+
+        // Estático: variante precomprimida
+        Response gzipped = HttpServer.dispatch(getRequest("/app.js", "gzip, deflate"));
+        String head = headerOf(gzipped.toBytes());
+        assertTrue(head.contains("Content-Encoding: gzip"));
+        assertTrue(head.contains("Vary: Accept-Encoding"));
+        assertEquals("console.log('Test app');\n".repeat(200), gunzip(gzipped.toBytes()));
+
+        Response plain = HttpServer.dispatch(getRequest("/app.js", null));
+        assertFalse(headerOf(plain.toBytes()).contains("Content-Encoding"));
+        assertTrue(headerOf(plain.toBytes()).contains("Vary: Accept-Encoding"));
+
+        // Dinámico: compresión al vuelo por encima del umbral
+        Response dynamic = HttpServer.dispatch(getRequest("/api/report", "gzip"));
+        assertTrue(headerOf(dynamic.toBytes()).contains("Content-Encoding: gzip"));
+        assertTrue(gunzip(dynamic.toBytes()).startsWith("{\"report\": \"xxx"));
+
+        Response refused = HttpServer.dispatch(getRequest("/api/report", "gzip;q=0, identity"));
+        assertFalse(headerOf(refused.toBytes()).contains("Content-Encoding"));
+    }
+
+    @Test
+    @DisplayName("GET condicional - ETag, Last-Modified y 304")
+    void testConditionalGet() throws Exception {
+        String head = headerOf(HttpServer.dispatch(getRequest("/index.html", null)).toBytes());
+        String etag = headerValue(head, "ETag");
+        String lastModified = headerValue(head, "Last-Modified");
+        assertTrue(etag.matches("\"[0-9a-f]{32}\""));
+        assertNotNull(lastModified);
+        assertTrue(head.contains("Cache-Control: no-cache"));
+
+        Response byEtag = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/index.html")).withHeader("If-None-Match", "\"other\", W/" + etag).build());
+        byte[] notModified = byEtag.toBytes();
+        assertEquals(304, byEtag.getStatus());
+        assertTrue(new String(notModified).startsWith("HTTP/1.1 304 Not Modified"));
+        assertTrue(new String(notModified).endsWith("\r\n\r\n"));
+        assertFalse(headerOf(notModified).contains("Content-Length"));
+        assertEquals(etag, headerValue(headerOf(notModified), "ETag"));
+
+        Response byDate = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/index.html")).withHeader("If-Modified-Since", lastModified).build());
+        assertEquals(304, byDate.getStatus());
+
+        Response stale = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/index.html")).withHeader("If-None-Match", "\"stale\"").build());
+        assertEquals(200, stale.getStatus());
+    }
+
+    private static String headerValue(String head, String name) {
+        for (String line : head.split("\r\n")) {
+            if (line.startsWith(name + ": ")) {
+                return line.substring(name.length() + 2);
+            }
+        }
+        return null;
+    }
+
+    private static Request getRequest(String path, String acceptEncoding) throws URISyntaxException {
+        Request.Builder builder = new Request.Builder().withMethod("GET").withUri(new URI(path));
+        if (acceptEncoding != null) {
+            builder.withHeader("Accept-Encoding", acceptEncoding);
+        }
+        return builder.build();
+    }
+
+    private static String headerOf(byte[] response) {
+        String text = new String(response, java.nio.charset.StandardCharsets.ISO_8859_1);
+        return text.substring(0, text.indexOf("\r\n\r\n"));
+    }
+
+    private static String gunzip(byte[] response) throws IOException {
+        int bodyStart = headerOf(response).length() + 4;
+        try (java.util.zip.GZIPInputStream in = new java.util.zip.GZIPInputStream(
+                new ByteArrayInputStream(response, bodyStart, response.length - bodyStart))) {
+            return new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+        }
+    }
+
     // ============ PRUEBAS DE SEGURIDAD ============
     @Test
     @DisplayName("Test seguridad - Path traversal bloqueado")
@@ -333,16 +520,656 @@ class HttpServerTest {
         serverFuture.cancel(true);
     }
 
+    @Test
+    @DisplayName("Concurrencia - Un cliente lento no bloquea a los demás")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSlowClientDoesNotBlockOthers() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 1)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+
+            // Cliente lento: abre la conexión y no envía nada
+            try (Socket slowClient = new Socket("localhost", TEST_PORT + 1)) {
+                String response = sendHttpRequest(TEST_PORT + 1, "GET", "/api/hello?name=Concurrent", "");
+                assertTrue(response.contains("200 OK"));
+                assertTrue(response.contains("Hello Concurrent!"));
+            }
+
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+    }
+
+    @Test
+    @DisplayName("Errores - Un servicio que lanza responde 500 y la conexión sigue")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testHandlerExceptionKeepsConnection() throws Exception {
+        HttpServer.get("/api/fails", (req, res) -> {
+            throw new IllegalStateException("roto");
+        });
+        String requests = "GET /api/fails HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "GET /api/hello?name=Tras HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 8)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+            String response = sendRawRequests(TEST_PORT + 8, requests);
+            assertTrue(response.startsWith("HTTP/1.1 500 Internal Server Error"));
+            assertTrue(response.contains("Server Error: roto"));
+            assertTrue(response.contains("Hello Tras!"));
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            String response = sendRawRequests(nioServer.getLocalPort(), requests);
+            assertTrue(response.startsWith("HTTP/1.1 500 Internal Server Error"));
+            assertTrue(response.contains("Hello Tras!"));
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrencia - Un servicio que bloquea no detiene el event loop")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testBlockingHandlerDoesNotStallEventLoop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer.get("/api/blocking", (req, res) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Response.Builder().withBody("{\"done\": true}").build();
+        });
+
+        // Un solo event loop: si el servicio corriera en él, la segunda conexión esperaría
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            int nioPort = nioServer.getLocalPort();
+            CompletableFuture<String> blocked = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return sendHttpRequest(nioPort, "GET", "/api/blocking", "");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            String response = sendHttpRequest(nioPort, "GET", "/api/hello?name=Libre", "");
+            assertTrue(response.contains("Hello Libre!"));
+            assertFalse(blocked.isDone());
+
+            release.countDown();
+            assertTrue(blocked.get().contains("\"done\": true"));
+        } finally {
+            release.countDown();
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Errores - Un método no soportado responde 405 con Allow")
+    void testMethodNotAllowed() throws Exception {
+        Response response = HttpServer.dispatch(new Request.Builder()
+                .withMethod("PUT")
+                .withUri(new URI("/api/users"))
+                .build());
+        String head = headerOf(response.toBytes());
+        assertTrue(head.startsWith("HTTP/1.1 405 Method Not Allowed\r\n"));
+        assertEquals("GET, POST", headerValue(head, "Allow"));
+    }
+
+    @Test
+    @DisplayName("Integración - Transporte NIO")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testNioTransport() throws Exception {
+        NioHttpServer nioServer = new NioHttpServer(0, 2);
+        nioServer.start();
+        try {
+            int nioPort = nioServer.getLocalPort();
+
+            String response1 = sendHttpRequest(nioPort, "GET", "/api/hello?name=Nio", "");
+            assertTrue(response1.contains("200 OK"));
+            assertTrue(response1.contains("Hello Nio!"));
+
+            String response2 = sendHttpRequest(nioPort, "POST", "/api/users", "{\"name\": \"NioUser\"}");
+            assertTrue(response2.contains("201"));
+            assertTrue(HttpServer.getUsers().containsValue("NioUser"));
+
+            String response3 = sendHttpRequest(nioPort, "GET", "/data.json", "");
+            assertTrue(response3.contains("Hello World"));
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Keep-alive - Peticiones encadenadas en una sola conexión")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testKeepAlivePipelining() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 2)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+
+            String response = sendRawRequests(TEST_PORT + 2,
+                    "GET /api/hello?name=Uno HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /api/hello?name=Dos HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /api/hello?name=Tres HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            assertPipelinedResponses(response);
+
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+    }
+
+    @Test
+    @DisplayName("Keep-alive - Peticiones encadenadas en el transporte NIO")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testNioKeepAlivePipelining() throws Exception {
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            String response = sendRawRequests(nioServer.getLocalPort(),
+                    "GET /api/hello?name=Uno HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /api/hello?name=Dos HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /api/hello?name=Tres HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            assertPipelinedResponses(response);
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Keep-alive - Una respuesta sin cuerpo lleva Content-Length: 0")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testEmptyBodyKeepAlive() throws Exception {
+        HttpServer.get("/api/empty", (req, res) -> new Response.Builder().build());
+        HttpServer.get("/api/nocontent", (req, res) -> new Response.Builder().withStatus(204).build());
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try (Socket socket = new Socket("localhost", nioServer.getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            // Como un cliente real: la siguiente petición sale solo tras leer la respuesta completa
+            out.write("GET /api/empty HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+            String empty = readHead(in);
+            assertTrue(empty.startsWith("HTTP/1.1 200 OK"));
+            assertEquals("0", headerValue(empty, "Content-Length"));
+
+            out.write("GET /api/nocontent HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+            String noContent = readHead(in);
+            assertTrue(noContent.startsWith("HTTP/1.1 204"));
+            assertNull(headerValue(noContent, "Content-Length"));
+
+            out.write("GET /api/hello?name=Tras HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+            String last = new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+            assertTrue(last.contains("Hello Tras!"));
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Serialización - Date en caché, Connection del transporte y cuerpos grandes")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testResponseSerialization() throws Exception {
+        String big = "0123456789abcdef".repeat(8192);
+        HttpServer.get("/api/big", (req, res) -> new Response.Builder()
+                .withContentType("application/octet-stream")
+                .withBody(big)
+                .addHeader("Connection", "upgrade")
+                .addHeader("X-Trace", "uno")
+                .addHeader("x-trace", "dos")
+                .build());
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            String response = sendRawRequests(nioServer.getLocalPort(),
+                    "GET /api/big HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /api/big HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            String[] responses = response.split("HTTP/1.1 200 OK\r\n", -1);
+            assertEquals(3, responses.length);
+            for (int i = 1; i < responses.length; i++) {
+                String head = responses[i].substring(0, responses[i].indexOf("\r\n\r\n") + 2);
+                String body = responses[i].substring(head.length() + 2);
+                assertEquals(big, body);
+                assertEquals(String.valueOf(big.length()), headerValue(head, "Content-Length"));
+                // Los headers repetidos se reemplazan sin distinguir mayúsculas
+                assertEquals("dos", headerValue(head, "X-Trace"));
+                assertEquals(1, head.split("Connection: ", -1).length - 1);
+                assertEquals(i == 1 ? "keep-alive" : "close", headerValue(head, "Connection"));
+                long date = java.time.ZonedDateTime.parse(headerValue(head, "Date"),
+                        java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+                assertTrue(Math.abs(System.currentTimeMillis() / 1000 - date) <= 5);
+            }
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Admisión - Rechazo inmediato con 503 al superar los límites")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAdmissionControlShedsLoad() throws Exception {
+        java.util.concurrent.CountDownLatch entered = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        HttpServer.get("/api/slow", (req, res) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Response.Builder().withBody("{\"slow\": true}").build();
+        });
+        HttpServer.admissionControl(1, 0);
+
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 3)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+            CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return sendHttpRequest(TEST_PORT + 3, "GET", "/api/slow", "");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            entered.await();
+
+            String rejected = sendRawRequests(TEST_PORT + 3, "GET /api/hello HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(rejected.contains("503 Service Unavailable"));
+            assertTrue(rejected.contains("Retry-After: 1"));
+            assertEquals(1, HttpServer.getAdmissionController().getRejected());
+
+            release.countDown();
+            assertTrue(slow.get().contains("200 OK"));
+
+            serverSocket.close();
+            serverFuture.cancel(true);
+        } finally {
+            release.countDown();
+            HttpServer.admissionControl(256, 1024);
+        }
+    }
+
+    @Test
+    @DisplayName("Archivo grande - Envío con transferTo sin pasar por la caché")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testLargeStaticFileTransfer() throws Exception {
+        String request = "GET /large.bin HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        // Transporte bloqueante con socket respaldado por canal (sendfile)
+        try (java.nio.channels.ServerSocketChannel serverChannel = java.nio.channels.ServerSocketChannel.open()
+                .bind(new InetSocketAddress(TEST_PORT + 4))) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverChannel.socket()));
+            assertLargeFileResponse(sendRawBytes(TEST_PORT + 4, request));
+            serverChannel.close();
+            serverFuture.cancel(true);
+        }
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            assertLargeFileResponse(sendRawBytes(nioServer.getLocalPort(), request));
+        } finally {
+            nioServer.stop();
+        }
+
+        // El cuerpo no ocupa la caché
+        assertTrue(HttpServer.getStaticFileCache().getBytes() < LARGE_FILE_SIZE);
+    }
+
+    @Test
+    @DisplayName("Range - 206, multipart/byteranges, 416 e If-Range")
+    void testRangeRequests() throws Exception {
+        Response single = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/large.bin")).withHeader("Range", "bytes=100-199").build());
+        byte[] bytes = single.toBytes();
+        String head = headerOf(bytes);
+        assertEquals(206, single.getStatus());
+        assertEquals("bytes 100-199/" + LARGE_FILE_SIZE, headerValue(head, "Content-Range"));
+        assertEquals(100, bytes.length - head.length() - 4);
+        assertEquals((byte) (100 % 251), bytes[head.length() + 4]);
+
+        byte[] index = Files.readAllBytes(Paths.get("target/classes/test-static/index.html"));
+        Response suffix = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/index.html")).withHeader("Range", "bytes=-10").build());
+        byte[] suffixBytes = suffix.toBytes();
+        assertEquals(new String(index, index.length - 10, 10),
+                new String(suffixBytes, headerOf(suffixBytes).length() + 4, 10));
+
+        Response unsatisfiable = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/large.bin")).withHeader("Range", "bytes=" + LARGE_FILE_SIZE + "-").build());
+        assertEquals(416, unsatisfiable.getStatus());
+        assertTrue(headerOf(unsatisfiable.toBytes()).contains("Content-Range: bytes */" + LARGE_FILE_SIZE));
+
+        Response staleIfRange = HttpServer.dispatch(new Request.Builder().withMethod("GET")
+                .withUri(new URI("/index.html")).withHeader("Range", "bytes=0-4")
+                .withHeader("If-Range", "\"stale\"").build());
+        assertEquals(200, staleIfRange.getStatus());
+
+        // Varios rangos por el transporte NIO, enviados desde el archivo
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            byte[] response = sendRawBytes(nioServer.getLocalPort(), "GET /large.bin HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Range: bytes=0-9,1000-1009\r\nConnection: close\r\n\r\n");
+            String text = new String(response, java.nio.charset.StandardCharsets.ISO_8859_1);
+            String multipartHead = headerOf(response);
+            assertTrue(text.startsWith("HTTP/1.1 206 Partial Content"));
+            assertTrue(headerValue(multipartHead, "Content-Type").startsWith("multipart/byteranges; boundary="));
+            assertEquals(response.length - multipartHead.length() - 4,
+                    Integer.parseInt(headerValue(multipartHead, "Content-Length")));
+            int second = text.indexOf("Content-Range: bytes 1000-1009/" + LARGE_FILE_SIZE);
+            assertTrue(text.indexOf("Content-Range: bytes 0-9/" + LARGE_FILE_SIZE) > 0 && second > 0);
+            int data = text.indexOf("\r\n\r\n", second) + 4;
+            assertEquals((byte) (1000 % 251), response[data]);
+            assertEquals((byte) (1009 % 251), response[data + 9]);
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Streaming - cuerpo progresivo con Transfer-Encoding: chunked")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testStreamingResponse() throws Exception {
+        HttpServer.get("/api/stream", (req, res) -> new Response.Builder()
+                .withContentType("text/plain")
+                .withStreamingBody(out -> {
+                    for (int i = 0; i < STREAM_LINES; i++) {
+                        out.write(("line " + i + "\n").getBytes());
+                        if (i % 1000 == 0) {
+                            out.flush();
+                        }
+                    }
+                })
+                .build());
+        String request = "GET /api/stream HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "GET /api/hello?name=After HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 5)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+            assertChunkedStream(sendRawBytes(TEST_PORT + 5, request));
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            assertChunkedStream(sendRawBytes(nioServer.getLocalPort(), request));
+
+            // HTTP/1.0 no admite chunked: el cuerpo llega con Content-Length
+            String http10 = new String(sendRawBytes(nioServer.getLocalPort(),
+                    "GET /api/stream HTTP/1.0\r\n\r\n"), java.nio.charset.StandardCharsets.ISO_8859_1);
+            assertFalse(http10.contains("Transfer-Encoding"));
+            assertTrue(http10.contains("Content-Length: "));
+            assertTrue(http10.endsWith("line " + (STREAM_LINES - 1) + "\n"));
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Streaming - Respuestas cortas encadenadas en NIO")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testNioShortStreamsPipelined() throws Exception {
+        HttpServer.get("/api/tiny-stream", (req, res) -> new Response.Builder()
+                .withContentType("text/plain")
+                .withStreamingBody(out -> out.write("tiny\n".getBytes()))
+                .build());
+        int count = 90;
+        String request = "GET /api/tiny-stream HTTP/1.1\r\nHost: localhost\r\n\r\n".repeat(count)
+                + "GET /api/hello?name=Fin HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        // El aviso del productor llega tras el fin de la respuesta: no debe romper la siguiente
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            String response = sendRawRequests(nioServer.getLocalPort(), request);
+            assertEquals(count, response.split("\r\ntiny\n\r\n", -1).length - 1);
+            assertTrue(response.contains("Hello Fin!"));
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    private static void assertChunkedStream(byte[] response) {
+        String text = new String(response, java.nio.charset.StandardCharsets.ISO_8859_1);
+        String head = text.substring(0, text.indexOf("\r\n\r\n"));
+        assertTrue(head.contains("Transfer-Encoding: chunked"));
+        assertFalse(head.contains("Content-Length"));
+
+        // Decodificar los chunks
+        StringBuilder body = new StringBuilder();
+        int pos = head.length() + 4;
+        while (true) {
+            int lineEnd = text.indexOf("\r\n", pos);
+            int size = Integer.parseInt(text.substring(pos, lineEnd), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                pos += 2;
+                break;
+            }
+            body.append(text, pos, pos + size);
+            pos += size + 2;
+        }
+        String[] lines = body.toString().split("\n");
+        assertEquals(STREAM_LINES, lines.length);
+        assertEquals("line " + (STREAM_LINES - 1), lines[STREAM_LINES - 1]);
+
+        // La conexión sigue sirviendo peticiones tras el streaming
+        assertTrue(text.substring(pos).startsWith("HTTP/1.1 200 OK"));
+        assertTrue(text.substring(pos).contains("Hello After!"));
+    }
+
+    @Test
+    @DisplayName("Cuerpo de petición - bytes exactos, chunked, 100-continue y 413")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @SuppressWarnings("deprecation")
+    void testRequestBodies() throws Exception {
+        HttpServer.post("/api/echo", (req, res) -> new Response.Builder()
+                .withContentType("text/plain; charset=utf-8")
+                .withBodyBytes(req.getBodyBytes())
+                .build());
+        HttpServer.post("/api/count", (req, res) -> {
+            long count = 0;
+            try (InputStream in = req.getBodyStream()) {
+                count = in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Response.Builder().withBody("{\"bytes\": " + count + "}").build();
+        });
+        HttpServer.post("/api/ignore", (req, res) -> new Response.Builder().withBody("ignored").build());
+
+        String utf8 = "héllo wörld ñ 😀";
+        int utf8Length = utf8.getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+
+        // Lector heredado: Content-Length en bytes, no en caracteres
+        byte[] legacy = HttpServer.handlePostRequest(new URI("/api/echo"), new BufferedReader(new StringReader(
+                "Content-Length: " + utf8Length + "\r\n\r\n" + utf8 + "GET / HTTP/1.1")));
+        assertTrue(new String(legacy, java.nio.charset.StandardCharsets.UTF_8).endsWith("\r\n\r\n" + utf8));
+
+
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 6)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+            assertRequestBodies(TEST_PORT + 6, utf8, utf8Length);
+
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            assertRequestBodies(nioServer.getLocalPort(), utf8, utf8Length);
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    private void assertRequestBodies(int port, String utf8, int utf8Length) throws Exception {
+        // Cuerpo multibyte, chunked y uno que el servicio no lee, en una sola conexión
+        String responses = sendRawRequests(port,
+                "POST /api/echo HTTP/1.1\r\nContent-Length: " + utf8Length + "\r\n\r\n" + utf8
+                + "POST /api/echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "4\r\nWiki\r\n5;ext=1\r\npedia\r\n0\r\nX-Trailer: 1\r\n\r\n"
+                + "POST /api/ignore HTTP/1.1\r\nContent-Length: 5\r\n\r\nabcde"
+                + "GET /api/hello?name=Last HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertTrue(responses.contains("\r\n\r\n" + utf8));
+        assertTrue(responses.contains("\r\n\r\nWikipedia"));
+        assertTrue(responses.contains("ignored"));
+        assertTrue(responses.contains("Hello Last!"));
+
+        // Un cuerpo de varios MB, por debajo de maxBodySize, se acepta en
+        // ambos transportes
+        String big = "POST /api/count HTTP/1.1\r\nContent-Length: 2000000\r\nConnection: close\r\n\r\n"
+                + "x".repeat(2_000_000);
+        assertTrue(sendRawRequests(port, big).contains("{\"bytes\": 2000000}"));
+
+        // Expect: 100-continue
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write("POST /api/echo HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 4\r\nConnection: close\r\n\r\n"
+                    .getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
+            out.flush();
+            byte[] interim = in.readNBytes("HTTP/1.1 100 Continue\r\n\r\n".length());
+            assertEquals("HTTP/1.1 100 Continue\r\n\r\n", new String(interim, java.nio.charset.StandardCharsets.ISO_8859_1));
+            out.write("ping".getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
+            out.flush();
+            String response = new String(in.readAllBytes(), java.nio.charset.StandardCharsets.ISO_8859_1);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(response.endsWith("ping"));
+        }
+
+        // Demasiado grande: 413 sin 100 Continue ni leer el cuerpo
+        long previous = HttpServer.getMaxBodySize();
+        HttpServer.maxBodySize(16);
+        try {
+            String rejected = sendRawRequests(port,
+                    "POST /api/echo HTTP/1.1\r\nExpect: 100-continue\r\nContent-Length: 100\r\n\r\n");
+            assertTrue(rejected.startsWith("HTTP/1.1 413 Payload Too Large"));
+            assertTrue(rejected.contains("Connection: close"));
+
+            String chunkedTooLarge = sendRawRequests(port, "POST /api/echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "10\r\n0123456789abcdef\r\n10\r\n0123456789abcdef\r\n0\r\n\r\n");
+            assertTrue(chunkedTooLarge.startsWith("HTTP/1.1 413 Payload Too Large"));
+        } finally {
+            HttpServer.maxBodySize(previous);
+        }
+    }
+
+    @Test
+    @DisplayName("Pool de buffers - préstamo, reutilización y devolución al cerrar conexiones")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testBufferPools() throws Exception {
+        BufferPool pool = new BufferPool(1024, 1024 * 1024, true);
+        BufferPool.Lease first = pool.acquire();
+        assertTrue(first.buffer().isDirect());
+        assertEquals(1024, first.buffer().capacity());
+        assertEquals(128, pool.getCapacity());
+        assertEquals(1, pool.getInUse());
+        first.release();
+        first.release();
+        assertEquals(0, pool.getInUse());
+        assertEquals(1, pool.getReleased());
+
+        // Sin memoria disponible se entrega un buffer suelto
+        BufferPool empty = new BufferPool(1024, 0, false);
+        empty.acquire().release();
+        assertEquals(1, empty.getUnpooled());
+        assertEquals(0, empty.getCapacity());
+
+        BufferPool heap = HttpServer.getHeapBufferPool();
+        BufferPool direct = HttpServer.getDirectBufferPool();
+        long heapInUse = heap.getInUse();
+        long directInUse = direct.getInUse();
+
+        String request = "GET /api/hello?name=Pool HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+        try (ServerSocket serverSocket = new ServerSocket(TEST_PORT + 7)) {
+            CompletableFuture<Void> serverFuture = CompletableFuture.runAsync(() -> HttpServer.runServer(serverSocket));
+            for (int i = 0; i < 20; i++) {
+                assertTrue(sendRawRequests(TEST_PORT + 7, request).contains("Hello Pool!"));
+            }
+            serverSocket.close();
+            serverFuture.cancel(true);
+        }
+
+        NioHttpServer nioServer = new NioHttpServer(0, 1);
+        nioServer.start();
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(sendRawRequests(nioServer.getLocalPort(), request).contains("Hello Pool!"));
+            }
+            // Cabecera mayor que el buffer del pool: se amplía y la conexión sigue sirviendo
+            String bigHeader = "GET /api/hello?name=Big HTTP/1.1\r\nX-Padding: " + "a".repeat(20_000) + "\r\n\r\n"
+                    + request;
+            String responses = sendRawRequests(nioServer.getLocalPort(), bigHeader);
+            assertTrue(responses.contains("Hello Big!"));
+            assertTrue(responses.contains("Hello Pool!"));
+        } finally {
+            nioServer.stop();
+        }
+
+        // Las conexiones cerradas devuelven todos sus buffers
+        while (heap.getInUse() > heapInUse || direct.getInUse() > directInUse) {
+            Thread.sleep(10);
+        }
+        assertTrue(heap.getReleased() > 0);
+        assertTrue(direct.getReleased() > 0);
+        assertEquals(0, heap.getLeaks());
+        assertEquals(0, direct.getLeaks());
+    }
+
+    private static void assertLargeFileResponse(byte[] response) {
+        String text = new String(response, java.nio.charset.StandardCharsets.ISO_8859_1);
+        assertTrue(text.startsWith("HTTP/1.1 200 OK"));
+        assertTrue(text.contains("Content-Length: " + LARGE_FILE_SIZE));
+        int bodyStart = text.indexOf("\r\n\r\n") + 4;
+        assertEquals(LARGE_FILE_SIZE, response.length - bodyStart);
+        for (int i = 0; i < LARGE_FILE_SIZE; i += 4099) {
+            assertEquals((byte) (i % 251), response[bodyStart + i]);
+        }
+    }
+
+    private static void assertPipelinedResponses(String response) {
+        int uno = response.indexOf("Hello Uno!");
+        int dos = response.indexOf("Hello Dos!");
+        int tres = response.indexOf("Hello Tres!");
+        assertTrue(uno >= 0 && dos > uno && tres > dos, "Las respuestas deben llegar en orden");
+        assertEquals(2, response.split("Connection: keep-alive", -1).length - 1);
+        assertTrue(response.contains("Connection: close"));
+        assertEquals(3, response.split("\r\nDate: ", -1).length - 1);
+    }
+
     // ============ MÉTODOS AUXILIARES ============
     /**
      * Envía una petición HTTP al servidor de prueba
      */
     private String sendHttpRequest(String method, String path, String body) throws IOException {
-        try (Socket socket = new Socket("localhost", TEST_PORT); PrintWriter out = new PrintWriter(socket.getOutputStream(), true); BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+        return sendHttpRequest(TEST_PORT, method, path, body);
+    }
+
+    /**
+     * Envía una petición HTTP a un servidor de prueba en el puerto indicado
+     */
+    private String sendHttpRequest(int port, String method, String path, String body) throws IOException {
+        try (Socket socket = new Socket("localhost", port); PrintWriter out = new PrintWriter(socket.getOutputStream(), true); BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
 
             // Enviar petición
             out.println(method + " " + path + " HTTP/1.1");
-            out.println("Host: localhost:" + TEST_PORT);
+            out.println("Host: localhost:" + port);
 
             if (!body.isEmpty()) {
                 out.println("Content-Type: application/json");
@@ -386,6 +1213,44 @@ class HttpServerTest {
         }
     }
 
+    /**
+     * Envía bytes crudos por una sola conexión y lee todo hasta que el
+     * servidor la cierre
+     */
+    private String sendRawRequests(int port, String raw) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(raw.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            return new String(socket.getInputStream().readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Envía una petición cruda y devuelve todos los bytes de la respuesta
+     */
+    private byte[] sendRawBytes(int port, String raw) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(raw.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            return socket.getInputStream().readAllBytes();
+        }
+    }
+
+    /**
+     * Lee una cabecera de respuesta hasta la línea en blanco
+     */
+    private static String readHead(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (head.length() < 4 || !head.substring(head.length() - 4).equals("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Conexión cerrada antes de la cabecera");
+            }
+            head.append((char) b);
+        }
+        return head.toString();
+    }
+
     /**
      * Limpia archivos de prueba
      */
@@ -0,0 +1,123 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.Metrics;
+import edu.escuelaing.arem.ASE.app.http.Response;
+import org.junit.jupiter.api.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las métricas por ruta y del endpoint Prometheus
+ */
+class MetricsTest {
+
+    @Test
+    @DisplayName("Contadores por clase de estado, bytes y percentiles")
+    void testRouteStats() {
+        Metrics metrics = new Metrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.record("GET", "/users/{id}", i <= 90 ? 200 : 503, 10, 100, i * 1_000_000L);
+        }
+        Metrics.RouteStats stats = metrics.find("GET", "/users/{id}");
+        assertEquals(100, stats.getRequests());
+        assertEquals(90, stats.getResponses(2));
+        assertEquals(10, stats.getResponses(5));
+        assertEquals(0, stats.getResponses(4));
+        assertEquals(1000, stats.getBytesIn());
+        assertEquals(10_000, stats.getBytesOut());
+
+        // Valores de 1 a 100 ms: cada percentil dentro del 25% del exacto
+        long p50 = stats.getLatencyPercentile(0.5);
+        long p99 = stats.getLatencyPercentile(0.99);
+        assertTrue(p50 >= 50_000 && p50 <= 62_500, "p50 " + p50);
+        assertTrue(p99 >= 99_000 && p99 <= 123_750, "p99 " + p99);
+        assertTrue(stats.getLatencyPercentile(1) >= 100_000);
+        assertNull(metrics.find("POST", "/users/{id}"));
+    }
+
+    @Test
+    @DisplayName("Registro concurrente sin perder cuentas")
+    void testConcurrentRecording() throws Exception {
+        Metrics metrics = new Metrics();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metrics.record("GET", "/pi", 200, 0, 17, i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Metrics.RouteStats stats = metrics.find("GET", "/pi");
+        assertEquals(80_000, stats.getRequests());
+        assertEquals(80_000 * 17, stats.getBytesOut());
+    }
+
+    @Test
+    @DisplayName("Exposición en formato de texto Prometheus")
+    void testPrometheusFormat() {
+        Metrics metrics = new Metrics();
+        metrics.record("GET", "/pi", 200, 0, 17, 300_000);
+        metrics.record("GET", "/pi", 404, 0, 5, 20_000_000);
+        metrics.record("POST", "/say \"hi\"", 201, 4, 2, 1000);
+        String text = metrics.toPrometheus();
+
+        assertTrue(text.contains("# TYPE http_requests_total counter\n"));
+        assertTrue(text.contains("http_requests_total{method=\"GET\",route=\"/pi\"} 2\n"));
+        assertTrue(text.contains("http_responses_total{method=\"GET\",route=\"/pi\",status=\"2xx\"} 1\n"));
+        assertTrue(text.contains("http_responses_total{method=\"GET\",route=\"/pi\",status=\"4xx\"} 1\n"));
+        assertTrue(text.contains("http_response_bytes_total{method=\"GET\",route=\"/pi\"} 22\n"));
+        assertTrue(text.contains("route=\"/say \\\"hi\\\"\""));
+
+        // 300 µs cae en le=0.0005; 20 ms en le=0.025
+        assertTrue(text.contains("# TYPE http_request_duration_seconds histogram\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/pi\",le=\"0.00025\"} 0\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/pi\",le=\"0.0005\"} 1\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/pi\",le=\"0.01\"} 1\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/pi\",le=\"0.025\"} 2\n"));
+        assertTrue(text.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/pi\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("http_request_duration_seconds_count{method=\"GET\",route=\"/pi\"} 2\n"));
+        assertTrue(text.contains("http_request_duration_seconds_sum{method=\"GET\",route=\"/pi\"} 0.0203\n"));
+        assertTrue(text.contains("# TYPE http_inflight_requests gauge\n"));
+        assertTrue(text.contains("http_buffer_pool_in_use{pool=\"direct\"} "));
+    }
+
+    @Test
+    @DisplayName("El servidor etiqueta por plantilla y expone /metrics")
+    void testServerMetricsEndpoint() throws Exception {
+        HttpServer.get("/metrics-test/{id}", (req, res) -> new Response.Builder()
+                .withBody("item " + req.getPathParam("id"))
+                .build());
+        Metrics metrics = HttpServer.getMetrics();
+        metrics.reset();
+
+        HttpServer.handleGetRequest(new URI("/metrics-test/1"));
+        HttpServer.handleGetRequest(new URI("/metrics-test/2"));
+        HttpServer.handleGetRequest(new URI("/no-such-route-or-file"));
+
+        Metrics.RouteStats stats = metrics.find("GET", "/metrics-test/{id}");
+        assertEquals(2, stats.getRequests());
+        assertEquals(2, stats.getResponses(2));
+        assertEquals(1, metrics.find("GET", Metrics.UNMATCHED_ROUTE).getResponses(4));
+
+        String response = new String(HttpServer.handleGetRequest(new URI("/metrics")), StandardCharsets.UTF_8);
+        assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+        assertTrue(response.contains("Content-Type: text/plain; version=0.0.4"));
+        assertTrue(response.contains("http_requests_total{method=\"GET\",route=\"/metrics-test/{id}\"} 2\n"));
+        assertTrue(response.contains("http_requests_total{method=\"GET\",route=\"<unmatched>\"} 1\n"));
+
+        HttpServer.metricsEndpoint(null);
+        try {
+            String disabled = new String(HttpServer.handleGetRequest(new URI("/metrics")), StandardCharsets.UTF_8);
+            assertTrue(disabled.startsWith("HTTP/1.1 404"));
+        } finally {
+            HttpServer.metricsEndpoint("/metrics");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.annotation.GetMapping;
+import edu.escuelaing.arem.ASE.app.annotation.RequestParam;
+import edu.escuelaing.arem.ASE.app.annotation.RestController;
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.Request;
+import edu.escuelaing.arem.ASE.app.http.RequestParser;
+import edu.escuelaing.arem.ASE.app.http.Response;
+import org.junit.jupiter.api.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la conversión tipada de {@code @RequestParam}
+ */
+class ParamBindingTest {
+
+    public enum Level {
+        LOW, HIGH
+    }
+
+    @RestController
+    public static class TypedController {
+
+        @GetMapping("/typed/sum")
+        public static String sum(@RequestParam("a") int a, @RequestParam("b") long b) {
+            return "sum=" + (a + b);
+        }
+
+        @GetMapping("/typed/mix")
+        public static String mix(@RequestParam("x") double x, @RequestParam("on") boolean on,
+                @RequestParam("level") Level level, @RequestParam("c") char c) {
+            return x + "," + on + "," + level + "," + c;
+        }
+
+        @GetMapping("/typed/optional")
+        public static String optional(@RequestParam("n") Optional<Integer> n, @RequestParam("s") Integer s,
+                @RequestParam(value = "page", defaultValue = "1") int page,
+                @RequestParam(value = "level", defaultValue = "LOW") Optional<Level> level) {
+            return n.map(v -> "n=" + v).orElse("sin n") + "," + s + "," + page + "," + level.get();
+        }
+
+        @GetMapping("/typed/small")
+        public String small(@RequestParam("b") byte b, @RequestParam("s") short s, @RequestParam("f") Float f) {
+            return b + "," + s + "," + f;
+        }
+
+        @GetMapping("/typed/unsupported")
+        public static String unsupported(@RequestParam("list") java.util.List<String> list) {
+            return "no";
+        }
+    }
+
+    @BeforeAll
+    static void register() {
+        HttpServer.registerController(TypedController.class);
+    }
+
+    /**
+     * Petición con la cabecera parseada: los valores se leen del buffer.
+     */
+    private static Response parsed(String target) {
+        RequestParser parser = new RequestParser();
+        ByteBuffer buffer = ByteBuffer.wrap(("GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        parser.reset(buffer, 0);
+        parser.parse(buffer.limit());
+        return HttpServer.dispatch(new Request.Builder().withHead(parser.head()).build());
+    }
+
+    /**
+     * Petición construida desde una URI.
+     */
+    private static Response fromUri(String target) throws Exception {
+        return HttpServer.dispatch(new Request.Builder().withMethod("GET").withUri(new URI(target)).build());
+    }
+
+    private static String body(Response response) {
+        String text = new String(response.toBytes(), StandardCharsets.UTF_8);
+        return text.substring(text.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static String head(Response response) {
+        String text = new String(response.toBytes(), StandardCharsets.UTF_8);
+        return text.substring(0, text.indexOf("\r\n\r\n") + 2);
+    }
+
+    @Test
+    @DisplayName("Primitivos desde el buffer y desde la URI")
+    void testPrimitives() throws Exception {
+        assertEquals("sum=8", body(parsed("/typed/sum?a=5&b=3")));
+        assertEquals("sum=8", body(fromUri("/typed/sum?b=3&a=5")));
+        // Un nombre repetido toma el primer valor, como getQueryParam
+        assertEquals("sum=8000000000", body(parsed("/typed/sum?a=-1000000000&b=9000000000&a=7")));
+        // Escapes: se decodifican antes de convertir
+        assertEquals("sum=-2", body(parsed("/typed/sum?a=%2D5&b=3")));
+        assertEquals("2.5,true,HIGH,z", body(parsed("/typed/mix?x=2.5&on=TRUE&level=HIGH&c=z")));
+        assertEquals("-0.001,false,LOW,+", body(fromUri("/typed/mix?x=-1e-3&on=false&level=LOW&c=%2B")));
+        assertEquals("-128,32767,1.5", body(parsed("/typed/small?b=-128&s=32767&f=1.5")));
+    }
+
+    @Test
+    @DisplayName("Optional, envoltorios y defaultValue")
+    void testOptionalAndDefaults() throws Exception {
+        assertEquals("sin n,null,1,LOW", body(parsed("/typed/optional")));
+        assertEquals("n=4,7,3,HIGH", body(parsed("/typed/optional?n=4&s=7&page=3&level=HIGH")));
+        // Vacío con defaultValue cuenta como ausente
+        assertEquals("sin n,null,1,LOW", body(fromUri("/typed/optional?page=&level=")));
+    }
+
+    @Test
+    @DisplayName("Conversiones fallidas responden 400 con el motivo")
+    void testInvalidValues() throws Exception {
+        Response text = parsed("/typed/sum?a=abc&b=1");
+        assertEquals(400, text.getStatus());
+        assertEquals("Parámetro inválido a: se esperaba int y llegó \"abc\"", body(text));
+        assertTrue(head(text).contains("\r\nContent-Type: text/plain; charset=utf-8\r\n"));
+
+        Response overflow = parsed("/typed/sum?a=2147483648&b=1");
+        assertEquals(400, overflow.getStatus());
+        assertTrue(body(overflow).contains("2147483648"));
+
+        Response missing = fromUri("/typed/sum?a=1");
+        assertEquals(400, missing.getStatus());
+        assertEquals("Falta el parámetro b (long)", body(missing));
+
+        assertEquals(400, parsed("/typed/sum?a=&b=1").getStatus());
+        assertEquals(400, parsed("/typed/small?b=128&s=0&f=0").getStatus());
+        assertEquals(400, parsed("/typed/mix?x=1&on=si&level=LOW&c=a").getStatus());
+        assertEquals(400, parsed("/typed/mix?x=1&on=true&level=low&c=a").getStatus());
+        assertTrue(body(parsed("/typed/mix?x=1&on=true&level=MID&c=a")).contains("uno de [LOW, HIGH]"));
+        assertEquals(400, parsed("/typed/mix?x=uno&on=true&level=LOW&c=a").getStatus());
+        assertEquals(400, parsed("/typed/mix?x=1&on=true&level=LOW&c=ab").getStatus());
+    }
+
+    @Test
+    @DisplayName("Tipos sin conversor responden 400")
+    void testUnsupportedType() throws Exception {
+        Response response = parsed("/typed/unsupported?list=a");
+        assertEquals(400, response.getStatus());
+        assertEquals("Parámetro no soportado: list", body(response));
+        assertTrue(head(response).contains("\r\nContent-Type: text/plain; charset=utf-8\r\n"));
+    }
+}
@@ -0,0 +1,107 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.RequestHead;
+import edu.escuelaing.arem.ASE.app.http.RequestParser;
+import org.junit.jupiter.api.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del parser de cabeceras HTTP a nivel de bytes
+ */
+class RequestParserTest {
+
+    private static RequestParser.Result parse(RequestParser parser, String raw) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw.getBytes(StandardCharsets.ISO_8859_1));
+        parser.reset(buffer, 0);
+        return parser.parse(buffer.limit());
+    }
+
+    @Test
+    @DisplayName("Parsea línea de petición, query y headers")
+    void testParseCompleteRequest() {
+        RequestParser parser = new RequestParser();
+        String raw = "POST /app/hello?name=Ana&x=1 HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type:   application/json  \r\n"
+                + "Content-Length: 14\r\n"
+                + "\r\n"
+                + "{\"name\":\"Ana\"}";
+
+        assertEquals(RequestParser.Result.COMPLETE, parse(parser, raw));
+        RequestHead head = parser.head();
+        assertEquals("POST", head.method());
+        assertEquals("/app/hello", head.path());
+        assertEquals("name=Ana&x=1", head.query());
+        assertTrue(head.isHttp11());
+        assertEquals("application/json", head.header("CONTENT-TYPE"));
+        assertEquals(14, head.contentLength());
+        assertEquals(raw.length() - 14, head.end());
+        assertNull(head.header("accept"));
+    }
+
+    @Test
+    @DisplayName("Reanuda el parseo cuando llegan más bytes")
+    void testIncrementalParse() {
+        byte[] raw = "GET /pi HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        RequestParser parser = new RequestParser();
+        parser.reset(buffer, 0);
+
+        for (int limit = 1; limit < raw.length; limit++) {
+            assertEquals(RequestParser.Result.INCOMPLETE, parser.parse(limit));
+        }
+        assertEquals(RequestParser.Result.COMPLETE, parser.parse(raw.length));
+        assertEquals("/pi", parser.head().path());
+        assertEquals("localhost", parser.head().header("host"));
+    }
+
+    @Test
+    @DisplayName("Acepta LF sin CR, absolute-form y decodifica la ruta")
+    void testLenientLineEndingsAndTargets() {
+        RequestParser parser = new RequestParser();
+        assertEquals(RequestParser.Result.COMPLETE, parse(parser, "GET http://localhost:35000/mi%20archivo.txt HTTP/1.0\nHost: x\n\n"));
+        assertEquals("/mi archivo.txt", parser.head().path());
+        assertFalse(parser.head().isKeepAlive());
+
+        assertEquals(RequestParser.Result.COMPLETE, parse(parser, "\r\nGET / HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n"));
+        assertTrue(parser.head().isKeepAlive());
+    }
+
+    @Test
+    @DisplayName("Peticiones malformadas devuelven ERROR en lugar de excepción")
+    void testMalformedRequests() {
+        RequestParser parser = new RequestParser();
+        assertEquals(RequestParser.Result.ERROR, parse(parser, "GET\r\n\r\n"));
+        assertEquals(RequestParser.Result.ERROR, parse(parser, "GET relative HTTP/1.1\r\n\r\n"));
+        assertEquals(RequestParser.Result.ERROR, parse(parser, "GET / HTTX/1.1\r\n\r\n"));
+        assertEquals(RequestParser.Result.ERROR, parse(parser, "GET / HTTP/1.1\r\nBad Header: x\r\n\r\n"));
+        assertEquals(RequestParser.Result.ERROR, parse(parser, "GET / HTTP/1.1\rX: y\r\n\r\n"));
+        assertNotNull(parser.getError());
+
+        assertEquals(RequestParser.Result.COMPLETE, parse(parser, "GET / HTTP/1.1\r\nContent-Length: 12a\r\n\r\n"));
+        assertEquals(-2, parser.head().contentLength());
+    }
+
+    @Test
+    @DisplayName("Content-Length repetido con valores distintos es un error")
+    void testConflictingContentLength() {
+        RequestParser parser = new RequestParser();
+        assertEquals(RequestParser.Result.ERROR, parse(parser,
+                "POST / HTTP/1.1\r\nContent-Length: 5\r\nHost: x\r\ncontent-length: 50\r\n\r\n"));
+        assertEquals("Conflicting Content-Length headers", parser.getError());
+
+        // El mismo valor repetido no es ambiguo
+        assertEquals(RequestParser.Result.COMPLETE, parse(parser,
+                "POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 5\r\n\r\n"));
+        assertEquals(5, parser.head().contentLength());
+    }
+
+    @Test
+    @DisplayName("Rechaza cabeceras que superan el tamaño máximo")
+    void testHeadTooLarge() {
+        RequestParser parser = new RequestParser(64);
+        assertEquals(RequestParser.Result.ERROR, parse(parser, "GET /" + "a".repeat(100) + " HTTP/1.1\r\n\r\n"));
+    }
+}
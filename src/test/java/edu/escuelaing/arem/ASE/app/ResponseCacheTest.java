@@ -0,0 +1,167 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.Request;
+import edu.escuelaing.arem.ASE.app.http.Response;
+import edu.escuelaing.arem.ASE.app.http.ResponseCache;
+import org.junit.jupiter.api.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la caché de respuestas de rutas GET con TTL
+ */
+class ResponseCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        HttpServer.responseCache(1024 * 1024, 64 * 1024);
+    }
+
+    @AfterAll
+    static void restore() {
+        HttpServer.responseCache(16L * 1024 * 1024, 256 * 1024);
+    }
+
+    private void register(String path, long ttlMillis, String body) {
+        HttpServer.get(path, (req, res) -> {
+            calls.incrementAndGet();
+            return new Response.Builder()
+                    .withContentType("text/plain")
+                    .withBody(body + req.getQueryParam("a") + req.getQueryParam("b"))
+                    .build();
+        }, ttlMillis);
+    }
+
+    private static Request get(String path, String acceptEncoding) throws URISyntaxException {
+        Request.Builder builder = new Request.Builder().withMethod("GET").withUri(new URI(path));
+        if (acceptEncoding != null) {
+            builder.withHeader("Accept-Encoding", acceptEncoding);
+        }
+        return builder.build();
+    }
+
+    private static String text(Response response) {
+        return new String(response.toBytes(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    @DisplayName("Un acierto no ejecuta el servicio y el orden de la query no importa")
+    void testHitWithNormalizedQuery() throws Exception {
+        register("/cache/sum", 60_000, "r");
+        ResponseCache cache = HttpServer.getResponseCache();
+
+        Response first = HttpServer.dispatch(get("/cache/sum?a=1&b=2", null));
+        Response second = HttpServer.dispatch(get("/cache/sum?b=2&a=1", null));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(text(first), text(second));
+        assertTrue(text(second).endsWith("\r\n\r\nr12"));
+
+        HttpServer.dispatch(get("/cache/sum?a=1&b=3", null));
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getEntries());
+    }
+
+    @Test
+    @DisplayName("Las entradas caducan al cumplirse el TTL")
+    void testTtlExpiration() throws Exception {
+        register("/cache/ttl", 50, "t");
+        HttpServer.dispatch(get("/cache/ttl?a=1", null));
+        HttpServer.dispatch(get("/cache/ttl?a=1", null));
+        assertEquals(1, calls.get());
+
+        Thread.sleep(100);
+        HttpServer.dispatch(get("/cache/ttl?a=1", null));
+        assertEquals(2, calls.get());
+        assertEquals(1, HttpServer.getResponseCache().getExpirations());
+    }
+
+    @Test
+    @DisplayName("La variante gzip se cachea aparte de la original")
+    void testGzipVariant() throws Exception {
+        register("/cache/big", 60_000, "x".repeat(4096));
+
+        Response gzip = HttpServer.dispatch(get("/cache/big", "gzip"));
+        Response cachedGzip = HttpServer.dispatch(get("/cache/big", "gzip"));
+        Response plain = HttpServer.dispatch(get("/cache/big", null));
+        assertEquals(2, calls.get());
+        assertTrue(text(gzip).contains("Content-Encoding: gzip"));
+        assertTrue(text(cachedGzip).contains("Content-Encoding: gzip"));
+        assertEquals(gzip.getBodyLength(), cachedGzip.getBodyLength());
+        assertFalse(text(plain).contains("Content-Encoding"));
+        assertTrue(text(plain).contains("Vary: Accept-Encoding"));
+    }
+
+    @Test
+    @DisplayName("Solo se cachean respuestas 200")
+    void testErrorsNotCached() throws Exception {
+        HttpServer.get("/cache/error", (req, res) -> {
+            calls.incrementAndGet();
+            return new Response.Builder().withStatus(500).withBody("fallo").build();
+        }, 60_000);
+        HttpServer.dispatch(get("/cache/error", null));
+        HttpServer.dispatch(get("/cache/error", null));
+        assertEquals(2, calls.get());
+        assertEquals(0, HttpServer.getResponseCache().getEntries());
+    }
+
+    @Test
+    @DisplayName("Registrar de nuevo una ruta invalida solo sus entradas")
+    void testReRegistration() throws Exception {
+        register("/cache/keep", 60_000, "k");
+        register("/cache/swap", 60_000, "viejo");
+        HttpServer.dispatch(get("/cache/keep", null));
+        HttpServer.dispatch(get("/cache/swap", null));
+        assertEquals(2, calls.get());
+
+        register("/cache/swap", 60_000, "nuevo");
+        assertTrue(text(HttpServer.dispatch(get("/cache/swap", null))).endsWith("nuevonullnull"));
+        assertEquals(3, calls.get());
+
+        // Las demás rutas siguen en caché
+        HttpServer.dispatch(get("/cache/keep", null));
+        assertEquals(3, calls.get());
+        assertEquals(1, HttpServer.getResponseCache().getHits());
+    }
+
+    @Test
+    @DisplayName("Con 0 bytes la caché queda desactivada")
+    void testDisabled() throws Exception {
+        HttpServer.responseCache(0, 0);
+        register("/cache/off", 60_000, "o");
+        HttpServer.dispatch(get("/cache/off", null));
+        HttpServer.dispatch(get("/cache/off", null));
+        assertEquals(2, calls.get());
+        assertEquals(0, HttpServer.getResponseCache().getMisses());
+    }
+
+    @Test
+    @DisplayName("Acotada por bytes: expulsa las menos usadas")
+    void testLruEviction() throws Exception {
+        HttpServer.responseCache(4096, 1024);
+        register("/cache/lru", 60_000, "v".repeat(200));
+        ResponseCache cache = HttpServer.getResponseCache();
+
+        HttpServer.dispatch(get("/cache/lru?a=hot", null));
+        for (int i = 0; i < 50; i++) {
+            HttpServer.dispatch(get("/cache/lru?a=" + i, null));
+            // Mantener caliente la primera entrada
+            HttpServer.dispatch(get("/cache/lru?a=hot", null));
+        }
+        assertTrue(cache.getBytes() <= cache.getMaxBytes());
+        assertTrue(cache.getEvictions() > 0);
+        int before = calls.get();
+        HttpServer.dispatch(get("/cache/lru?a=hot", null));
+        assertEquals(before, calls.get(), "la entrada más usada sigue en caché");
+
+        HttpServer.dispatch(get("/cache/lru?a=0", null));
+        assertEquals(before + 1, calls.get(), "la entrada más antigua fue expulsada");
+    }
+}
@@ -0,0 +1,78 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.Router;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del enrutador radix: literales, parámetros, comodines y prefijos.
+ */
+class RouterTest {
+
+    private Router<String> router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router<>();
+        router.add("/users", "list");
+        router.add("/users/{id}", "user");
+        router.add("/users/{id}/posts/{postId}", "post");
+        router.add("/users/me", "me");
+        router.add("/files/*", "files");
+        router.add("/docs/{path*}", "docs");
+        router.mount("/assets", "assets");
+    }
+
+    @Test
+    @DisplayName("Rutas literales y prioridad sobre parámetros")
+    void testLiteralRoutes() {
+        assertEquals("list", router.find("/users").handler());
+        assertEquals("me", router.find("/users/me").handler());
+        assertTrue(router.find("/users/me").params().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Parámetros de ruta capturados")
+    void testPathParams() {
+        Router.Match<String> user = router.find("/users/42");
+        assertEquals("user", user.handler());
+        assertEquals("42", user.params().get("id"));
+
+        Router.Match<String> post = router.find("/users/7/posts/99");
+        assertEquals("post", post.handler());
+        assertEquals("7", post.params().get("id"));
+        assertEquals("99", post.params().get("postId"));
+    }
+
+    @Test
+    @DisplayName("Comodines y prefijos montados")
+    void testWildcardsAndMounts() {
+        assertEquals("css/site.css", router.find("/files/css/site.css").params().get("*"));
+        assertEquals("a/b/c", router.find("/docs/a/b/c").params().get("path"));
+        assertEquals("assets", router.find("/assets").handler());
+        assertEquals("img/logo.png", router.find("/assets/img/logo.png").params().get("*"));
+    }
+
+    @Test
+    @DisplayName("Rutas inexistentes devuelven null")
+    void testMisses() {
+        assertNull(router.find("/user"));
+        assertNull(router.find("/users/42/comments"));
+        assertNull(router.find("/files"));
+        assertNull(router.find("/assetsx"));
+        assertNull(router.find("relative"));
+    }
+
+    @Test
+    @DisplayName("Vista de mapa modifica el enrutador")
+    void testMapView() {
+        assertTrue(router.asMap().containsKey("/users/{id}"));
+        router.asMap().remove("/users/{id}");
+        assertNull(router.find("/users/42"));
+        assertEquals("me", router.find("/users/me").handler());
+
+        router.asMap().clear();
+        assertEquals(0, router.size());
+        assertNull(router.find("/users"));
+    }
+}
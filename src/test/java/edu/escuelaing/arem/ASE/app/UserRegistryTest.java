@@ -0,0 +1,95 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.UserRegistry;
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del registro de usuarios concurrente
+ */
+class UserRegistryTest {
+
+    @Test
+    @DisplayName("Índice por nombre con nombres repetidos")
+    void testNameIndex() {
+        UserRegistry registry = new UserRegistry();
+        String first = registry.add("Andres");
+        String second = registry.add("Andres");
+        registry.add("Maria");
+        assertNotEquals(first, second);
+        assertEquals(3, registry.size());
+        assertTrue(registry.containsName("Andres"));
+        assertFalse(registry.containsName("Carlos"));
+        assertFalse(registry.containsName(null));
+
+        // El nombre sigue registrado mientras quede un usuario con él
+        assertEquals("Andres", registry.remove(first));
+        assertTrue(registry.containsName("Andres"));
+        registry.remove(second);
+        assertFalse(registry.containsName("Andres"));
+        assertNull(registry.remove(second));
+
+        // Reemplazar el nombre de un ID actualiza el índice
+        registry.put("10", "Carlos");
+        registry.put("10", "Laura");
+        assertFalse(registry.containsName("Carlos"));
+        assertTrue(registry.containsName("Laura"));
+        assertEquals("11", registry.add("Pedro"));
+    }
+
+    @Test
+    @DisplayName("Vista Map compatible con getUsers")
+    void testMapView() {
+        UserRegistry registry = new UserRegistry();
+        Map<String, String> users = registry.asMap();
+        String id = registry.add("Andres");
+        assertEquals("Andres", users.get(id));
+        assertTrue(users.containsValue("Andres"));
+        assertTrue(users.containsKey(id));
+        assertThrows(UnsupportedOperationException.class, () -> users.entrySet().clear());
+
+        users.clear();
+        assertTrue(users.isEmpty());
+        assertFalse(registry.containsName("Andres"));
+    }
+
+    @Test
+    @DisplayName("Altas concurrentes sin IDs repetidos ni actualizaciones perdidas")
+    void testConcurrentAdds() throws Exception {
+        UserRegistry registry = new UserRegistry();
+        int threads = 8;
+        int perThread = 5_000;
+        List<Thread> workers = new ArrayList<>();
+        List<Set<String>> ids = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Set<String> own = new HashSet<>();
+            ids.add(own);
+            int thread = t;
+            workers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    own.add(registry.add("user-" + thread + "-" + (i % 100)));
+                    // Lecturas concurrentes con las escrituras
+                    registry.containsName("user-0-0");
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Set<String> all = new HashSet<>();
+        for (Set<String> own : ids) {
+            all.addAll(own);
+        }
+        assertEquals(threads * perThread, all.size());
+        assertEquals(threads * perThread, registry.size());
+        for (int t = 0; t < threads; t++) {
+            assertTrue(registry.containsName("user-" + t + "-99"));
+        }
+    }
+}
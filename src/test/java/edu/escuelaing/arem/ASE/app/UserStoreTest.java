@@ -0,0 +1,245 @@
+package edu.escuelaing.arem.ASE.app;
+
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.UserRegistry;
+import edu.escuelaing.arem.ASE.app.http.UserStore;
+import edu.escuelaing.arem.ASE.app.http.UserStore.FsyncPolicy;
+import org.junit.jupiter.api.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del almacén durable de usuarios: log, snapshot y recuperación
+ */
+class UserStoreTest {
+
+    private static final Path DIR = Paths.get("target/user-store-test");
+    private static final Path LOG = DIR.resolve("users.log");
+
+    @BeforeEach
+    @AfterEach
+    void clean() throws IOException {
+        if (Files.exists(DIR)) {
+            try (var files = Files.walk(DIR)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static UserStore open(FsyncPolicy policy) throws IOException {
+        return new UserStore.Builder(DIR).withFsyncPolicy(policy).build();
+    }
+
+    @Test
+    @DisplayName("Los usuarios y los IDs sobreviven al reinicio")
+    void testPersistAndRecover() throws Exception {
+        UserRegistry registry = new UserRegistry();
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            registry.attach(store);
+            registry.add("Andres");
+            registry.add("Maria");
+            String carlos = registry.add("Carlos");
+            registry.remove(carlos);
+            registry.put("1", "Andrés");
+        }
+
+        UserRegistry restarted = new UserRegistry();
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            assertEquals(Map.of("1", "Andrés", "2", "Maria"), store.getRecovered());
+            assertEquals(5, store.getRecoveredRecords());
+            restarted.attach(store);
+            // El ID 3 se usó antes de cerrar: no se reutiliza
+            assertEquals("4", restarted.add("Laura"));
+            assertTrue(restarted.containsName("Andrés"));
+            assertFalse(restarted.containsName("Carlos"));
+        }
+        assertThrows(UncheckedIOException.class, () -> restarted.add("Cerrado"));
+        assertFalse(restarted.containsName("Cerrado"));
+    }
+
+    @Test
+    @DisplayName("Un log truncado a mitad de registro recupera los registros completos")
+    void testTruncatedLogRecovery() throws Exception {
+        List<Long> boundaries = new ArrayList<>();
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            UserRegistry registry = new UserRegistry();
+            registry.attach(store);
+            for (int i = 0; i < 5; i++) {
+                registry.add("user" + i);
+                boundaries.add(Files.size(LOG));
+            }
+        }
+        byte[] full = Files.readAllBytes(LOG);
+        long lastComplete = boundaries.get(3);
+
+        // Cada punto de corte dentro del último registro, incluida su cabecera
+        for (long cut = lastComplete + 1; cut < full.length; cut++) {
+            Files.write(LOG, Arrays.copyOf(full, (int) cut));
+            try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+                assertEquals(4, store.getRecovered().size(), "corte en " + cut);
+                assertFalse(store.getRecovered().containsValue("user4"));
+                assertEquals(cut - lastComplete, store.getTruncatedBytes());
+            }
+            assertEquals(lastComplete, Files.size(LOG));
+        }
+
+        // Tras truncar se puede seguir escribiendo al final del log
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            UserRegistry registry = new UserRegistry();
+            registry.attach(store);
+            registry.add("after-crash");
+        }
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            assertEquals(5, store.getRecovered().size());
+            assertTrue(store.getRecovered().containsValue("after-crash"));
+            assertEquals(0, store.getTruncatedBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Un registro final corrupto o basura al final se descartan")
+    void testCorruptTail() throws Exception {
+        try (UserStore store = open(FsyncPolicy.OS)) {
+            UserRegistry registry = new UserRegistry();
+            registry.attach(store);
+            registry.add("Andres");
+            registry.add("Maria");
+        }
+        byte[] full = Files.readAllBytes(LOG);
+        byte[] corrupt = full.clone();
+        corrupt[corrupt.length - 1] ^= 0x7F;
+        Files.write(LOG, corrupt);
+        try (UserStore store = open(FsyncPolicy.OS)) {
+            assertEquals(Map.of("1", "Andres"), store.getRecovered());
+        }
+
+        byte[] garbage = Arrays.copyOf(full, full.length + 6);
+        Files.write(LOG, garbage);
+        try (UserStore store = open(FsyncPolicy.OS)) {
+            assertEquals(2, store.getRecovered().size());
+            assertEquals(6, store.getTruncatedBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("La compactación escribe un snapshot y vacía el log")
+    void testCompaction() throws Exception {
+        try (UserStore store = new UserStore.Builder(DIR).withCompactionThreshold(512).build()) {
+            UserRegistry registry = new UserRegistry();
+            registry.attach(store);
+            for (int i = 0; i < 100; i++) {
+                registry.add("user" + i);
+            }
+            for (int i = 1; i <= 50; i++) {
+                registry.remove(String.valueOf(i));
+            }
+        }
+        assertTrue(Files.exists(DIR.resolve("users.snapshot")));
+        assertTrue(Files.size(LOG) < 512);
+
+        try (UserStore store = open(FsyncPolicy.BATCHED)) {
+            assertEquals(50, store.getRecovered().size());
+            assertEquals("user99", store.getRecovered().get("100"));
+            assertTrue(store.getRecoveredRecords() < 50, "solo se reproduce el log posterior al snapshot");
+            assertEquals(101, store.getNextId());
+        }
+    }
+
+    @Test
+    @DisplayName("Caída entre el snapshot y el vaciado del log: el log se reaplica sin efecto")
+    void testCrashDuringCompaction() throws Exception {
+        byte[] oldLog;
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            UserRegistry registry = new UserRegistry();
+            registry.attach(store);
+            registry.add("Andres");
+            String maria = registry.add("Maria");
+            registry.remove(maria);
+            registry.put("1", "Andrés");
+            oldLog = Files.readAllBytes(LOG);
+            store.compact();
+            assertEquals(0, Files.size(LOG));
+            assertEquals(1, store.getCompactions());
+        }
+        Files.write(LOG, oldLog);
+        try (UserStore store = open(FsyncPolicy.PER_WRITE)) {
+            assertEquals(Map.of("1", "Andrés"), store.getRecovered());
+            assertEquals(3, store.getNextId());
+        }
+    }
+
+    @Test
+    @DisplayName("Escrituras concurrentes comparten fsync (group commit)")
+    @Timeout(30)
+    void testGroupCommit() throws Exception {
+        UserRegistry registry = new UserRegistry();
+        UserStore store = open(FsyncPolicy.PER_WRITE);
+        registry.attach(store);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 200; i++) {
+                    registry.add("t" + thread + "-" + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        store.close();
+        assertEquals(1600, store.getRecords());
+        assertTrue(store.getSyncs() < store.getRecords(), "syncs " + store.getSyncs());
+
+        try (UserStore reopened = open(FsyncPolicy.PER_WRITE)) {
+            assertEquals(1600, reopened.getRecovered().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Todas las políticas de fsync persisten al cerrar")
+    void testFsyncPolicies() throws Exception {
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            clean();
+            try (UserStore store = new UserStore.Builder(DIR).withFsyncPolicy(policy).withSyncInterval(5).build()) {
+                UserRegistry registry = new UserRegistry();
+                registry.attach(store);
+                registry.add("Andres");
+                Thread.sleep(20);
+                registry.add("Maria");
+            }
+            try (UserStore store = open(policy)) {
+                assertEquals(2, store.getRecovered().size(), policy.name());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Los datos iniciales se siembran una sola vez")
+    void testSeedOnce() throws Exception {
+        HttpServer.getUsers().clear();
+        try {
+            HttpServer.userStore(open(FsyncPolicy.PER_WRITE));
+            HttpServer.loadInitialData();
+            HttpServer.addUser("Persistido");
+            HttpServer.userStore(null);
+
+            HttpServer.userStore(open(FsyncPolicy.PER_WRITE));
+            HttpServer.loadInitialData();
+            assertEquals(4, HttpServer.getUsers().size());
+            assertTrue(HttpServer.getUserRegistry().containsName("Persistido"));
+        } finally {
+            HttpServer.userStore(null);
+            HttpServer.getUsers().clear();
+        }
+    }
+}
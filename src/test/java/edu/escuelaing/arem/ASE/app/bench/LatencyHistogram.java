@@ -0,0 +1,89 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+/**
+ * Histograma de latencias log-lineal en nanosegundos, de un solo hilo. Cada
+ * potencia de 2 se divide en 128 sub-buckets, así que un percentil se reporta
+ * con menos de un 1% de error relativo; valores mayores a ~18 minutos se
+ * acumulan en el último bucket. Cada cliente del generador de carga tiene
+ * los suyos y se combinan con {@link #add} al terminar.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) << SUB_BITS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long sum;
+    private long max;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        total++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * @param q cuantil entre 0 y 1
+     * @return límite superior del bucket que contiene el cuantil, acotado al
+     * máximo observado; 0 si no hay muestras
+     */
+    long percentile(double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        int shift = exponent - SUB_BITS;
+        long sub = Math.min(value >>> shift, 2L * SUB_COUNT - 1) - SUB_COUNT;
+        return ((shift + 1) << SUB_BITS) + (int) sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long sub = index & (SUB_COUNT - 1);
+        return ((SUB_COUNT + sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,535 @@
+package edu.escuelaing.arem.ASE.app.bench;
+
+import edu.escuelaing.arem.ASE.app.App;
+import edu.escuelaing.arem.ASE.app.http.HttpServer;
+import edu.escuelaing.arem.ASE.app.http.NioHttpServer;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de extremo a extremo. Levanta {@link HttpServer} con los
+ * servicios de {@link App} y los controladores anotados en un puerto efímero
+ * de loopback y lo somete a dos cargas sobre conexiones keep-alive:
+ *
+ * <ul>
+ * <li><b>closed-loop</b>: {@code connections} clientes que envían la
+ * siguiente petición en cuanto reciben la respuesta. Mide el throughput
+ * máximo; la latencia es la de cada petición.</li>
+ * <li><b>open-loop</b>: llegadas a tasa fija ({@code rate} peticiones/s)
+ * repartidas entre los clientes. La latencia se mide desde el instante en que
+ * la petición debía enviarse según el calendario, no desde que se envió, para
+ * corregir la omisión coordinada: si el servidor se atrasa, la espera de las
+ * peticiones encoladas cuenta. {@code serviceTimeMicros} da la latencia sin
+ * corregir para comparar.</li>
+ * </ul>
+ *
+ * La mezcla de peticiones es fija y reproducible (semilla constante): GET y
+ * POST de {@code /app/hello}, {@code /pi}, {@code /add} y archivos estáticos.
+ * El resultado (throughput y p50/p99/p999 en microsegundos, global y por
+ * ruta) se imprime como JSON y opcionalmente se guarda en un archivo. Todo
+ * el tráfico va por la interfaz de loopback.
+ *
+ * Ejecutar tras {@code mvn test-compile} con:
+ * {@code java -cp target/classes:target/test-classes
+ * edu.escuelaing.arem.ASE.app.bench.LoadGenerator [--transport=blocking|nio]
+ * [--connections=32] [--duration=10] [--warmup=3] [--rate=5000] [--loops=N]
+ * [--out=target/load.json]}
+ */
+public class LoadGenerator {
+
+    /**
+     * Una entrada de la mezcla: nombre para el reporte, bytes de la petición
+     * y peso relativo.
+     */
+    private record Route(String name, byte[] request, int weight) {
+
+        static Route get(String target, int weight) {
+            return new Route("GET " + target, ("GET " + target + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "\r\n").getBytes(StandardCharsets.US_ASCII), weight);
+        }
+
+        static Route post(String target, String json, int weight) {
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            request.writeBytes(("POST " + target + " HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            request.writeBytes(body);
+            return new Route("POST " + target, request.toByteArray(), weight);
+        }
+    }
+
+    private static final Route[] ROUTES = {
+        Route.get("/app/hello?name=Andres", 20),
+        Route.post("/app/hello", "{\"name\": \"Andres\"}", 5),
+        Route.get("/pi", 25),
+        Route.get("/add?a=5&b=3", 25),
+        Route.get("/index.html", 15),
+        Route.get("/styles.css", 10)
+    };
+    private static final int SCHEDULE_LENGTH = 1000;
+    private static final long SEED = 42;
+
+    private final Map<String, String> options;
+    private final int connections;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final double rate;
+    private final int[] schedule;
+
+    LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.connections = Integer.parseInt(options.getOrDefault("connections", "32"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "10")));
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "3")));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "5000"));
+        this.schedule = buildSchedule();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        String json = new LoadGenerator(options).run();
+        System.out.println(json);
+        if (options.containsKey("out")) {
+            Path out = Paths.get(options.get("out"));
+            if (out.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(out.toAbsolutePath().getParent());
+            }
+            Files.writeString(out, json + "\n");
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Levanta el servidor, ejecuta calentamiento, closed-loop y open-loop, y
+     * detiene el servidor.
+     *
+     * @return el reporte en JSON
+     */
+    String run() throws Exception {
+        HttpServer.staticfiles("/");
+        App.registerServices();
+        HttpServer.loadInitialData();
+        HttpServer.loadComponents(new String[0]);
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        String transport = options.getOrDefault("transport", "blocking");
+        NioHttpServer nioServer = null;
+        ServerSocket blockingServer = null;
+        Thread acceptor = null;
+        int port;
+        if (transport.equals("nio")) {
+            int loops = Integer.parseInt(options.getOrDefault("loops",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            nioServer = new NioHttpServer(address, loops);
+            nioServer.start();
+            port = nioServer.getLocalPort();
+        } else if (transport.equals("blocking")) {
+            ServerSocketChannel channel = ServerSocketChannel.open().bind(address);
+            ServerSocket socket = channel.socket();
+            blockingServer = socket;
+            acceptor = Thread.ofPlatform().name("load-server").daemon().start(() -> HttpServer.runServer(socket));
+            port = socket.getLocalPort();
+        } else {
+            throw new IllegalArgumentException("Transporte desconocido: " + transport);
+        }
+
+        try {
+            InetSocketAddress target = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            closedLoop(target, warmupNanos);
+            Result closed = closedLoop(target, durationNanos);
+            Result open = openLoop(target);
+            return report(transport, closed, open);
+        } finally {
+            if (nioServer != null) {
+                nioServer.stop();
+            }
+            if (blockingServer != null) {
+                blockingServer.close();
+                acceptor.join(TimeUnit.SECONDS.toMillis(1));
+            }
+        }
+    }
+
+    /**
+     * Cada cliente envía la siguiente petición en cuanto recibe la respuesta.
+     */
+    private Result closedLoop(InetSocketAddress target, long nanos) throws InterruptedException {
+        Result result = new Result("closed-loop");
+        long start = System.nanoTime();
+        long end = start + nanos;
+        runClients(target, result, (client, stats) -> {
+            int next = client.id * (SCHEDULE_LENGTH / Math.max(1, connections));
+            while (System.nanoTime() < end) {
+                int route = schedule[next++ % SCHEDULE_LENGTH];
+                long sent = System.nanoTime();
+                boolean ok = client.exchange(ROUTES[route].request());
+                long latency = System.nanoTime() - sent;
+                stats.record(route, latency, latency, ok);
+            }
+        });
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Llegadas a tasa fija: la petición {@code i} debe enviarse en
+     * {@code start + i / rate}. El cliente que la toma espera hasta ese
+     * instante si va adelantado; si va atrasado la envía de inmediato y su
+     * latencia incluye el atraso. Las peticiones que a {@code 2 * duration}
+     * no se alcanzaron a enviar se cuentan como no enviadas.
+     */
+    private Result openLoop(InetSocketAddress target) throws InterruptedException {
+        Result result = new Result("open-loop");
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long scheduled = durationNanos / interval;
+        AtomicLong next = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + 2 * durationNanos;
+        runClients(target, result, (client, stats) -> {
+            long i;
+            while ((i = next.getAndIncrement()) < scheduled) {
+                long intended = start + i * interval;
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                if (now > deadline) {
+                    break;
+                }
+                int route = schedule[(int) (i % SCHEDULE_LENGTH)];
+                boolean ok = client.exchange(ROUTES[route].request());
+                long done = System.nanoTime();
+                stats.record(route, done - intended, done - now, ok);
+            }
+        });
+        result.elapsedNanos = System.nanoTime() - start;
+        result.targetRate = rate;
+        result.unsent = scheduled - result.requests();
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Workload {
+
+        void run(Client client, Stats stats) throws IOException;
+    }
+
+    private void runClients(InetSocketAddress target, Result result, Workload workload) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        List<Stats> all = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Stats stats = new Stats();
+            Client client = new Client(i, target);
+            all.add(stats);
+            threads.add(Thread.ofPlatform().name("load-client-" + i).start(() -> {
+                try (client) {
+                    workload.run(client, stats);
+                } catch (IOException e) {
+                    stats.errors++;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Stats stats : all) {
+            result.merge(stats);
+        }
+    }
+
+    /**
+     * Calendario reproducible de rutas según sus pesos.
+     */
+    private static int[] buildSchedule() {
+        int totalWeight = 0;
+        for (Route route : ROUTES) {
+            totalWeight += route.weight();
+        }
+        Random random = new Random(SEED);
+        int[] schedule = new int[SCHEDULE_LENGTH];
+        for (int i = 0; i < SCHEDULE_LENGTH; i++) {
+            int pick = random.nextInt(totalWeight);
+            int route = 0;
+            while (pick >= ROUTES[route].weight()) {
+                pick -= ROUTES[route++].weight();
+            }
+            schedule[i] = route;
+        }
+        return schedule;
+    }
+
+    /**
+     * Muestras de un cliente, sin sincronización.
+     */
+    private static final class Stats {
+
+        final LatencyHistogram[] latency = new LatencyHistogram[ROUTES.length];
+        final LatencyHistogram[] service = new LatencyHistogram[ROUTES.length];
+        long errors;
+
+        Stats() {
+            for (int i = 0; i < ROUTES.length; i++) {
+                latency[i] = new LatencyHistogram();
+                service[i] = new LatencyHistogram();
+            }
+        }
+
+        void record(int route, long latencyNanos, long serviceNanos, boolean ok) {
+            latency[route].record(latencyNanos);
+            service[route].record(serviceNanos);
+            if (!ok) {
+                errors++;
+            }
+        }
+    }
+
+    /**
+     * Resultado combinado de una carga.
+     */
+    private static final class Result {
+
+        final String workload;
+        final Stats total = new Stats();
+        long errors;
+        long elapsedNanos;
+        double targetRate;
+        long unsent;
+
+        Result(String workload) {
+            this.workload = workload;
+        }
+
+        void merge(Stats stats) {
+            for (int i = 0; i < ROUTES.length; i++) {
+                total.latency[i].add(stats.latency[i]);
+                total.service[i].add(stats.service[i]);
+            }
+            errors += stats.errors;
+        }
+
+        long requests() {
+            long requests = 0;
+            for (LatencyHistogram histogram : total.latency) {
+                requests += histogram.count();
+            }
+            return requests;
+        }
+    }
+
+    private String report(String transport, Result... results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"timestamp\":\"").append(Instant.now()).append('"')
+                .append(",\"java\":\"").append(System.getProperty("java.version")).append('"')
+                .append(",\"cpus\":").append(Runtime.getRuntime().availableProcessors())
+                .append(",\"config\":{\"transport\":\"").append(transport).append('"')
+                .append(",\"connections\":").append(connections)
+                .append(",\"durationSeconds\":").append(TimeUnit.NANOSECONDS.toSeconds(durationNanos))
+                .append(",\"warmupSeconds\":").append(TimeUnit.NANOSECONDS.toSeconds(warmupNanos))
+                .append(",\"rate\":").append(format(rate))
+                .append("},\"results\":[");
+        for (int r = 0; r < results.length; r++) {
+            Result result = results[r];
+            LatencyHistogram latency = new LatencyHistogram();
+            LatencyHistogram service = new LatencyHistogram();
+            for (int i = 0; i < ROUTES.length; i++) {
+                latency.add(result.total.latency[i]);
+                service.add(result.total.service[i]);
+            }
+            long requests = latency.count();
+            json.append(r > 0 ? "," : "")
+                    .append("{\"workload\":\"").append(result.workload).append('"')
+                    .append(",\"requests\":").append(requests)
+                    .append(",\"errors\":").append(result.errors)
+                    .append(",\"elapsedSeconds\":").append(format(result.elapsedNanos / 1e9))
+                    .append(",\"throughput\":").append(format(requests / (result.elapsedNanos / 1e9)));
+            if (result.targetRate > 0) {
+                json.append(",\"targetRate\":").append(format(result.targetRate))
+                        .append(",\"unsent\":").append(result.unsent);
+            }
+            json.append(",\"latencyMicros\":");
+            appendPercentiles(json, latency);
+            if (result.targetRate > 0) {
+                json.append(",\"serviceTimeMicros\":");
+                appendPercentiles(json, service);
+            }
+            json.append(",\"routes\":{");
+            for (int i = 0; i < ROUTES.length; i++) {
+                json.append(i > 0 ? "," : "").append('"').append(ROUTES[i].name()).append("\":");
+                appendPercentiles(json, result.total.latency[i]);
+            }
+            json.append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendPercentiles(StringBuilder json, LatencyHistogram histogram) {
+        json.append("{\"count\":").append(histogram.count())
+                .append(",\"mean\":").append(format(histogram.mean() / 1000))
+                .append(",\"p50\":").append(format(histogram.percentile(0.50) / 1000.0))
+                .append(",\"p99\":").append(format(histogram.percentile(0.99) / 1000.0))
+                .append(",\"p999\":").append(format(histogram.percentile(0.999) / 1000.0))
+                .append(",\"max\":").append(format(histogram.max() / 1000.0))
+                .append('}');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    /**
+     * Conexión keep-alive de un cliente. Reabre el socket si el servidor la
+     * cierra ({@code Connection: close}) o si falla.
+     */
+    private static final class Client implements Closeable {
+
+        final int id;
+        private final InetSocketAddress target;
+        private final byte[] line = new byte[8192];
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Client(int id, InetSocketAddress target) {
+            this.id = id;
+            this.target = target;
+        }
+
+        /**
+         * Envía la petición y consume la respuesta completa.
+         *
+         * @return true si la respuesta es 2xx o 3xx
+         */
+        boolean exchange(byte[] request) {
+            try {
+                if (socket == null) {
+                    socket = new Socket();
+                    socket.setTcpNoDelay(true);
+                    socket.connect(target);
+                    in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+                    out = socket.getOutputStream();
+                }
+                out.write(request);
+                return readResponse() < 400;
+            } catch (IOException e) {
+                close();
+                return false;
+            }
+        }
+
+        private int readResponse() throws IOException {
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean close = false;
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                int colon = header.indexOf(':');
+                String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = header.substring(colon + 1).trim();
+                switch (name) {
+                    case "content-length" ->
+                        contentLength = Long.parseLong(value);
+                    case "transfer-encoding" ->
+                        chunked = value.equalsIgnoreCase("chunked");
+                    case "connection" ->
+                        close = value.equalsIgnoreCase("close");
+                    default -> {
+                    }
+                }
+            }
+            if (chunked) {
+                long size;
+                while ((size = Long.parseLong(readLine().split(";", 2)[0].trim(), 16)) > 0) {
+                    skip(size);
+                    readLine();
+                }
+                while (!readLine().isEmpty()) {
+                    // Trailers
+                }
+            } else if (contentLength > 0) {
+                skip(contentLength);
+            }
+            if (close) {
+                close();
+            }
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            int length = 0;
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Conexión cerrada por el servidor");
+                }
+                if (length < line.length) {
+                    line[length++] = (byte) b;
+                }
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        private void skip(long bytes) throws IOException {
+            long remaining = bytes;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        throw new IOException("Cuerpo incompleto");
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Ignora errores al cerrar
+                }
+                socket = null;
+            }
+        }
+    }
+}